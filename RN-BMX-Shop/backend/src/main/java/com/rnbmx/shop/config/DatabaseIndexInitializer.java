@@ -0,0 +1,39 @@
+package com.rnbmx.shop.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+
+// Crea gli indici che Hibernate (ddl-auto=update) non sa esprimere,
+// ad esempio gli indici parziali di PostgreSQL
+@Component
+public class DatabaseIndexInitializer implements CommandLineRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(DatabaseIndexInitializer.class);
+
+    private static final List<String> INDEXES = Arrays.asList(
+            "CREATE INDEX IF NOT EXISTS idx_products_featured ON products (created_at DESC, id DESC) "
+                    + "WHERE featured = true");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void run(String... args) {
+        for (String ddl : INDEXES) {
+            try {
+                jdbcTemplate.execute(ddl);
+                logger.debug("Indice verificato: {}", ddl);
+            } catch (Exception e) {
+                // Come spring.sql.init.continue-on-error: un indice mancante non blocca l'avvio
+                logger.warn("Impossibile creare l'indice ({}): {}", ddl, e.getMessage());
+            }
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.rnbmx.shop.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -8,17 +9,23 @@ import org.springframework.security.config.annotation.method.configuration.Enabl
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
-import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 import org.springframework.web.filter.CorsFilter;
 
 import com.rnbmx.shop.security.jwt.AuthEntryPointJwt;
 import com.rnbmx.shop.security.jwt.AuthTokenFilter;
+import com.rnbmx.shop.security.jwt.PublicPathMatcher;
+import com.rnbmx.shop.security.jwt.PublicPathMatcher.Access;
+
+import java.util.HashMap;
+import java.util.Map;
 
 import org.springframework.beans.factory.annotation.Autowired;
 
@@ -32,14 +39,62 @@ public class WebSecurityConfig {
         return new AuthTokenFilter();
     }
 
+    // Unica definizione dei percorsi pubblici, usata sia qui sia da AuthTokenFilter
+    @Bean
+    public PublicPathMatcher publicPathMatcher() {
+        return new PublicPathMatcher()
+                .add("/api/products/**", Access.ANONYMOUS_READ)
+                // Statistiche interne della cache: solo admin, quindi il token va letto anche in GET
+                .add("/api/products/cache-stats", Access.PROTECTED)
+                .add("/api/categories/**", Access.ANONYMOUS_READ)
+                .add("/api/auth/**", Access.PERMIT_ALL)
+                .add("/*", Access.PERMIT_ALL)
+                .add("/static/**", Access.PERMIT_ALL)
+                .add("/favicon.ico", Access.PERMIT_ALL)
+                .add("/api/public/**", Access.TOKEN_OPTIONAL)
+                .add("/api/debug/**", Access.TOKEN_OPTIONAL)
+                .add("/api/debug-login/**", Access.TOKEN_OPTIONAL)
+                .add("/api/reviews/product/**", Access.TOKEN_OPTIONAL);
+    }
+
     @Bean
     public AuthEntryPointJwt unauthorizedHandler() {
         return new AuthEntryPointJwt();
     }
 
+    // Algoritmo usato per i nuovi hash: "bcrypt" oppure "argon2"
+    @Value("${bmx.app.password.algorithm:bcrypt}")
+    private String passwordAlgorithm;
+
+    @Value("${bmx.app.password.bcryptStrength:10}")
+    private int bcryptStrength;
+
+    @Value("${bmx.app.password.argon2.memoryKb:16384}")
+    private int argon2MemoryKb;
+
+    @Value("${bmx.app.password.argon2.iterations:2}")
+    private int argon2Iterations;
+
+    @Value("${bmx.app.password.argon2.parallelism:1}")
+    private int argon2Parallelism;
+
+    // Gli hash portano il prefisso dell'algoritmo ({bcrypt}, {argon2}); quelli esistenti
+    // senza prefisso sono BCrypt. Un hash con algoritmo o costo diverso da quello
+    // configurato viene rigenerato al login successivo (UserDetailsPasswordService).
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        Map<String, PasswordEncoder> encoders = new HashMap<>();
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(bcryptStrength);
+        encoders.put("bcrypt", bcrypt);
+        encoders.put("argon2", new Argon2PasswordEncoder(16, 32, argon2Parallelism, argon2MemoryKb, argon2Iterations));
+
+        if (!encoders.containsKey(passwordAlgorithm)) {
+            throw new IllegalStateException("Algoritmo password non supportato: " + passwordAlgorithm);
+        }
+
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder(passwordAlgorithm, encoders);
+        encoder.setDefaultPasswordEncoderForMatches(bcrypt);
+        return encoder;
     }
 
     @Bean
@@ -74,12 +129,7 @@ public class WebSecurityConfig {
                 .exceptionHandling(exception -> exception.authenticationEntryPoint(unauthorizedHandler()))
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(
-                        auth -> auth.requestMatchers(new AntPathRequestMatcher("/api/auth/**")).permitAll()
-                                .requestMatchers(new AntPathRequestMatcher("/api/products/**")).permitAll()
-                                .requestMatchers(new AntPathRequestMatcher("/api/categories/**")).permitAll()
-                                .requestMatchers(new AntPathRequestMatcher("/*")).permitAll()
-                                .requestMatchers(new AntPathRequestMatcher("/static/**")).permitAll()
-                                .requestMatchers(new AntPathRequestMatcher("/favicon.ico")).permitAll()
+                        auth -> auth.requestMatchers(publicPathMatcher().permitAllMatcher()).permitAll()
                                 .anyRequest().authenticated());
 
         http.addFilterBefore(authenticationJwtTokenFilter(), UsernamePasswordAuthenticationFilter.class);
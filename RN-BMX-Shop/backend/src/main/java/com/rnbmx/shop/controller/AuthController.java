@@ -5,10 +5,13 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Optional;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
@@ -16,12 +19,15 @@ import javax.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.jdbc.core.JdbcTemplate;
@@ -33,11 +39,19 @@ import com.rnbmx.shop.payload.request.LoginRequest;
 import com.rnbmx.shop.payload.request.SignupRequest;
 import com.rnbmx.shop.payload.response.JwtResponse;
 import com.rnbmx.shop.payload.response.MessageResponse;
-import com.rnbmx.shop.repository.RoleRepository;
+import com.rnbmx.shop.service.PasswordResetJob;
+import com.rnbmx.shop.service.RoleRegistry;
 import com.rnbmx.shop.repository.UserRepository;
 import com.rnbmx.shop.security.jwt.JwtUtils;
+import com.rnbmx.shop.security.jwt.VerifiedTokenCache;
 import com.rnbmx.shop.security.services.UserDetailsImpl;
-import com.rnbmx.shop.exception.RoleNotFoundException;
+import com.rnbmx.shop.security.services.LoginRateLimiter;
+import com.rnbmx.shop.security.services.PasswordHashingService;
+import com.rnbmx.shop.security.services.RefreshTokenRevocationService;
+import com.rnbmx.shop.security.services.UserDetailsServiceImpl;
+import com.rnbmx.shop.security.services.UserSecurityChangedEvent;
+import com.rnbmx.shop.logging.LogRedactor;
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.MalformedJwtException;
 import io.jsonwebtoken.SignatureException;
@@ -56,7 +70,7 @@ public class AuthController {
     UserRepository userRepository;
 
     @Autowired
-    RoleRepository roleRepository;
+    RoleRegistry roleRegistry;
 
     @Autowired
     PasswordEncoder encoder;
@@ -67,6 +81,27 @@ public class AuthController {
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    @Autowired
+    private VerifiedTokenCache tokenCache;
+
+    @Autowired
+    private RefreshTokenRevocationService refreshTokenRevocations;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private UserDetailsServiceImpl userDetailsService;
+
+    @Autowired
+    private PasswordHashingService passwordHashingService;
+
+    @Autowired
+    private LoginRateLimiter loginRateLimiter;
+
+    @Autowired
+    private PasswordResetJob passwordResetJob;
+
     @GetMapping("/test")
     public ResponseEntity<?> testEndpoint() {
         logger.info("Test endpoint chiamato");
@@ -80,7 +115,7 @@ public class AuthController {
         response.put("status", "ok");
 
         // Controlliamo i ruoli disponibili
-        List<Role> availableRoles = roleRepository.findAll();
+        Collection<Role> availableRoles = roleRegistry.all();
         if (availableRoles.isEmpty()) {
             response.put("message", "Nessun ruolo trovato nel database");
         } else {
@@ -115,90 +150,59 @@ public class AuthController {
         }
     }
 
+    // BCrypt/Argon2 girano sul pool dedicato, non sui thread di Tomcat
     @PostMapping("/signin")
-    public ResponseEntity<?> authenticateUser(@Valid @RequestBody LoginRequest loginRequest) {
+    public CompletableFuture<ResponseEntity<?>> authenticateUser(@Valid @RequestBody LoginRequest loginRequest,
+            HttpServletRequest request) {
+        // Il limite si controlla qui, prima di DB e hashing
+        loginRateLimiter.acquire(request.getRemoteAddr(), loginRequest.getEmail());
+        return passwordHashingService.submit(() -> signIn(loginRequest));
+    }
+
+    private ResponseEntity<?> signIn(LoginRequest loginRequest) {
         logger.info("Tentativo di login per: {}", loginRequest.getEmail());
-        logger.debug("Password fornita (primi caratteri): {}",
-                loginRequest.getPassword() != null && loginRequest.getPassword().length() > 0
-                        ? loginRequest.getPassword().substring(0, Math.min(3, loginRequest.getPassword().length()))
-                                + "..."
-                        : "null");
 
         try {
-            // Verifichiamo se l'utente esiste
-            User user = userRepository.findByEmail(loginRequest.getEmail())
-                    .orElseThrow(() -> {
-                        logger.warn("Login fallito: utente con email {} non trovato", loginRequest.getEmail());
-                        return new RuntimeException("Utente non trovato");
-                    });
-
-            logger.info("Utente trovato: {}. Password salvata (lunghezza: {})",
-                    user.getEmail(),
-                    user.getPassword() != null ? user.getPassword().length() : 0);
-            logger.debug("Password hash salvata: {}", user.getPassword());
-
-            // Log di tutti i dettagli dell'utente per debug
-            logger.info("Dettagli utente: ID={}, Email={}, FirstName={}, LastName={}, Name={}, Surname={}, Username={}",
-                    user.getId(), user.getEmail(), user.getFirstName(), user.getLastName(),
-                    user.getName(), user.getSurname(), user.getUsername());
-
-            try {
-                // Tentiamo l'autenticazione
-                logger.info("Tentativo di autenticazione con UsernamePasswordAuthenticationToken");
-                Authentication authentication = authenticationManager.authenticate(
-                        new UsernamePasswordAuthenticationToken(loginRequest.getEmail(), loginRequest.getPassword()));
-
-                logger.info("Autenticazione riuscita. Generazione token JWT...");
-                SecurityContextHolder.getContext().setAuthentication(authentication);
-                String jwt = jwtUtils.generateJwtToken(authentication);
-
-                UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
-                List<String> roles = userDetails.getAuthorities().stream()
-                        .map(item -> item.getAuthority())
-                        .collect(Collectors.toList());
-
-                logger.info("Ruoli utente: {}", roles);
-
-                // Log dettagliato dell'utente autenticato
-                logger.info("Dettagli utente autenticato: ID={}, Email={}, FirstName={}, LastName={}",
-                        userDetails.getId(), userDetails.getEmail(), userDetails.getFirstName(),
-                        userDetails.getLastName());
-
-                // Recupera l'utente completo dal database
-                User userFromDb = userRepository.findByEmail(userDetails.getUsername())
-                        .orElseThrow(() -> new RuntimeException("Utente non trovato nel DB"));
-
-                // Includi firstName e lastName nella risposta di login
-                JwtResponse response = new JwtResponse(
-                        jwt,
-                        userDetails.getId(),
-                        userFromDb.getFirstName(),
-                        userFromDb.getLastName(),
-                        userDetails.getEmail(),
-                        userFromDb.getPhone(),
-                        userFromDb.getCountry(),
-                        userFromDb.getCity(),
-                        userFromDb.getAddress(),
-                        userFromDb.getGender(),
-                        userFromDb.getProfileImage(),
-                        roles);
-
-                logger.info("Login riuscito per: {}", loginRequest.getEmail());
-                // Log dettagliato della risposta
-                logger.info("Risposta JWT: ID={}, Email={}, FirstName={}, LastName={}",
-                        response.getId(), response.getEmail(), response.getFirstName(), response.getLastName());
-                return ResponseEntity.ok(response);
-            } catch (Exception authEx) {
-                logger.error("Errore specifico durante l'autenticazione: {}", authEx.getMessage(), authEx);
-                logger.error("Tipo di errore: {}", authEx.getClass().getName());
-                return ResponseEntity
-                        .status(HttpStatus.UNAUTHORIZED)
-                        .body(new MessageResponse(
-                                "Credenziali non valide. Verifica email e password. Errore: " + authEx.getMessage()));
+            // Un solo accesso al DB: UserDetailsServiceImpl carica utente e ruoli insieme,
+            // e la risposta viene costruita dallo stesso record
+            Authentication authentication = authenticationManager.authenticate(
+                    new UsernamePasswordAuthenticationToken(loginRequest.getEmail(), loginRequest.getPassword()));
+
+            SecurityContextHolder.getContext().setAuthentication(authentication);
+            String jwt = jwtUtils.generateJwtToken(authentication);
+
+            UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
+            List<String> roles = userDetails.getAuthorities().stream()
+                    .map(item -> item.getAuthority())
+                    .collect(Collectors.toList());
+
+            JwtResponse response = new JwtResponse(
+                    jwt,
+                    userDetails.getId(),
+                    userDetails.getFirstName(),
+                    userDetails.getLastName(),
+                    userDetails.getEmail(),
+                    userDetails.getPhone(),
+                    userDetails.getCountry(),
+                    userDetails.getCity(),
+                    userDetails.getAddress(),
+                    userDetails.getGender(),
+                    userDetails.getProfileImage(),
+                    roles);
+            if (jwtUtils.isStateless()) {
+                response.setRefreshToken(jwtUtils.generateRefreshToken(userDetails));
             }
+
+            logger.info("Login riuscito per: {} (ID={}, ruoli={})", userDetails.getEmail(), userDetails.getId(),
+                    roles);
+            return ResponseEntity.ok(response);
+        } catch (AuthenticationException e) {
+            logger.warn("Login fallito per {}: {}", loginRequest.getEmail(), e.getMessage());
+            return ResponseEntity
+                    .status(HttpStatus.UNAUTHORIZED)
+                    .body(new MessageResponse("Credenziali non valide. Verifica email e password."));
         } catch (Exception e) {
-            logger.error("Errore durante l'autenticazione: {}", e.getMessage());
-            logger.error("Tipo di errore: {}", e.getClass().getName());
+            logger.error("Errore durante l'autenticazione: {}", e.getMessage(), e);
             return ResponseEntity
                     .status(HttpStatus.UNAUTHORIZED)
                     .body(new MessageResponse("Credenziali non valide. Verifica email e password."));
@@ -206,20 +210,95 @@ public class AuthController {
     }
 
     @PostMapping("/login")
-    public ResponseEntity<?> authenticateUserAlternative(@Valid @RequestBody LoginRequest loginRequest) {
-        return authenticateUser(loginRequest);
+    public CompletableFuture<ResponseEntity<?>> authenticateUserAlternative(
+            @Valid @RequestBody LoginRequest loginRequest, HttpServletRequest request) {
+        return authenticateUser(loginRequest, request);
+    }
+
+    @PostMapping("/signout")
+    public ResponseEntity<?> logoutUser(@RequestHeader(value = "Authorization", required = false) String authHeader,
+            @RequestBody(required = false) Map<String, String> body) {
+        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            return ResponseEntity.badRequest().body(new MessageResponse("Token mancante"));
+        }
+
+        String token = authHeader.substring(7);
+        Claims claims = jwtUtils.getValidatedClaims(token);
+        if (claims == null) {
+            // Token già scaduto o non valido: non c'è nulla da revocare
+            return ResponseEntity.ok(new MessageResponse("Logout effettuato"));
+        }
+
+        // L'access token resta revocato in memoria fino alla sua scadenza naturale
+        tokenCache.revoke(token, claims);
+
+        // Revoca anche il refresh token, se il client lo invia e appartiene allo stesso utente:
+        // questa revoca è nel database e sopravvive ai riavvii
+        String refreshToken = body != null ? body.get("refreshToken") : null;
+        if (refreshToken != null) {
+            Claims refreshClaims = jwtUtils.getValidatedClaims(refreshToken);
+            if (refreshClaims != null && JwtUtils.isRefreshToken(refreshClaims)
+                    && claims.getSubject().equals(refreshClaims.getSubject())) {
+                refreshTokenRevocations.revoke(refreshClaims);
+            }
+        }
+
+        SecurityContextHolder.clearContext();
+        logger.info("Logout effettuato per: {}", claims.getSubject());
+        return ResponseEntity.ok(new MessageResponse("Logout effettuato"));
+    }
+
+    // Rinnovo dell'access token in modalità stateless. L'utente viene riletto dal DB,
+    // quindi ruoli revocati o account eliminati hanno effetto al primo rinnovo.
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refreshToken(@RequestBody Map<String, String> body) {
+        String refreshToken = body.get("refreshToken");
+        if (refreshToken == null || refreshToken.isEmpty()) {
+            return ResponseEntity.badRequest().body(new MessageResponse("Refresh token mancante"));
+        }
+
+        Claims claims = jwtUtils.getValidatedClaims(refreshToken);
+        if (claims == null || !JwtUtils.isRefreshToken(claims)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(new MessageResponse("Refresh token non valido o scaduto"));
+        }
+
+        // Rotazione: il refresh token viene consumato prima di emettere la nuova coppia.
+        // Se un'altra richiesta lo ha già usato (o è stato revocato al logout) si risponde 401
+        if (!refreshTokenRevocations.revoke(claims)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(new MessageResponse("Refresh token revocato"));
+        }
+
+        UserDetailsImpl userDetails;
+        try {
+            userDetails = (UserDetailsImpl) userDetailsService.loadUserByUsername(claims.getSubject());
+        } catch (UsernameNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(new MessageResponse("Utente non più esistente"));
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("token", jwtUtils.generateJwtToken(userDetails));
+        response.put("refreshToken", jwtUtils.generateRefreshToken(userDetails));
+        response.put("roles", userDetails.getAuthorities().stream()
+                .map(authority -> authority.getAuthority())
+                .collect(Collectors.toList()));
+        return ResponseEntity.ok(response);
     }
 
     @PostMapping("/signup")
-    public ResponseEntity<?> registerUser(@Valid @RequestBody SignupRequest signUpRequest) {
+    public CompletableFuture<ResponseEntity<?>> registerUser(@Valid @RequestBody SignupRequest signUpRequest) {
+        return passwordHashingService.submit(() -> register(signUpRequest));
+    }
+
+    private ResponseEntity<?> register(SignupRequest signUpRequest) {
         logger.info("Richiesta di registrazione ricevuta: {}", signUpRequest.getEmail());
-        System.out.println("Richiesta ricevuta: " + signUpRequest);
 
         try {
             // Verifica che username e email non siano già in uso
             if (signUpRequest.getUsername() != null && userRepository.existsByUsername(signUpRequest.getUsername())) {
                 logger.warn("Tentativo di registrazione con username già in uso: {}", signUpRequest.getUsername());
-                System.out.println("Errore: Username già in uso!");
                 return ResponseEntity
                         .badRequest()
                         .body(new MessageResponse("Errore: Username già in uso!"));
@@ -227,7 +306,6 @@ public class AuthController {
 
             if (userRepository.existsByEmail(signUpRequest.getEmail())) {
                 logger.warn("Tentativo di registrazione con email già in uso: {}", signUpRequest.getEmail());
-                System.out.println("Errore: Email già registrata!");
                 return ResponseEntity
                         .badRequest()
                         .body(new MessageResponse("Errore: Email già in uso!"));
@@ -262,15 +340,8 @@ public class AuthController {
             user.setEmail(signUpRequest.getEmail());
             user.setPhone(signUpRequest.getPhone());
 
-            // Log della password prima della codifica
-            logger.debug("Password originale (primi caratteri): {}",
-                    signUpRequest.getPassword() != null && signUpRequest.getPassword().length() > 0 ? signUpRequest
-                            .getPassword().substring(0, Math.min(3, signUpRequest.getPassword().length())) + "..."
-                            : "null");
-
             // Codifica password
             String encodedPassword = encoder.encode(signUpRequest.getPassword());
-            logger.debug("Password codificata: {}", encodedPassword);
             user.setPassword(encodedPassword);
 
             user.setCountry(signUpRequest.getCountry());
@@ -289,63 +360,25 @@ public class AuthController {
 
             // Imposta esplicitamente la data di creazione
             user.setCreatedAt(java.time.LocalDateTime.now());
-            logger.info("Data di creazione impostata: {}", user.getCreatedAt());
+            logger.debug("Data di creazione impostata: {}", user.getCreatedAt());
 
             // Assegna i ruoli all'utente
             Set<String> strRoles = signUpRequest.getRole();
             Set<Role> roles = new HashSet<>();
 
-            // Verifica che ci siano ruoli disponibili nel DB
-            long rolesCount = roleRepository.count();
-            logger.info("Numero di ruoli disponibili nel database: {}", rolesCount);
-
-            if (rolesCount == 0) {
-                // Inizializza i ruoli se non esistono
-                logger.info("Nessun ruolo trovato nel DB, inizializzazione ruoli...");
-                roleRepository.save(new Role(ERole.ROLE_USER));
-                roleRepository.save(new Role(ERole.ROLE_ADMIN));
-                logger.info("Ruoli inizializzati con successo");
-            }
-
             if (strRoles == null || strRoles.isEmpty()) {
                 // Se non è specificato alcun ruolo, assegna ROLE_USER
-                Role userRole = roleRepository.findByName(ERole.ROLE_USER)
-                        .orElseThrow(() -> {
-                            logger.error("Ruolo USER non trovato.");
-                            return new RoleNotFoundException("Errore: Ruolo USER non trovato.");
-                        });
-                roles.add(userRole);
-                logger.info("Assegnato ruolo di default USER");
+                roles.add(roleRegistry.get(ERole.ROLE_USER));
             } else {
-                strRoles.forEach(role -> {
-                    logger.info("Elaborazione ruolo: {}", role);
-                    switch (role) {
-                        case "admin":
-                            Role adminRole = roleRepository.findByName(ERole.ROLE_ADMIN)
-                                    .orElseThrow(() -> {
-                                        logger.error("Ruolo ADMIN non trovato.");
-                                        return new RuntimeException("Errore: Ruolo ADMIN non trovato.");
-                                    });
-                            roles.add(adminRole);
-                            logger.info("Ruolo ADMIN aggiunto");
-                            break;
-                        default:
-                            Role userRole = roleRepository.findByName(ERole.ROLE_USER)
-                                    .orElseThrow(() -> {
-                                        logger.error("Ruolo USER non trovato.");
-                                        return new RuntimeException("Errore: Ruolo USER non trovato.");
-                                    });
-                            roles.add(userRole);
-                            logger.info("Ruolo USER aggiunto");
-                    }
-                });
+                strRoles.forEach(role -> roles.add(
+                        roleRegistry.get("admin".equals(role) ? ERole.ROLE_ADMIN : ERole.ROLE_USER)));
             }
 
             user.setRoles(roles);
             logger.info("Salvataggio utente: {} con ruoli: {}", user.getEmail(), roles);
 
             // Log per verificare i campi name e surname prima del salvataggio
-            logger.info("Campi name e surname prima del salvataggio: name={}, surname={}",
+            logger.debug("Campi name e surname prima del salvataggio: name={}, surname={}",
                     user.getName(), user.getSurname());
 
             userRepository.save(user);
@@ -354,7 +387,6 @@ public class AuthController {
             return ResponseEntity.ok(new MessageResponse("Utente registrato con successo!"));
         } catch (Exception e) {
             logger.error("Errore durante la registrazione: {}", e.getMessage(), e);
-            e.printStackTrace();
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(new MessageResponse("Errore interno del server: " + e.getMessage()));
         }
@@ -362,9 +394,6 @@ public class AuthController {
 
     @GetMapping("/profile")
     public ResponseEntity<?> getUserProfile(@RequestHeader(value = "Authorization", required = false) String token) {
-        logger.info("GET /profile - Richiesta profilo utente ricevuta");
-        logger.info("Headers - Authorization: {}", token);
-
         try {
             if (token == null || !token.startsWith("Bearer ")) {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
@@ -376,7 +405,7 @@ public class AuthController {
 
             // Estrai l'email dell'utente dal token
             String userEmail = jwtUtils.getUserNameFromJwtToken(jwt);
-            logger.info("Email estratta dal token: {}", userEmail);
+            logger.debug("Email estratta dal token: {}", userEmail);
 
             // Cerca l'utente nel database
             User user = userRepository.findByEmail(userEmail)
@@ -424,9 +453,7 @@ public class AuthController {
     @PutMapping("/profile")
     public ResponseEntity<?> updateUserProfile(@RequestBody Map<String, Object> updateRequest,
             @RequestHeader(value = "Authorization", required = false) String token) {
-        logger.info("PUT /profile - Richiesta aggiornamento profilo ricevuta");
-        logger.info("Request body: {}", updateRequest);
-        logger.info("Headers - Authorization: {}", token);
+        logger.debug("Richiesta aggiornamento profilo: {}", LogRedactor.redact(updateRequest));
 
         try {
             if (token == null || !token.startsWith("Bearer ")) {
@@ -439,7 +466,7 @@ public class AuthController {
 
             // Estrai l'email dell'utente dal token
             String userEmail = jwtUtils.getUserNameFromJwtToken(jwt);
-            logger.info("Email estratta dal token: {}", userEmail);
+            logger.debug("Email estratta dal token: {}", userEmail);
 
             // Cerca l'utente nel database
             User user = userRepository.findByEmail(userEmail)
@@ -503,6 +530,8 @@ public class AuthController {
 
                 // Salva le modifiche nel database
                 userRepository.save(user);
+                eventPublisher.publishEvent(new UserSecurityChangedEvent(user.getEmail(),
+                        UserSecurityChangedEvent.Reason.PROFILE_UPDATED));
                 logger.info("Profilo utente aggiornato con successo: {}", user.getEmail());
             } else {
                 logger.info("Nessun campo da aggiornare");
@@ -557,11 +586,12 @@ public class AuthController {
 
             // Codifica la nuova password
             String encodedPassword = encoder.encode(newPassword);
-            logger.info("Password codificata: {}", encodedPassword);
 
             // Aggiorniamo la password
             user.setPassword(encodedPassword);
             userRepository.save(user);
+            eventPublisher.publishEvent(
+                    new UserSecurityChangedEvent(user.getEmail(), UserSecurityChangedEvent.Reason.PASSWORD_CHANGED));
 
             logger.info("Password reimpostata con successo per: {}", email);
             return ResponseEntity.ok(new MessageResponse("Password reimpostata con successo"));
@@ -638,11 +668,12 @@ public class AuthController {
 
             // Codifica la nuova password
             String encodedPassword = encoder.encode(password);
-            logger.info("Password codificata generata per {}: {}", email, encodedPassword);
 
             // Aggiorniamo la password
             user.setPassword(encodedPassword);
             userRepository.save(user);
+            eventPublisher.publishEvent(
+                    new UserSecurityChangedEvent(user.getEmail(), UserSecurityChangedEvent.Reason.PASSWORD_CHANGED));
 
             logger.info("Password reimpostata con successo per: {}", email);
             return ResponseEntity.ok(new MessageResponse("Password reimpostata con successo a '" + password + "'"));
@@ -711,9 +742,8 @@ public class AuthController {
         long userCount = userRepository.count();
         response.put("userCount", userCount);
 
-        // Conteggio ruoli nel database
-        long roleCount = roleRepository.count();
-        response.put("roleCount", roleCount);
+        // Ruoli disponibili (caricati all'avvio)
+        response.put("roleCount", roleRegistry.all().size());
 
         // Informazioni su datasource e stato database
         try {
@@ -811,76 +841,41 @@ public class AuthController {
         }
     }
 
+    // Reimposta la password dei profili di test: il lavoro gira in background su PasswordResetJob,
+    // l'avanzamento si legge da GET /api/users/password-reset-job
     @GetMapping("/reset-all-passwords")
     public ResponseEntity<?> resetAllPasswords() {
         logger.info("=== Richiesta di reimpostazione password predefinite per test ===");
 
-        Map<String, Object> response = new HashMap<>();
-        response.put("status", "success");
-
-        try {
-            // Elenco email per cui reimpostare la password
-            String[] emails = {
-                    "admin@rnbmx.com",
-                    "lucacapassona@gmail.com",
-                    "test@gmail.com"
-            };
-
-            // Password predefinita per tutti
-            String defaultPassword = "password123";
-            String encodedPassword = encoder.encode(defaultPassword);
-
-            List<Map<String, Object>> resetUsers = new ArrayList<>();
-
-            for (String email : emails) {
-                Map<String, Object> userStatus = new HashMap<>();
-                userStatus.put("email", email);
+        // Elenco email per cui reimpostare la password
+        List<String> emails = Arrays.asList(
+                "admin@rnbmx.com",
+                "lucacapassona@gmail.com",
+                "test@gmail.com");
 
-                Optional<User> userOpt = userRepository.findByEmail(email);
+        // Password predefinita per tutti
+        String defaultPassword = "password123";
 
-                if (userOpt.isPresent()) {
-                    User user = userOpt.get();
-
-                    // Salva la password precedente per riferimento
-                    String oldPassword = user.getPassword();
-                    userStatus.put("oldPasswordHash", oldPassword);
-
-                    // Imposta la nuova password
-                    user.setPassword(encodedPassword);
-                    userRepository.save(user);
-
-                    userStatus.put("status", "reset");
-                    userStatus.put("newPasswordHash", encodedPassword);
-
-                    logger.info("Password reimpostata per: {}", email);
-                } else {
-                    userStatus.put("status", "user_not_found");
-                    logger.warn("Utente con email {} non trovato nel database", email);
-                }
-
-                resetUsers.add(userStatus);
-            }
-
-            response.put("resetUsers", resetUsers);
+        try {
+            Map<String, Object> response = new HashMap<>(passwordResetJob.start(defaultPassword, emails, 0));
+            response.put("emails", emails);
             response.put("defaultPassword", defaultPassword);
             response.put("loginInstructions",
                     "Per effettuare il login, utilizza una delle email con la password indicata");
-
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            logger.error("Errore durante la reimpostazione delle password: {}", e.getMessage());
-            response.put("status", "error");
-            response.put("message", "Errore: " + e.getMessage());
-            return ResponseEntity.status(500).body(response);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(new MessageResponse(e.getMessage()));
         }
     }
 
     @PostMapping("/change-password")
-    public ResponseEntity<?> changePassword(@RequestBody Map<String, String> passwordData,
+    public CompletableFuture<ResponseEntity<?>> changePassword(@RequestBody Map<String, String> passwordData,
             @RequestHeader(value = "Authorization", required = false) String token) {
-        logger.info("POST /change-password - Richiesta cambio password ricevuta");
-        logger.info("Authorization Header: {}",
-                token != null ? token.substring(0, Math.min(20, token.length())) + "..." : "null");
+        return passwordHashingService.submit(() -> updatePassword(passwordData, token));
+    }
+
+    private ResponseEntity<?> updatePassword(Map<String, String> passwordData, String token) {
+        logger.debug("Richiesta cambio password, Authorization: {}", LogRedactor.redactToken(token));
 
         try {
             if (token == null || !token.startsWith("Bearer ")) {
@@ -891,12 +886,11 @@ public class AuthController {
 
             // Estrai il token
             String jwt = token.substring(7);
-            logger.info("Token JWT estratto, lunghezza: {}", jwt.length());
 
             try {
                 // Estrai l'email dell'utente dal token
                 String userEmail = jwtUtils.getUserNameFromJwtToken(jwt);
-                logger.info("Email estratta dal token: {}", userEmail);
+                logger.debug("Email estratta dal token: {}", userEmail);
 
                 // Cerca l'utente nel database
                 User user = userRepository.findByEmail(userEmail)
@@ -940,6 +934,8 @@ public class AuthController {
                 String encodedPassword = encoder.encode(newPassword);
                 user.setPassword(encodedPassword);
                 userRepository.save(user);
+                eventPublisher.publishEvent(new UserSecurityChangedEvent(user.getEmail(),
+                        UserSecurityChangedEvent.Reason.PASSWORD_CHANGED));
 
                 // Crea un nuovo token JWT per l'utente dopo l'aggiornamento della password
                 UserDetailsImpl userDetails = UserDetailsImpl.build(user);
@@ -1003,24 +999,7 @@ public class AuthController {
             User user = userOptional.get();
             logger.info("Utente trovato: ID={}, Email={}", user.getId(), user.getEmail());
 
-            // Verifica che ci siano ruoli disponibili nel DB
-            long rolesCount = roleRepository.count();
-            logger.info("Numero di ruoli disponibili nel database: {}", rolesCount);
-
-            if (rolesCount == 0) {
-                // Inizializza i ruoli se non esistono
-                logger.info("Nessun ruolo trovato nel DB, inizializzazione ruoli...");
-                roleRepository.save(new Role(ERole.ROLE_USER));
-                roleRepository.save(new Role(ERole.ROLE_ADMIN));
-                logger.info("Ruoli inizializzati con successo");
-            }
-
-            // Trova il ruolo admin
-            Role adminRole = roleRepository.findByName(ERole.ROLE_ADMIN)
-                    .orElseThrow(() -> {
-                        logger.error("Ruolo ADMIN non trovato nel database");
-                        return new RuntimeException("Errore: Ruolo ADMIN non trovato");
-                    });
+            Role adminRole = roleRegistry.get(ERole.ROLE_ADMIN);
 
             // Verifica se l'utente ha già il ruolo admin
             boolean hasAdminRole = user.getRoles().stream()
@@ -1034,6 +1013,8 @@ public class AuthController {
             // Aggiungi il ruolo admin
             user.getRoles().add(adminRole);
             userRepository.save(user);
+            eventPublisher.publishEvent(
+                    new UserSecurityChangedEvent(user.getEmail(), UserSecurityChangedEvent.Reason.ROLES_CHANGED));
 
             logger.info("Ruolo ADMIN assegnato con successo all'utente {}", username);
 
@@ -1091,11 +1072,13 @@ public class AuthController {
     }
 
     @PostMapping("/debug-login")
-    public ResponseEntity<?> debugLogin(@RequestBody Map<String, Object> loginRequest) {
+    public ResponseEntity<?> debugLogin(@RequestBody Map<String, Object> loginRequest,
+            HttpServletRequest request) {
         logger.info("POST /api/auth/debug-login - Richiesta di login debug ricevuta");
-        logger.info("Parametri ricevuti: {}", loginRequest);
+        logger.debug("Parametri ricevuti: {}", LogRedactor.redact(loginRequest));
 
         String email = (String) loginRequest.get("email");
+        loginRateLimiter.acquire(request.getRemoteAddr(), email);
         boolean isDebug = loginRequest.containsKey("debug") && Boolean.TRUE.equals(loginRequest.get("debug"));
 
         if (email == null || email.trim().isEmpty()) {
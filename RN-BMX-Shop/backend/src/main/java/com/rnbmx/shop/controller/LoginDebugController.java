@@ -11,6 +11,9 @@ import org.springframework.web.bind.annotation.*;
 import com.rnbmx.shop.model.User;
 import com.rnbmx.shop.repository.UserRepository;
 import com.rnbmx.shop.payload.response.MessageResponse;
+import com.rnbmx.shop.security.services.LoginRateLimiter;
+
+import javax.servlet.http.HttpServletRequest;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -34,6 +37,9 @@ public class LoginDebugController {
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    @Autowired
+    private LoginRateLimiter loginRateLimiter;
+
     @GetMapping("/users")
     public ResponseEntity<?> listUsers() {
         logger.info("Richiesta elenco utenti per debug login");
@@ -127,9 +133,11 @@ public class LoginDebugController {
     @GetMapping("/check-password")
     public ResponseEntity<?> checkPassword(
             @RequestParam String email,
-            @RequestParam String password) {
+            @RequestParam String password,
+            HttpServletRequest request) {
 
         logger.info("Verifica corrispondenza password. Email: {}", email);
+        loginRateLimiter.acquire(request.getRemoteAddr(), email);
 
         try {
             Optional<User> userOpt = userRepository.findByEmail(email);
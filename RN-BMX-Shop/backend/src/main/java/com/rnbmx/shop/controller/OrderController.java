@@ -1,10 +1,28 @@
 package com.rnbmx.shop.controller;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import com.rnbmx.shop.model.OrderStatus;
+import com.rnbmx.shop.payload.request.OrderRequest;
+import com.rnbmx.shop.payload.response.MessageResponse;
+import com.rnbmx.shop.payload.response.OrderResponse;
+import com.rnbmx.shop.security.services.UserDetailsImpl;
+import com.rnbmx.shop.service.FlashSaleService;
+import com.rnbmx.shop.service.OrderService;
+
+import javax.validation.Valid;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
 
 @CrossOrigin(origins = "http://localhost:3000", maxAge = 3600, allowCredentials = "true")
 @RestController
@@ -13,196 +31,151 @@ public class OrderController {
 
         private static final Logger logger = LoggerFactory.getLogger(OrderController.class);
 
+        @Autowired
+        private OrderService orderService;
+
+        @Autowired
+        private FlashSaleService flashSaleService;
+
         @PostMapping
-        public ResponseEntity<?> createOrder(@RequestBody Object orderRequest,
-                        @RequestHeader(value = "Authorization", required = false) String token) {
-                logger.info("POST /api/orders - Richiesta di creazione ordine ricevuta");
-                logger.info("Request body: {}", orderRequest);
-                logger.info("Headers - Authorization: {}", token);
-
-                // Risposta mock per simulare la creazione dell'ordine
-                String orderResponse = "{"
-                                + "\"id\": " + System.currentTimeMillis() + ","
-                                + "\"orderDate\": \"" + java.time.LocalDateTime.now() + "\","
-                                + "\"status\": \"PROCESSING\","
-                                + "\"totalAmount\": 199.99,"
-                                + "\"paymentId\": \"pm_" + System.currentTimeMillis() + "\","
-                                + "\"shippingAddress\": \"Centro Direzionale, Isola E7, Napoli, Italia\","
-                                + "\"phone\": \"+39 123 456 7890\","
-                                + "\"paymentMethod\": \"CARTA\","
-                                + "\"orderItems\": ["
-                                + "{"
-                                + "\"id\": 1,"
-                                + "\"productId\": 1,"
-                                + "\"productName\": \"BMX Freestyle\","
-                                + "\"quantity\": 1,"
-                                + "\"price\": 199.99"
-                                + "}"
-                                + "],"
-                                + "\"message\": \"Ordine creato con successo\""
-                                + "}";
-
-                logger.info("Risposta di creazione ordine inviata: {}", orderResponse);
-                return ResponseEntity.ok().body(orderResponse);
+        public ResponseEntity<?> createOrder(@Valid @RequestBody OrderRequest orderRequest) {
+                UserDetailsImpl user = currentUser();
+                logger.debug("Richiesta di creazione ordine da {}: {} prodotti", user.getEmail(),
+                                orderRequest.getItems().size());
+
+                // Prodotti in flash sale: ammissione in coda e ticket immediato, la scrittura avviene a lotti
+                if (flashSaleService.handles(orderRequest)) {
+                        FlashSaleService.Ticket ticket = flashSaleService.admit(user, orderRequest);
+                        return ResponseEntity.status(HttpStatus.ACCEPTED).body(ticket.toResponse());
+                }
+
+                OrderResponse order = orderService.createOrder(user, orderRequest);
+                return ResponseEntity.status(HttpStatus.CREATED).body(order);
         }
 
+        // Stato di un ticket flash sale: QUEUED, CONFIRMED (con orderId) o REJECTED
+        @GetMapping("/tickets/{ticketId}")
+        public ResponseEntity<?> getTicket(@PathVariable String ticketId) {
+                Long userId = currentUser().getId();
+                return flashSaleService.getTicket(ticketId)
+                                .filter(ticket -> ticket.isOwnedBy(userId))
+                                .<ResponseEntity<?>>map(ticket -> ResponseEntity.ok(ticket.toResponse()))
+                                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                                                .body(new MessageResponse("Ticket non trovato")));
+        }
+
+        // Paginazione keyset su richiesta (limit/cursor); senza parametri resta la lista completa
         @GetMapping("/my-orders")
-        public ResponseEntity<?> getUserOrders(@RequestHeader(value = "Authorization", required = false) String token) {
-                logger.info("GET /api/orders/my-orders - Richiesta ordini utente ricevuta");
-                logger.info("Headers - Authorization: {}", token);
-
-                // Risposta mock per simulare gli ordini dell'utente
-                String ordersResponse = "["
-                                + "{"
-                                + "\"id\": " + (System.currentTimeMillis() - 86400000) + ","
-                                + "\"orderDate\": \"" + java.time.LocalDateTime.now().minusDays(1) + "\","
-                                + "\"status\": \"SHIPPED\","
-                                + "\"totalAmount\": 199.99,"
-                                + "\"paymentId\": \"pm_" + (System.currentTimeMillis() - 86400000) + "\","
-                                + "\"shippingAddress\": \"Centro Direzionale, Isola E7, Napoli, Italia\","
-                                + "\"phone\": \"+39 123 456 7890\","
-                                + "\"paymentMethod\": \"CARTA\","
-                                + "\"orderItems\": ["
-                                + "{"
-                                + "\"id\": 1,"
-                                + "\"productId\": 1,"
-                                + "\"productName\": \"BMX Freestyle\","
-                                + "\"quantity\": 1,"
-                                + "\"price\": 199.99"
-                                + "}"
-                                + "]"
-                                + "},"
-                                + "{"
-                                + "\"id\": " + System.currentTimeMillis() + ","
-                                + "\"orderDate\": \"" + java.time.LocalDateTime.now() + "\","
-                                + "\"status\": \"PROCESSING\","
-                                + "\"totalAmount\": 299.99,"
-                                + "\"paymentId\": \"pm_" + System.currentTimeMillis() + "\","
-                                + "\"shippingAddress\": \"Centro Direzionale, Isola E7, Napoli, Italia\","
-                                + "\"phone\": \"+39 123 456 7890\","
-                                + "\"paymentMethod\": \"CARTA\","
-                                + "\"orderItems\": ["
-                                + "{"
-                                + "\"id\": 2,"
-                                + "\"productId\": 2,"
-                                + "\"productName\": \"BMX Bike Pro XL\","
-                                + "\"quantity\": 1,"
-                                + "\"price\": 249.99"
-                                + "},"
-                                + "{"
-                                + "\"id\": 3,"
-                                + "\"productId\": 3,"
-                                + "\"productName\": \"Casco Protettivo Standard\","
-                                + "\"quantity\": 1,"
-                                + "\"price\": 49.99"
-                                + "}"
-                                + "]"
-                                + "}"
-                                + "]";
-
-                logger.info("Risposta ordini utente inviata");
-                return ResponseEntity.ok().body(ordersResponse);
+        public ResponseEntity<?> getUserOrders(@RequestParam(required = false) Integer limit,
+                        @RequestParam(required = false) String cursor) {
+                Long userId = currentUser().getId();
+                if (limit == null && cursor == null) {
+                        return ResponseEntity.ok(orderService.getUserOrders(userId));
+                }
+                try {
+                        return ResponseEntity.ok(orderService.getOrderPage(userId, null, null, null, limit, cursor));
+                } catch (IllegalArgumentException e) {
+                        logger.warn("Parametri di paginazione non validi: {}", e.getMessage());
+                        return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+                }
         }
 
+        // Un ordine di un altro utente risulta inesistente, salvo per gli admin
         @GetMapping("/{id}")
-        public ResponseEntity<?> getOrderById(@PathVariable Long id,
-                        @RequestHeader(value = "Authorization", required = false) String token) {
-                logger.info("GET /api/orders/{} - Richiesta dettagli ordine ricevuta", id);
-                logger.info("Headers - Authorization: {}", token);
-
-                // Risposta mock per simulare i dettagli di un ordine
-                String orderDetails = "{"
-                                + "\"id\": " + id + ","
-                                + "\"orderDate\": \"" + java.time.LocalDateTime.now() + "\","
-                                + "\"status\": \"PROCESSING\","
-                                + "\"totalAmount\": 199.99,"
-                                + "\"paymentId\": \"pm_" + id + "\","
-                                + "\"shippingAddress\": \"Centro Direzionale, Isola E7, Napoli, Italia\","
-                                + "\"phone\": \"+39 123 456 7890\","
-                                + "\"paymentMethod\": \"CARTA\","
-                                + "\"orderItems\": ["
-                                + "{"
-                                + "\"id\": 1,"
-                                + "\"productId\": 1,"
-                                + "\"productName\": \"BMX Freestyle\","
-                                + "\"quantity\": 1,"
-                                + "\"price\": 199.99"
-                                + "}"
-                                + "]"
-                                + "}";
-
-                logger.info("Risposta dettagli ordine inviata");
-                return ResponseEntity.ok().body(orderDetails);
+        public ResponseEntity<?> getOrderById(@PathVariable Long id) {
+                UserDetailsImpl user = currentUser();
+                boolean admin = user.getAuthorities().stream()
+                                .anyMatch(authority -> authority.getAuthority().equals("ROLE_ADMIN"));
+
+                Optional<OrderResponse> order = orderService.getOrder(id)
+                                .filter(o -> admin || o.getUserId().equals(user.getId()));
+                if (order.isEmpty()) {
+                        return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                                        .body(new MessageResponse("Ordine non trovato"));
+                }
+                return ResponseEntity.ok(order.get());
         }
 
+        // Filtri facoltativi: stato e intervallo di date [from, to) in formato ISO (2024-05-01T00:00:00)
         @GetMapping("/admin/all")
         @PreAuthorize("hasRole('ADMIN')")
-        public ResponseEntity<?> getAllOrders(@RequestHeader(value = "Authorization", required = false) String token) {
-                logger.info("GET /api/orders/admin/all - Richiesta tutti gli ordini ricevuta");
-                logger.info("Headers - Authorization: {}", token);
-
-                // Risposta mock per simulare tutti gli ordini (solo per admin)
-                String allOrdersResponse = "["
-                                + "{"
-                                + "\"id\": " + (System.currentTimeMillis() - 86400000) + ","
-                                + "\"userId\": 1,"
-                                + "\"username\": \"admin\","
-                                + "\"email\": \"admin@example.com\","
-                                + "\"fullName\": \"Admin User\","
-                                + "\"phoneNumber\": \"+39 123 456 7890\","
-                                + "\"shippingAddress\": \"Centro Direzionale, Isola E7, Napoli, Italia\","
-                                + "\"paymentMethod\": \"Credit Card\","
-                                + "\"paymentDetails\": \"{\\\"cardNumber\\\":\\\"**** **** **** 1234\\\",\\\"cardHolder\\\":\\\"Admin User\\\"}\","
-                                + "\"totalAmount\": 299.99,"
-                                + "\"total\": 299.99,"
-                                + "\"shippingCost\": 5.99,"
-                                + "\"status\": \"COMPLETED\","
-                                + "\"orderDate\": \"" + java.time.LocalDateTime.now().minusDays(1) + "\","
-                                + "\"createdAt\": \"2023-06-15T10:30:00\","
-                                + "\"updatedAt\": \"2023-06-15T10:30:00\""
-                                + "},"
-                                + "{"
-                                + "\"id\": " + System.currentTimeMillis() + ","
-                                + "\"userId\": 2,"
-                                + "\"username\": \"user\","
-                                + "\"email\": \"user@example.com\","
-                                + "\"fullName\": \"Regular User\","
-                                + "\"phoneNumber\": \"+39 098 765 4321\","
-                                + "\"shippingAddress\": \"Centro Direzionale, Isola E7, Napoli, Italia\","
-                                + "\"paymentMethod\": \"PayPal\","
-                                + "\"paymentDetails\": \"{\\\"email\\\":\\\"user@example.com\\\"}\","
-                                + "\"totalAmount\": 149.99,"
-                                + "\"total\": 149.99,"
-                                + "\"shippingCost\": 5.99,"
-                                + "\"status\": \"SHIPPED\","
-                                + "\"orderDate\": \"" + java.time.LocalDateTime.now() + "\","
-                                + "\"createdAt\": \"2023-06-10T14:20:00\","
-                                + "\"updatedAt\": \"2023-06-11T09:15:00\""
-                                + "}"
-                                + "]";
-
-                logger.info("Risposta tutti gli ordini inviata");
-                return ResponseEntity.ok().body(allOrdersResponse);
+        public ResponseEntity<?> getAllOrders(@RequestParam(required = false) Integer limit,
+                        @RequestParam(required = false) String cursor,
+                        @RequestParam(required = false) String status,
+                        @RequestParam(required = false)
+                        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                        @RequestParam(required = false)
+                        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+                if (limit == null && cursor == null && status == null && from == null && to == null) {
+                        return ResponseEntity.ok(orderService.getAllOrders());
+                }
+                try {
+                        OrderStatus statusFilter = status != null
+                                        ? OrderStatus.valueOf(status.trim().toUpperCase())
+                                        : null;
+                        return ResponseEntity.ok(
+                                        orderService.getOrderPage(null, statusFilter, from, to, limit, cursor));
+                } catch (IllegalArgumentException e) {
+                        logger.warn("Parametri di paginazione non validi: {}", e.getMessage());
+                        return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+                }
+        }
+
+        @GetMapping("/admin/stats")
+        @PreAuthorize("hasRole('ADMIN')")
+        public ResponseEntity<?> getOrderStats() {
+                return ResponseEntity.ok(orderService.getStats());
+        }
+
+        @PostMapping("/admin/flash-sales/{productId}")
+        @PreAuthorize("hasRole('ADMIN')")
+        public ResponseEntity<?> startFlashSale(@PathVariable Long productId) {
+                try {
+                        return ResponseEntity.ok(flashSaleService.start(productId));
+                } catch (IllegalStateException e) {
+                        return ResponseEntity.status(HttpStatus.CONFLICT).body(new MessageResponse(e.getMessage()));
+                }
+        }
+
+        @DeleteMapping("/admin/flash-sales/{productId}")
+        @PreAuthorize("hasRole('ADMIN')")
+        public ResponseEntity<?> stopFlashSale(@PathVariable Long productId) {
+                return flashSaleService.stop(productId)
+                                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                                                .body(new MessageResponse(
+                                                                "Nessuna flash sale attiva per il prodotto")));
+        }
+
+        @GetMapping("/admin/flash-sales")
+        @PreAuthorize("hasRole('ADMIN')")
+        public ResponseEntity<?> getFlashSales() {
+                return ResponseEntity.ok(flashSaleService.getStats());
         }
 
         @PutMapping("/admin/{id}/status")
         @PreAuthorize("hasRole('ADMIN')")
         public ResponseEntity<?> updateOrderStatus(
                         @PathVariable Long id,
-                        @RequestBody Object statusRequest,
-                        @RequestHeader(value = "Authorization", required = false) String token) {
-                logger.info("PUT /api/orders/admin/{}/status - Richiesta aggiornamento stato ordine", id);
-                logger.info("Request body: {}", statusRequest);
-                logger.info("Headers - Authorization: {}", token);
-
-                // Risposta mock per simulare l'aggiornamento dello stato dell'ordine
-                String updateResponse = "{"
-                                + "\"id\": " + id + ","
-                                + "\"status\": \"SHIPPED\","
-                                + "\"message\": \"Stato ordine aggiornato con successo\""
-                                + "}";
-
-                logger.info("Risposta aggiornamento stato ordine inviata");
-                return ResponseEntity.ok().body(updateResponse);
+                        @RequestBody Map<String, String> statusRequest) {
+                logger.debug("Aggiornamento stato ordine {}: {}", id, statusRequest);
+
+                OrderStatus status;
+                try {
+                        status = OrderStatus.valueOf(String.valueOf(statusRequest.get("status")));
+                } catch (IllegalArgumentException e) {
+                        return ResponseEntity.badRequest().body(
+                                        new MessageResponse("Stato ordine non valido: " + statusRequest.get("status")));
+                }
+
+                return orderService.updateStatus(id, status)
+                                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                                                .body(new MessageResponse("Ordine non trovato")));
+        }
+
+        private UserDetailsImpl currentUser() {
+                Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+                return (UserDetailsImpl) authentication.getPrincipal();
         }
-}
\ No newline at end of file
+}
@@ -4,6 +4,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import com.rnbmx.shop.logging.LogRedactor;
 
 @CrossOrigin(origins = "http://localhost:3000", maxAge = 3600, allowCredentials = "true")
 @RestController
@@ -16,9 +17,8 @@ public class PaymentController {
     @PostMapping("/process")
     public ResponseEntity<?> processPayment(@RequestBody Object paymentRequest,
             @RequestHeader(value = "Authorization", required = false) String token) {
-        logger.info("POST /process - Richiesta di pagamento ricevuta");
-        logger.info("Request body: {}", paymentRequest);
-        logger.info("Headers - Authorization: {}", token);
+        logger.info("Richiesta di pagamento ricevuta, Authorization: {}", LogRedactor.redactToken(token));
+        logger.debug("Request body: {}", paymentRequest);
 
         // Risposta mock per simulare l'elaborazione del pagamento
         String paymentResponse = "{"
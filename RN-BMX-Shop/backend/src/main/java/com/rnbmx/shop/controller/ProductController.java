@@ -2,19 +2,33 @@ package com.rnbmx.shop.controller;
 
 import com.rnbmx.shop.model.Product;
 import com.rnbmx.shop.model.Category;
+import com.rnbmx.shop.logging.LogRedactor;
+import com.rnbmx.shop.service.CatalogResponseCache;
+import com.rnbmx.shop.service.CatalogSnapshot;
 import com.rnbmx.shop.service.ProductService;
 import com.rnbmx.shop.repository.CategoryRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.math.BigDecimal;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
 import java.util.stream.Collectors;
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 @CrossOrigin(origins = {
@@ -31,23 +45,40 @@ public class ProductController {
     @Autowired
     private CategoryRepository categoryRepository;
 
-    @GetMapping
-    public ResponseEntity<?> getAllProducts(@RequestHeader(value = "Authorization", required = false) String token) {
-        logger.info("GET /api/products - Richiesta tutti i prodotti");
-        logger.info("Headers - Authorization: {}", token);
+    @Autowired
+    private CatalogResponseCache responseCache;
+
+    // Con 0 il browser riusa la copia locale solo dopo una rivalidazione (304)
+    @Value("${bmx.app.catalogMaxAgeSeconds:0}")
+    private long catalogMaxAgeSeconds;
 
+    @GetMapping
+    public ResponseEntity<?> getAllProducts(@RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String direction,
+            @RequestParam(required = false) String view,
+            ServletWebRequest webRequest) {
         try {
-            List<Product> products = productService.getAllProducts();
-            logger.info("Recuperati {} prodotti", products.size());
-
-            // Log dettagliato dei prodotti recuperati
-            for (Product product : products) {
-                logger.debug("Prodotto: ID={}, Nome={}, Categoria={}, Stock={}, ImageUrl={}",
-                        product.getId(), product.getName(), product.getCategory(),
-                        product.getStockQuantity(), product.getImageUrl());
+            if (isCatalogNotModified(webRequest, CatalogSnapshot::getFingerprint)) {
+                return catalogNotModified();
+            }
+
+            // Paginazione keyset su richiesta; senza parametri resta la lista completa
+            if (limit != null || cursor != null || sort != null) {
+                return catalogResponse(productService.getProductPage(null, limit, cursor, sort, direction));
             }
 
-            return ResponseEntity.ok(products);
+            // Di default le card; view=full restituisce le entità complete (es. dashboard admin)
+            if (isFullView(view)) {
+                return cachedCatalogResponse("products:full", CatalogSnapshot::getFingerprint,
+                        CatalogSnapshot::getProducts, webRequest);
+            }
+            return cachedCatalogResponse("products:cards", CatalogSnapshot::getFingerprint,
+                    CatalogSnapshot::getProductCards, webRequest);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Parametri di paginazione non validi: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
         } catch (Exception e) {
             logger.error("Errore nel recupero di tutti i prodotti: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -56,15 +87,17 @@ public class ProductController {
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<?> getProductById(@PathVariable Long id,
-            @RequestHeader(value = "Authorization", required = false) String token) {
-        logger.info("GET /api/products/{} - Richiesta prodotto", id);
-        logger.info("Headers - Authorization: {}", token);
+    public ResponseEntity<?> getProductById(@PathVariable Long id, ServletWebRequest webRequest) {
+        // La rivalidazione avviene prima della lettura dal database
+        if (isCatalogNotModified(webRequest, snapshot -> snapshot.getProductFingerprint(id))) {
+            productService.recordProductView(id);
+            return catalogNotModified();
+        }
 
         Optional<Product> product = productService.getProductById(id);
         if (product.isPresent()) {
-            logger.info("Prodotto con ID {} trovato e restituito", id);
-            return ResponseEntity.ok(product.get());
+            productService.recordProductView(id);
+            return catalogResponse(product.get());
         }
 
         logger.warn("Prodotto con ID {} non trovato", id);
@@ -73,43 +106,69 @@ public class ProductController {
 
     @GetMapping("/featured")
     public ResponseEntity<?> getFeaturedProducts(
-            @RequestHeader(value = "Authorization", required = false) String token) {
-        logger.info("GET /api/products/featured - Richiesta prodotti in evidenza");
-        logger.info("Headers - Authorization: {}", token);
-        return ResponseEntity.ok(productService.getFeaturedProducts());
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String direction,
+            ServletWebRequest webRequest) {
+        if (isCatalogNotModified(webRequest, CatalogSnapshot::getFeaturedFingerprint)) {
+            return catalogNotModified();
+        }
+        if (limit == null && sort == null) {
+            return cachedCatalogResponse("featured", CatalogSnapshot::getFeaturedFingerprint,
+                    CatalogSnapshot::getFeaturedProducts, webRequest);
+        }
+        return catalogResponse(productService.getFeaturedProducts(limit, sort, direction));
     }
 
     @GetMapping("/category/{category}")
     public ResponseEntity<?> getProductsByCategory(@PathVariable String category,
-            @RequestHeader(value = "Authorization", required = false) String token) {
-        logger.info("GET /api/products/category/{} - Richiesta prodotti per categoria", category);
-        logger.info("Headers - Authorization: {}", token);
-
-        Optional<Category> categoryObj = categoryRepository.findByName(category);
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String direction,
+            @RequestParam(required = false) String view,
+            ServletWebRequest webRequest) {
+        // La categoria si risolve dallo snapshot: l'ETag dipende solo dai suoi prodotti
+        Optional<Category> categoryObj = productService.getCategoryByName(category);
         if (categoryObj.isEmpty()) {
             logger.warn("Categoria {} non trovata", category);
             return ResponseEntity.notFound().build();
         }
+        if (isCatalogNotModified(webRequest, snapshot -> snapshot.getCategoryFingerprint(categoryObj.get()))) {
+            return catalogNotModified();
+        }
 
-        List<Product> products = productService.getProductsByCategory(categoryObj.get());
-        return ResponseEntity.ok(products);
+        if (limit != null || cursor != null || sort != null) {
+            try {
+                return catalogResponse(
+                        productService.getProductPage(categoryObj.get(), limit, cursor, sort, direction));
+            } catch (IllegalArgumentException e) {
+                logger.warn("Parametri di paginazione non validi: {}", e.getMessage());
+                return ResponseEntity.badRequest().body(e.getMessage());
+            }
+        }
+
+        Category found = categoryObj.get();
+        if (isFullView(view)) {
+            return cachedCatalogResponse("category:" + found.getId() + ":full",
+                    snapshot -> snapshot.getCategoryFingerprint(found),
+                    snapshot -> snapshot.getProductsByCategory(found), webRequest);
+        }
+        return cachedCatalogResponse("category:" + found.getId() + ":cards",
+                snapshot -> snapshot.getCategoryFingerprint(found),
+                snapshot -> snapshot.getProductCardsByCategory(found), webRequest);
     }
 
     @GetMapping("/categories")
-    public ResponseEntity<?> getCategories(@RequestHeader(value = "Authorization", required = false) String token) {
-        logger.info("GET /api/products/categories - Richiesta categorie");
-        logger.info("Headers - Authorization: {}", token);
-
+    public ResponseEntity<?> getCategories(ServletWebRequest webRequest) {
         try {
-            List<Category> categoriesList = categoryRepository.findAll();
-
-            // Restituisce l'elenco completo delle categorie come oggetti
-            logger.info("Recuperate {} categorie", categoriesList.size());
-            for (Category cat : categoriesList) {
-                logger.info("Categoria: id={}, nome={}", cat.getId(), cat.getName());
+            if (isCatalogNotModified(webRequest, CatalogSnapshot::getCategoriesFingerprint)) {
+                return catalogNotModified();
             }
 
-            return ResponseEntity.ok(categoriesList);
+            // Restituisce l'elenco completo delle categorie come oggetti
+            return cachedCatalogResponse("categories", CatalogSnapshot::getCategoriesFingerprint,
+                    CatalogSnapshot::getCategories, webRequest);
         } catch (Exception e) {
             logger.error("Errore nel recupero delle categorie: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -117,26 +176,25 @@ public class ProductController {
         }
     }
 
+    @GetMapping("/cache-stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> getCatalogCacheStats() {
+        Map<String, Object> stats = productService.getCatalogCacheStats();
+        stats.put("responseCache", responseCache.getStats());
+        return ResponseEntity.ok(stats);
+    }
+
     @PostMapping
-    public ResponseEntity<?> createProduct(@RequestBody Map<String, Object> productData,
-            @RequestHeader(value = "Authorization", required = false) String token) {
-        logger.info("POST /api/products - Richiesta creazione prodotto");
-        logger.info("Request body: {}", productData);
-        logger.info("Headers - Authorization: {}", token);
+    public ResponseEntity<?> createProduct(@RequestBody Map<String, Object> productData) {
+        logger.debug("Richiesta creazione prodotto: {}", LogRedactor.redact(productData));
 
         try {
-            // Log dettagliati per i dati di input
-            logger.info("Dati ricevuti per la creazione del prodotto:");
-            productData.forEach((key, value) -> {
-                logger.info("  {} = {} (tipo: {})", key, value, value != null ? value.getClass().getName() : "null");
-            });
-
             // Estrai i dati dal prodotto
             String name = (String) productData.get("name");
             String description = (String) productData.get("description");
 
             Object priceObj = productData.get("price");
-            logger.info("Valore del prezzo: {} di tipo {}", priceObj,
+            logger.debug("Valore del prezzo: {} di tipo {}", priceObj,
                     priceObj != null ? priceObj.getClass().getName() : "null");
             Double price;
             if (priceObj instanceof Double) {
@@ -157,7 +215,7 @@ public class ProductController {
                     stockObj = productData.get("stock");
                 }
             }
-            logger.info("Valore dello stock: {} di tipo {}", stockObj,
+            logger.debug("Valore dello stock: {} di tipo {}", stockObj,
                     stockObj != null ? stockObj.getClass().getName() : "null");
             Integer stockQuantity;
             if (stockObj instanceof Integer) {
@@ -183,7 +241,7 @@ public class ProductController {
             }
 
             Object featuredObj = productData.get("featured");
-            logger.info("Valore di featured: {} di tipo {}", featuredObj,
+            logger.debug("Valore di featured: {} di tipo {}", featuredObj,
                     featuredObj != null ? featuredObj.getClass().getName() : "null");
             Boolean featured;
             if (featuredObj instanceof Boolean) {
@@ -216,11 +274,11 @@ public class ProductController {
 
             // Se abbiamo un ID categoria, cerca la categoria per ID
             if (categoryId != null) {
-                logger.info("Ricerca categoria per ID: {}", categoryId);
+                logger.debug("Ricerca categoria per ID: {}", categoryId);
                 Optional<Category> categoryById = categoryRepository.findById(categoryId);
                 if (categoryById.isPresent()) {
                     category = categoryById.get();
-                    logger.info("Categoria trovata per ID {}: {}", categoryId, category.getName());
+                    logger.debug("Categoria trovata per ID {}: {}", categoryId, category.getName());
                 } else {
                     logger.warn("Categoria con ID {} non trovata", categoryId);
                 }
@@ -230,7 +288,7 @@ public class ProductController {
             // come oggetto
             if (category == null) {
                 Object categoryObj = productData.get("categoryEntity");
-                logger.info("Valore della categoria: {} di tipo {}", categoryObj,
+                logger.debug("Valore della categoria: {} di tipo {}", categoryObj,
                         categoryObj != null ? categoryObj.getClass().getName() : "null");
 
                 if (categoryObj instanceof Map) {
@@ -239,7 +297,7 @@ public class ProductController {
                     Object catIdObj = categoryMap.get("id");
 
                     if (catIdObj != null) {
-                        logger.info("Trovato ID categoria nell'oggetto: {}", catIdObj);
+                        logger.debug("Trovato ID categoria nell'oggetto: {}", catIdObj);
                         if (catIdObj instanceof Integer) {
                             categoryId = ((Integer) catIdObj).longValue();
                         } else if (catIdObj instanceof Long) {
@@ -256,7 +314,7 @@ public class ProductController {
                             Optional<Category> categoryById = categoryRepository.findById(categoryId);
                             if (categoryById.isPresent()) {
                                 category = categoryById.get();
-                                logger.info("Categoria trovata per ID {}: {}", categoryId, category.getName());
+                                logger.debug("Categoria trovata per ID {}: {}", categoryId, category.getName());
                             } else {
                                 logger.warn("Categoria con ID {} non trovata", categoryId);
                             }
@@ -266,11 +324,11 @@ public class ProductController {
                     // Se ancora non abbiamo trovato la categoria, proviamo con il nome
                     if (category == null && categoryMap.containsKey("name")) {
                         String categoryName = (String) categoryMap.get("name");
-                        logger.info("Ricerca categoria per nome: {}", categoryName);
+                        logger.debug("Ricerca categoria per nome: {}", categoryName);
                         Optional<Category> categoryByName = categoryRepository.findByName(categoryName);
                         if (categoryByName.isPresent()) {
                             category = categoryByName.get();
-                            logger.info("Categoria trovata per nome {}: ID={}", categoryName, category.getId());
+                            logger.debug("Categoria trovata per nome {}: ID={}", categoryName, category.getId());
                         } else {
                             logger.warn("Categoria con nome {} non trovata", categoryName);
                         }
@@ -278,11 +336,11 @@ public class ProductController {
                 } else if (categoryObj instanceof String) {
                     // La categoria è stata fornita come stringa (nome categoria)
                     String categoryName = (String) categoryObj;
-                    logger.info("Ricerca categoria per nome: {}", categoryName);
+                    logger.debug("Ricerca categoria per nome: {}", categoryName);
                     Optional<Category> categoryByName = categoryRepository.findByName(categoryName);
                     if (categoryByName.isPresent()) {
                         category = categoryByName.get();
-                        logger.info("Categoria trovata per nome {}: ID={}", categoryName, category.getId());
+                        logger.debug("Categoria trovata per nome {}: ID={}", categoryName, category.getId());
                     } else {
                         logger.warn("Categoria con nome {} non trovata", categoryName);
                     }
@@ -293,11 +351,11 @@ public class ProductController {
             if (category == null) {
                 String categoryName = (String) productData.get("category");
                 if (categoryName != null && !categoryName.trim().isEmpty()) {
-                    logger.info("Ricerca categoria per nome dal campo 'category': {}", categoryName);
+                    logger.debug("Ricerca categoria per nome dal campo 'category': {}", categoryName);
                     Optional<Category> categoryByName = categoryRepository.findByName(categoryName);
                     if (categoryByName.isPresent()) {
                         category = categoryByName.get();
-                        logger.info("Categoria trovata per nome {}: ID={}", categoryName, category.getId());
+                        logger.debug("Categoria trovata per nome {}: ID={}", categoryName, category.getId());
                     } else {
                         // Se la categoria non esiste, creala
                         logger.info("Creazione nuova categoria: {}", categoryName);
@@ -343,11 +401,8 @@ public class ProductController {
     }
 
     @PutMapping("/{id}")
-    public ResponseEntity<?> updateProduct(@PathVariable Long id, @RequestBody Map<String, Object> productData,
-            @RequestHeader(value = "Authorization", required = false) String token) {
-        logger.info("PUT /api/products/{} - Richiesta aggiornamento prodotto", id);
-        logger.info("Request body: {}", productData);
-        logger.info("Headers - Authorization: {}", token);
+    public ResponseEntity<?> updateProduct(@PathVariable Long id, @RequestBody Map<String, Object> productData) {
+        logger.debug("Richiesta aggiornamento prodotto {}: {}", id, LogRedactor.redact(productData));
 
         try {
             // Verifica che il prodotto esista
@@ -358,11 +413,11 @@ public class ProductController {
             }
 
             Product existingProduct = existingProductOpt.get();
-            logger.info("Prodotto esistente recuperato: {}", existingProduct);
+            logger.debug("Prodotto esistente recuperato: {}", existingProduct);
 
             // Log dettagliato della categoria esistente
             if (existingProduct.getCategoryEntity() != null) {
-                logger.info("Categoria esistente: ID={}, nome={}",
+                logger.debug("Categoria esistente: ID={}, nome={}",
                         existingProduct.getCategoryEntity().getId(),
                         existingProduct.getCategoryEntity().getName());
             } else {
@@ -393,7 +448,7 @@ public class ProductController {
                     stockObj = productData.get("stock");
                 }
             }
-            logger.info("Valore dello stock: {} di tipo {}", stockObj,
+            logger.debug("Valore dello stock: {} di tipo {}", stockObj,
                     stockObj != null ? stockObj.getClass().getName() : "null");
             Integer stockQuantity;
             if (stockObj instanceof Integer) {
@@ -452,11 +507,11 @@ public class ProductController {
 
             // Se abbiamo un ID categoria, cerca la categoria per ID
             if (categoryId != null) {
-                logger.info("Ricerca categoria per ID: {}", categoryId);
+                logger.debug("Ricerca categoria per ID: {}", categoryId);
                 Optional<Category> categoryById = categoryRepository.findById(categoryId);
                 if (categoryById.isPresent()) {
                     category = categoryById.get();
-                    logger.info("Categoria trovata per ID {}: {}", categoryId, category.getName());
+                    logger.debug("Categoria trovata per ID {}: {}", categoryId, category.getName());
                 } else {
                     logger.warn("Categoria con ID {} non trovata", categoryId);
                 }
@@ -466,7 +521,7 @@ public class ProductController {
             // come oggetto
             if (category == null) {
                 Object categoryObj = productData.get("categoryEntity");
-                logger.info("Valore della categoria: {} di tipo {}", categoryObj,
+                logger.debug("Valore della categoria: {} di tipo {}", categoryObj,
                         categoryObj != null ? categoryObj.getClass().getName() : "null");
 
                 if (categoryObj instanceof Map) {
@@ -475,7 +530,7 @@ public class ProductController {
                     Object catIdObj = categoryMap.get("id");
 
                     if (catIdObj != null) {
-                        logger.info("Trovato ID categoria nell'oggetto: {}", catIdObj);
+                        logger.debug("Trovato ID categoria nell'oggetto: {}", catIdObj);
                         if (catIdObj instanceof Integer) {
                             categoryId = ((Integer) catIdObj).longValue();
                         } else if (catIdObj instanceof Long) {
@@ -492,7 +547,7 @@ public class ProductController {
                             Optional<Category> categoryById = categoryRepository.findById(categoryId);
                             if (categoryById.isPresent()) {
                                 category = categoryById.get();
-                                logger.info("Categoria trovata per ID {}: {}", categoryId, category.getName());
+                                logger.debug("Categoria trovata per ID {}: {}", categoryId, category.getName());
                             } else {
                                 logger.warn("Categoria con ID {} non trovata", categoryId);
                             }
@@ -502,11 +557,11 @@ public class ProductController {
                     // Se ancora non abbiamo trovato la categoria, proviamo con il nome
                     if (category == null && categoryMap.containsKey("name")) {
                         String categoryName = (String) categoryMap.get("name");
-                        logger.info("Ricerca categoria per nome: {}", categoryName);
+                        logger.debug("Ricerca categoria per nome: {}", categoryName);
                         Optional<Category> categoryByName = categoryRepository.findByName(categoryName);
                         if (categoryByName.isPresent()) {
                             category = categoryByName.get();
-                            logger.info("Categoria trovata per nome {}: ID={}", categoryName, category.getId());
+                            logger.debug("Categoria trovata per nome {}: ID={}", categoryName, category.getId());
                         } else {
                             logger.warn("Categoria con nome {} non trovata", categoryName);
                         }
@@ -514,11 +569,11 @@ public class ProductController {
                 } else if (categoryObj instanceof String) {
                     // La categoria è stata fornita come stringa (nome categoria)
                     String categoryName = (String) categoryObj;
-                    logger.info("Ricerca categoria per nome: {}", categoryName);
+                    logger.debug("Ricerca categoria per nome: {}", categoryName);
                     Optional<Category> categoryByName = categoryRepository.findByName(categoryName);
                     if (categoryByName.isPresent()) {
                         category = categoryByName.get();
-                        logger.info("Categoria trovata per nome {}: ID={}", categoryName, category.getId());
+                        logger.debug("Categoria trovata per nome {}: ID={}", categoryName, category.getId());
                     } else {
                         logger.warn("Categoria con nome {} non trovata", categoryName);
                     }
@@ -529,11 +584,11 @@ public class ProductController {
             if (category == null) {
                 String categoryName = (String) productData.get("category");
                 if (categoryName != null && !categoryName.trim().isEmpty()) {
-                    logger.info("Ricerca categoria per nome dal campo 'category': {}", categoryName);
+                    logger.debug("Ricerca categoria per nome dal campo 'category': {}", categoryName);
                     Optional<Category> categoryByName = categoryRepository.findByName(categoryName);
                     if (categoryByName.isPresent()) {
                         category = categoryByName.get();
-                        logger.info("Categoria trovata per nome {}: ID={}", categoryName, category.getId());
+                        logger.debug("Categoria trovata per nome {}: ID={}", categoryName, category.getId());
                     } else {
                         // Se la categoria non esiste, creala
                         logger.info("Creazione nuova categoria: {}", categoryName);
@@ -572,14 +627,17 @@ public class ProductController {
             existingProduct.setName(name);
             existingProduct.setDescription(description);
             existingProduct.setPrice(java.math.BigDecimal.valueOf(price));
-            existingProduct.setStockQuantity(stockQuantity);
             existingProduct.setImageUrl(imageUrl);
             existingProduct.setCategoryEntity(category);
             existingProduct.setBrand(brand);
             existingProduct.setFeatured(featured);
 
+            // La disponibilità si rettifica per differenza rispetto al valore letto sopra
+            int currentStock = existingProduct.getStockQuantity() != null ? existingProduct.getStockQuantity() : 0;
+            int stockDelta = stockQuantity != null ? stockQuantity - currentStock : 0;
+
             // Salva il prodotto
-            Product updatedProduct = productService.updateProduct(id, existingProduct);
+            Product updatedProduct = productService.updateProduct(id, existingProduct, stockDelta);
             logger.info("Prodotto aggiornato con successo: ID={}, nome={}, categoria={}",
                     updatedProduct.getId(), updatedProduct.getName(),
                     updatedProduct.getCategoryEntity() != null ? updatedProduct.getCategoryEntity().getName() : "null");
@@ -592,10 +650,8 @@ public class ProductController {
     }
 
     @DeleteMapping("/{id}")
-    public ResponseEntity<?> deleteProduct(@PathVariable Long id,
-            @RequestHeader(value = "Authorization", required = false) String token) {
-        logger.info("DELETE /api/products/{} - Richiesta eliminazione prodotto", id);
-        logger.info("Headers - Authorization: {}", token);
+    public ResponseEntity<?> deleteProduct(@PathVariable Long id) {
+        logger.info("Eliminazione prodotto {}", id);
 
         try {
             productService.deleteProduct(id);
@@ -606,11 +662,92 @@ public class ProductController {
         }
     }
 
+    @GetMapping("/browse")
+    public ResponseEntity<?> browseProducts(@RequestParam(required = false) List<String> brand,
+            @RequestParam(required = false) List<String> category,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) Boolean inStock,
+            @RequestParam(required = false) Integer offset,
+            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(
+                productService.browseProducts(brand, category, minPrice, maxPrice, inStock, offset, limit));
+    }
+
+    @GetMapping("/suggest")
+    public ResponseEntity<?> suggestProducts(@RequestParam String query,
+            @RequestParam(defaultValue = "8") int limit) {
+        return ResponseEntity.ok(productService.suggest(query, limit));
+    }
+
     @GetMapping("/search")
     public ResponseEntity<?> searchProducts(@RequestParam String query,
-            @RequestHeader(value = "Authorization", required = false) String token) {
-        logger.info("GET /api/products/search?query={} - Richiesta ricerca prodotti", query);
-        logger.info("Headers - Authorization: {}", token);
+            @RequestParam(required = false) Integer limit) {
+        if (limit != null) {
+            return ResponseEntity.ok(productService.searchProducts(query, limit));
+        }
         return ResponseEntity.ok(productService.searchProducts(query));
     }
-}
\ No newline at end of file
+
+    // Richieste condizionali sul catalogo: l'ETag combina l'impronta della vista (tutto il
+    // catalogo, una categoria, un prodotto...) con URI e parametri, così ogni vista ha il
+    // proprio validatore e un ordine invalida solo quelle che contengono i prodotti venduti.
+    // checkNotModified imposta ETag e Last-Modified e, se coincidono, lo stato 304.
+    private boolean isCatalogNotModified(ServletWebRequest webRequest, ToLongFunction<CatalogSnapshot> fingerprint) {
+        CatalogSnapshot snapshot = productService.getCatalogSnapshot();
+        HttpServletRequest request = webRequest.getRequest();
+        String variant = request.getQueryString() != null
+                ? request.getRequestURI() + "?" + request.getQueryString()
+                : request.getRequestURI();
+        // La versione compressa è un'altra rappresentazione e ha un ETag diverso
+        if (acceptsGzip(request)) {
+            variant += "|gzip";
+        }
+        String etag = "\"" + Long.toHexString(fingerprint.applyAsLong(snapshot)) + "-"
+                + Integer.toHexString(variant.hashCode()) + "\"";
+        return webRequest.checkNotModified(etag, snapshot.getLastModified());
+    }
+
+    private ResponseEntity<?> catalogNotModified() {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .cacheControl(catalogCacheControl())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                .build();
+    }
+
+    private <T> ResponseEntity<T> catalogResponse(T body) {
+        return ResponseEntity.ok()
+                .cacheControl(catalogCacheControl())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                .body(body);
+    }
+
+    // Restituisce i byte già serializzati per il contenuto corrente della vista:
+    // nessun passaggio da Jackson, e gzip se il client lo accetta
+    private ResponseEntity<byte[]> cachedCatalogResponse(String view, ToLongFunction<CatalogSnapshot> fingerprint,
+            Function<CatalogSnapshot, ?> body, ServletWebRequest webRequest) {
+        CatalogResponseCache.CachedBody cached = responseCache.get(view, productService.getCatalogSnapshot(),
+                fingerprint, body);
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .cacheControl(catalogCacheControl())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                .contentType(MediaType.APPLICATION_JSON);
+        if (cached.hasGzip() && acceptsGzip(webRequest.getRequest())) {
+            return builder.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(cached.getGzip());
+        }
+        return builder.body(cached.getJson());
+    }
+
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        return acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+    }
+
+    private CacheControl catalogCacheControl() {
+        return CacheControl.maxAge(catalogMaxAgeSeconds, TimeUnit.SECONDS).cachePublic().mustRevalidate();
+    }
+
+    private static boolean isFullView(String view) {
+        return "full".equalsIgnoreCase(view);
+    }
+}
@@ -4,6 +4,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import com.rnbmx.shop.logging.LogRedactor;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -18,17 +19,7 @@ public class ReviewController {
     private static final Logger logger = LoggerFactory.getLogger(ReviewController.class);
 
     @GetMapping("/product/{productId}")
-    public ResponseEntity<?> getReviewsByProductId(@PathVariable Long productId,
-            @RequestHeader(value = "Authorization", required = false) String token) {
-        logger.info("GET /api/reviews/product/{} - Richiesta recensioni prodotto ricevuta", productId);
-
-        // Il token è opzionale per questo endpoint, logghiamo solo se presente
-        if (token != null && !token.isEmpty()) {
-            logger.info("Headers - Authorization presente: {}...", token.substring(0, Math.min(20, token.length())));
-        } else {
-            logger.info("Headers - Authorization non presente");
-        }
-
+    public ResponseEntity<?> getReviewsByProductId(@PathVariable Long productId) {
         // Mock data per le recensioni
         List<Map<String, Object>> reviews = new ArrayList<>();
 
@@ -66,7 +57,6 @@ public class ReviewController {
         reviews.add(review1);
         reviews.add(review2);
 
-        logger.info("Invio di {} recensioni per il prodotto {}", reviews.size(), productId);
         return ResponseEntity.ok(reviews);
     }
 
@@ -74,14 +64,12 @@ public class ReviewController {
     public ResponseEntity<?> addReview(@PathVariable Long productId,
             @RequestBody Map<String, Object> reviewData,
             @RequestHeader(value = "Authorization", required = false) String token) {
-        logger.info("POST /api/reviews/product/{} - Richiesta di aggiunta recensione ricevuta", productId);
-        logger.info("Request body: {}", reviewData);
+        logger.debug("Richiesta di aggiunta recensione per il prodotto {}: {}", productId,
+                LogRedactor.redact(reviewData));
 
         // Il token è necessario per questo endpoint
-        if (token != null && !token.isEmpty()) {
-            logger.info("Headers - Authorization presente: {}...", token.substring(0, Math.min(20, token.length())));
-        } else {
-            logger.warn("Headers - Authorization non presente - Richiesta non autorizzata");
+        if (token == null || token.isEmpty()) {
+            logger.warn("Header Authorization assente - Richiesta non autorizzata");
             return ResponseEntity.status(401)
                     .body(Map.of("message", "È necessario autenticarsi per aggiungere una recensione"));
         }
@@ -148,8 +136,6 @@ public class ReviewController {
 
             // In un'implementazione reale qui si estrarrebe l'ID utente dal token JWT
             // e si salverebbero i dati della recensione nel database
-            String jwt = token.substring(7);
-            logger.info("Token JWT estratto, lunghezza: {}", jwt.length());
 
             // Creazione di una risposta mock
             Map<String, Object> response = new HashMap<>();
@@ -177,12 +163,6 @@ public class ReviewController {
     @DeleteMapping("/{reviewId}")
     public ResponseEntity<?> deleteReview(@PathVariable Long reviewId,
             @RequestHeader(value = "Authorization", required = false) String token) {
-        logger.info("DELETE /api/reviews/{} - Richiesta di eliminazione recensione ricevuta", reviewId);
-
-        // Debug - Stampa tutti gli headers ricevuti
-        logger.info("Headers ricevuti per DELETE:");
-        logger.info("Authorization: {}", token);
-
         // Modalità sviluppo: per scopi di testing, permettiamo l'eliminazione anche
         // senza token valido
         boolean devMode = true; // Impostare a false in produzione
@@ -199,9 +179,6 @@ public class ReviewController {
 
             try {
                 // 1. Estrarre l'ID utente dal token JWT
-                String jwt = token.substring(7);
-                logger.info("Token JWT estratto, lunghezza: {}", jwt.length());
-
                 // 2. Verificare che l'utente sia l'autore della recensione o un amministratore
                 // Mock: supponiamo che la verifica sia riuscita
                 boolean isAuthorized = true;
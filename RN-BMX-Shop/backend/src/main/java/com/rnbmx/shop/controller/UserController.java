@@ -2,13 +2,17 @@ package com.rnbmx.shop.controller;
 
 import com.rnbmx.shop.model.Role;
 import com.rnbmx.shop.model.User;
-import com.rnbmx.shop.repository.RoleRepository;
 import com.rnbmx.shop.repository.UserRepository;
 import com.rnbmx.shop.security.jwt.JwtUtils;
+import com.rnbmx.shop.security.services.PasswordHashingService;
 import com.rnbmx.shop.security.services.UserDetailsImpl;
+import com.rnbmx.shop.security.services.UserSecurityChangedEvent;
+import com.rnbmx.shop.service.PasswordResetJob;
+import com.rnbmx.shop.service.RoleRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -18,6 +22,7 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 @CrossOrigin(origins = "http://localhost:3000", maxAge = 3600, allowCredentials = "true")
@@ -31,7 +36,7 @@ public class UserController {
     private UserRepository userRepository;
 
     @Autowired
-    private RoleRepository roleRepository;
+    private RoleRegistry roleRegistry;
 
     @Autowired
     private PasswordEncoder encoder;
@@ -39,6 +44,15 @@ public class UserController {
     @Autowired
     private JwtUtils jwtUtils;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private PasswordHashingService passwordHashingService;
+
+    @Autowired
+    private PasswordResetJob passwordResetJob;
+
     // Ottieni tutti gli utenti (solo per admin)
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')")
@@ -104,6 +118,7 @@ public class UserController {
             }
 
             User user = userOptional.get();
+            String previousEmail = user.getEmail();
 
             // Aggiorna i campi dell'utente se presenti nel payload
             if (userData.containsKey("firstName")) {
@@ -148,6 +163,8 @@ public class UserController {
 
             // Salva l'utente aggiornato
             userRepository.save(user);
+            eventPublisher.publishEvent(
+                    new UserSecurityChangedEvent(previousEmail, UserSecurityChangedEvent.Reason.PROFILE_UPDATED));
 
             Map<String, Object> userDTO = convertToDTO(user);
             logger.info("Utente con ID {} aggiornato con successo", id);
@@ -166,13 +183,16 @@ public class UserController {
         logger.info("DELETE /api/users/{} - Richiesta eliminazione utente ricevuta", id);
 
         try {
-            if (!userRepository.existsById(id)) {
+            Optional<User> userOptional = userRepository.findById(id);
+            if (!userOptional.isPresent()) {
                 logger.warn("Utente con ID {} non trovato", id);
                 return ResponseEntity.status(HttpStatus.NOT_FOUND)
                         .body(Map.of("message", "Utente non trovato"));
             }
 
-            userRepository.deleteById(id);
+            userRepository.delete(userOptional.get());
+            eventPublisher.publishEvent(new UserSecurityChangedEvent(userOptional.get().getEmail(),
+                    UserSecurityChangedEvent.Reason.DELETED));
 
             logger.info("Utente con ID {} eliminato con successo", id);
             return ResponseEntity.ok(Map.of("message", "Utente eliminato con successo"));
@@ -251,15 +271,7 @@ public class UserController {
                                 ? com.rnbmx.shop.model.ERole.ROLE_ADMIN
                                 : com.rnbmx.shop.model.ERole.ROLE_USER;
 
-                        logger.info("Cercando il ruolo {} nel database", eRole);
-                        Optional<Role> roleOptional = roleRepository.findByName(eRole);
-
-                        if (roleOptional.isPresent()) {
-                            roles.add(roleOptional.get());
-                            logger.info("Ruolo {} aggiunto", eRole);
-                        } else {
-                            logger.warn("Ruolo {} non trovato nel database", eRole);
-                        }
+                        roles.add(roleRegistry.get(eRole));
                     }
 
                     if (roles.isEmpty()) {
@@ -275,6 +287,8 @@ public class UserController {
                     logger.info("Salvataggio dell'utente nel database");
                     User savedUser = userRepository.save(user);
                     logger.info("Utente salvato: {}", savedUser);
+                    eventPublisher.publishEvent(new UserSecurityChangedEvent(savedUser.getEmail(),
+                            UserSecurityChangedEvent.Reason.ROLES_CHANGED));
 
                     logger.info("Ruoli dell'utente con ID {} aggiornati con successo: {}", id, roles);
                 } catch (ClassCastException e) {
@@ -354,6 +368,7 @@ public class UserController {
             }
 
             User user = userOptional.get();
+            String previousEmail = user.getEmail();
 
             // Aggiorna i campi dell'utente se presenti nel payload
             if (profileData.containsKey("firstName")) {
@@ -398,6 +413,8 @@ public class UserController {
 
             // Salva l'utente aggiornato
             userRepository.save(user);
+            eventPublisher.publishEvent(
+                    new UserSecurityChangedEvent(previousEmail, UserSecurityChangedEvent.Reason.PROFILE_UPDATED));
 
             Map<String, Object> userDTO = convertToDTO(user);
             logger.info("Profilo dell'utente corrente con ID {} aggiornato con successo", userDetails.getId());
@@ -411,7 +428,12 @@ public class UserController {
 
     // Cambia la password dell'utente corrente
     @PutMapping("/password")
-    public ResponseEntity<?> changePassword(@RequestBody Map<String, String> passwordData) {
+    public CompletableFuture<ResponseEntity<?>> changePassword(@RequestBody Map<String, String> passwordData) {
+        // Verifica e hashing sul pool dedicato; il SecurityContext viene propagato
+        return passwordHashingService.submit(() -> updatePassword(passwordData));
+    }
+
+    private ResponseEntity<?> updatePassword(Map<String, String> passwordData) {
         logger.info("PUT /api/users/password - Richiesta cambio password ricevuta");
 
         try {
@@ -456,6 +478,8 @@ public class UserController {
             // Aggiorna la password dell'utente
             user.setPassword(encoder.encode(newPassword));
             userRepository.save(user);
+            eventPublisher.publishEvent(
+                    new UserSecurityChangedEvent(user.getEmail(), UserSecurityChangedEvent.Reason.PASSWORD_CHANGED));
 
             logger.info("Password dell'utente con ID {} aggiornata con successo", userDetails.getId());
             return ResponseEntity.ok(Map.of("message", "Password aggiornata con successo"));
@@ -466,6 +490,58 @@ public class UserController {
         }
     }
 
+    // Avvia la reimpostazione massiva delle password in background.
+    // Body: password, emails (facoltativo, altrimenti tutti gli utenti), afterUserId (facoltativo)
+    @PostMapping("/password-reset-job")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> startPasswordResetJob(@RequestBody Map<String, Object> jobData) {
+        Object emails = jobData.get("emails");
+        Object afterUserId = jobData.get("afterUserId");
+
+        try {
+            List<String> emailList = emails instanceof List
+                    ? ((List<?>) emails).stream().map(String::valueOf).collect(Collectors.toList())
+                    : null;
+            if (emailList != null && emailList.isEmpty()) {
+                return ResponseEntity.badRequest().body(Map.of("message", "La lista delle email è vuota"));
+            }
+            long after = afterUserId instanceof Number ? ((Number) afterUserId).longValue() : 0;
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .body(passwordResetJob.start((String) jobData.get("password"), emailList, after));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/password-reset-job")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> getPasswordResetJobStatus() {
+        return ResponseEntity.ok(passwordResetJob.getStatus());
+    }
+
+    // Body: password (la stessa dell'avvio: il job non la conserva in memoria)
+    @PostMapping("/password-reset-job/resume")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> resumePasswordResetJob(@RequestBody Map<String, Object> jobData) {
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .body(passwordResetJob.resume((String) jobData.get("password")));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    @PostMapping("/password-reset-job/cancel")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> cancelPasswordResetJob() {
+        passwordResetJob.cancel();
+        return ResponseEntity.ok(passwordResetJob.getStatus());
+    }
+
     // Metodo ausiliario per convertire un utente in DTO
     private Map<String, Object> convertToDTO(User user) {
         Map<String, Object> userDTO = new HashMap<>();
@@ -0,0 +1,16 @@
+package com.rnbmx.shop.exception;
+
+// La coda di ammissione della flash sale è piena: la richiesta va ripetuta più tardi
+public class FlashSaleBusyException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public FlashSaleBusyException(long retryAfterSeconds) {
+        super("Troppi ordini in attesa per questo prodotto");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
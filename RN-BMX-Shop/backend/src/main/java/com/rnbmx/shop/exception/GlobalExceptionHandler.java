@@ -2,6 +2,7 @@ package com.rnbmx.shop.exception;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.BadCredentialsException;
@@ -71,6 +72,46 @@ public class GlobalExceptionHandler {
                 .body(new MessageResponse("Errore di autenticazione: " + ex.getMessage()));
     }
 
+    @ExceptionHandler(LoginRateLimitedException.class)
+    public ResponseEntity<?> handleLoginRateLimited(LoginRateLimitedException ex) {
+        return ResponseEntity
+                .status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(new MessageResponse("Troppi tentativi di accesso, riprova tra qualche istante"));
+    }
+
+    @ExceptionHandler(PasswordHashingBusyException.class)
+    public ResponseEntity<?> handlePasswordHashingBusy(PasswordHashingBusyException ex) {
+        return ResponseEntity
+                .status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(new MessageResponse("Servizio di autenticazione momentaneamente occupato, riprova tra poco"));
+    }
+
+    @ExceptionHandler(InvalidOrderException.class)
+    public ResponseEntity<?> handleInvalidOrder(InvalidOrderException ex) {
+        logger.warn("Ordine non valido: {}", ex.getMessage());
+        return ResponseEntity
+                .badRequest()
+                .body(new MessageResponse(ex.getMessage()));
+    }
+
+    @ExceptionHandler(OutOfStockException.class)
+    public ResponseEntity<?> handleOutOfStock(OutOfStockException ex) {
+        logger.info("Ordine rifiutato: {}", ex.getMessage());
+        return ResponseEntity
+                .status(HttpStatus.CONFLICT)
+                .body(MessageResponse.withDetails(ex.getMessage(), Map.of("productId", ex.getProductId())));
+    }
+
+    @ExceptionHandler(FlashSaleBusyException.class)
+    public ResponseEntity<?> handleFlashSaleBusy(FlashSaleBusyException ex) {
+        return ResponseEntity
+                .status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(new MessageResponse("Troppi ordini in attesa per questo prodotto, riprova tra poco"));
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<?> handleGeneralException(Exception ex) {
         logger.error("Errore non gestito: {}", ex.getMessage(), ex);
@@ -0,0 +1,8 @@
+package com.rnbmx.shop.exception;
+
+// Ordine non accettabile (prodotto inesistente, quantità non valida, ...): risposta 400
+public class InvalidOrderException extends RuntimeException {
+    public InvalidOrderException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,16 @@
+package com.rnbmx.shop.exception;
+
+// Troppi tentativi di login dallo stesso IP o per la stessa email
+public class LoginRateLimitedException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public LoginRateLimitedException(long retryAfterSeconds) {
+        super("Troppi tentativi di login");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
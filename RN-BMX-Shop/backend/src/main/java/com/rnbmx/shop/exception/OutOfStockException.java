@@ -0,0 +1,16 @@
+package com.rnbmx.shop.exception;
+
+// Disponibilità insufficiente per un prodotto dell'ordine: risposta 409
+public class OutOfStockException extends RuntimeException {
+
+    private final Long productId;
+
+    public OutOfStockException(Long productId) {
+        super("Disponibilità insufficiente per il prodotto " + productId);
+        this.productId = productId;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+}
@@ -0,0 +1,16 @@
+package com.rnbmx.shop.exception;
+
+// Il pool dedicato all'hashing delle password è saturo: la richiesta va ripetuta più tardi
+public class PasswordHashingBusyException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public PasswordHashingBusyException(long retryAfterSeconds) {
+        super("Troppe richieste di autenticazione in corso");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,61 @@
+package com.rnbmx.shop.logging;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+// Funzioni di supporto per non scrivere mai nei log token, password o hash
+public final class LogRedactor {
+
+    private static final String MASK = "***";
+
+    // Chiavi dei body JSON il cui valore non deve mai finire nei log
+    private static final Set<String> SENSITIVE_KEYS = Set.of(
+            "password", "newpassword", "currentpassword", "oldpassword", "confirmpassword",
+            "token", "accesstoken", "refreshtoken", "authorization", "jwt", "secret",
+            "cardnumber", "cvc", "cvv");
+
+    private LogRedactor() {
+    }
+
+    // "Bearer eyJhbGciOi..." -> "Bearer ***(len=187)"
+    public static String redactToken(String value) {
+        if (value == null || value.isEmpty()) {
+            return "-";
+        }
+        String scheme = "";
+        String credentials = value;
+        int space = value.indexOf(' ');
+        if (space > 0) {
+            scheme = value.substring(0, space + 1);
+            credentials = value.substring(space + 1);
+        }
+        return scheme + MASK + "(len=" + credentials.length() + ")";
+    }
+
+    // Copia del body con i campi sensibili mascherati, anche negli oggetti annidati
+    public static Map<String, Object> redact(Map<String, ?> body) {
+        if (body == null) {
+            return null;
+        }
+        Map<String, Object> copy = new LinkedHashMap<>();
+        for (Map.Entry<String, ?> entry : body.entrySet()) {
+            Object value = entry.getValue();
+            if (isSensitiveKey(entry.getKey())) {
+                copy.put(entry.getKey(), value == null ? null : MASK);
+            } else if (value instanceof Map) {
+                @SuppressWarnings("unchecked")
+                Map<String, ?> nested = (Map<String, ?>) value;
+                copy.put(entry.getKey(), redact(nested));
+            } else {
+                copy.put(entry.getKey(), value);
+            }
+        }
+        return copy;
+    }
+
+    public static boolean isSensitiveKey(String key) {
+        return key != null && SENSITIVE_KEYS.contains(key.replace("_", "").toLowerCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,138 @@
+package com.rnbmx.shop.logging;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import javax.annotation.PostConstruct;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+// Una sola riga strutturata per richiesta, campionata per endpoint.
+// Errori e richieste lente vengono sempre registrati; l'header Authorization
+// compare solo in forma mascherata.
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class RequestLoggingFilter extends OncePerRequestFilter {
+
+    private static final Logger accessLog = LoggerFactory.getLogger("com.rnbmx.shop.access");
+    private static final Logger logger = LoggerFactory.getLogger(RequestLoggingFilter.class);
+
+    // Inizio e campionamento della richiesta, conservati per il dispatch asincrono
+    private static final String START_ATTRIBUTE = RequestLoggingFilter.class.getName() + ".START";
+    private static final String SAMPLED_ATTRIBUTE = RequestLoggingFilter.class.getName() + ".SAMPLED";
+
+    @Value("${bmx.app.requestLog.enabled:true}")
+    private boolean enabled;
+
+    @Value("${bmx.app.requestLog.defaultSampleRate:1.0}")
+    private double defaultSampleRate;
+
+    // Formato: /api/products=0.01,/api/orders=1.0 (vince il prefisso più lungo)
+    @Value("${bmx.app.requestLog.sampleRates:}")
+    private String sampleRatesProperty;
+
+    @Value("${bmx.app.requestLog.slowThresholdMs:500}")
+    private long slowThresholdMs;
+
+    private List<SampleRule> rules = List.of();
+
+    @PostConstruct
+    public void init() {
+        List<SampleRule> parsed = new ArrayList<>();
+        for (String entry : sampleRatesProperty.split(",")) {
+            int eq = entry.indexOf('=');
+            if (eq <= 0) {
+                continue;
+            }
+            String prefix = entry.substring(0, eq).trim();
+            try {
+                double rate = Double.parseDouble(entry.substring(eq + 1).trim());
+                parsed.add(new SampleRule(prefix, Math.max(0.0, Math.min(1.0, rate))));
+            } catch (NumberFormatException e) {
+                logger.warn("Tasso di campionamento non valido per {}: {}", prefix, entry);
+            }
+        }
+        parsed.sort(Comparator.comparingInt((SampleRule rule) -> rule.prefix.length()).reversed());
+        rules = List.copyOf(parsed);
+        logger.info("Log delle richieste {}: campionamento predefinito {}, regole {}",
+                enabled ? "attivo" : "disattivato", defaultSampleRate, rules);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || !accessLog.isInfoEnabled();
+    }
+
+    // Gli endpoint che restituiscono CompletableFuture (login, registrazione, cambio password)
+    // terminano in un secondo dispatch: la riga va scritta lì, con stato e durata reali
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String path = request.getRequestURI();
+        double rate = sampleRateFor(path);
+        Long start = (Long) request.getAttribute(START_ATTRIBUTE);
+        Boolean sampled = (Boolean) request.getAttribute(SAMPLED_ATTRIBUTE);
+        if (start == null || sampled == null) {
+            start = System.nanoTime();
+            sampled = rate >= 1.0 || (rate > 0.0 && ThreadLocalRandom.current().nextDouble() < rate);
+            request.setAttribute(START_ATTRIBUTE, start);
+            request.setAttribute(SAMPLED_ATTRIBUTE, sampled);
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            // Richiesta ancora in corso su un altro thread: si registra al dispatch finale
+            if (!isAsyncStarted(request)) {
+                long durationMs = (System.nanoTime() - start) / 1_000_000;
+                int status = response.getStatus();
+                if (sampled || status >= 500 || durationMs >= slowThresholdMs) {
+                    accessLog.info("method={} path={} status={} durationMs={} auth={} sampleRate={}",
+                            request.getMethod(), path, status, durationMs,
+                            LogRedactor.redactToken(request.getHeader("Authorization")), rate);
+                }
+            }
+        }
+    }
+
+    double sampleRateFor(String path) {
+        for (SampleRule rule : rules) {
+            if (path.startsWith(rule.prefix)) {
+                return rule.rate;
+            }
+        }
+        return defaultSampleRate;
+    }
+
+    private static final class SampleRule {
+        private final String prefix;
+        private final double rate;
+
+        private SampleRule(String prefix, double rate) {
+            this.prefix = prefix;
+            this.rate = rate;
+        }
+
+        @Override
+        public String toString() {
+            return prefix + "=" + rate;
+        }
+    }
+}
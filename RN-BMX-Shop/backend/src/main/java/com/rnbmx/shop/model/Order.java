@@ -2,7 +2,9 @@ package com.rnbmx.shop.model;
 
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 import javax.persistence.*;
 import java.math.BigDecimal;
@@ -14,13 +16,18 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        @Index(name = "idx_orders_user_order_date_id", columnList = "user_id, order_date, id"),
+        @Index(name = "idx_orders_status_order_date_id", columnList = "status, order_date, id"),
+        @Index(name = "idx_orders_order_date_id", columnList = "order_date, id")
+})
 public class Order {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @ManyToOne
+    // LAZY: ogni lettura dichiara con un entity graph cosa le serve (vedi OrderRepository)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
 
@@ -33,6 +40,15 @@ public class Order {
 
     private String paymentId;
 
+    private String shippingAddress;
+
+    private String phone;
+
+    private String paymentMethod;
+
+    // Esclusa da equals/hashCode/toString: non devono caricare la collezione né ricorrere su OrderItem.order
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<OrderItem> orderItems = new ArrayList<>();
 
@@ -18,7 +18,13 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "products")
+@Table(name = "products", indexes = {
+        @Index(name = "idx_products_price_id", columnList = "price, id"),
+        @Index(name = "idx_products_created_at_id", columnList = "created_at, id"),
+        @Index(name = "idx_products_category_id_id", columnList = "category_id, id"),
+        @Index(name = "idx_products_category_price_id", columnList = "category_id, price, id"),
+        @Index(name = "idx_products_category_created_at_id", columnList = "category_id, created_at, id")
+})
 @JsonIdentityInfo(generator = ObjectIdGenerators.PropertyGenerator.class, property = "id")
 public class Product {
     @Id
@@ -36,8 +42,10 @@ public class Product {
     @NotNull
     private BigDecimal price;
 
+    // Esclusa dagli UPDATE dell'entità: la disponibilità cambia solo con i decrementi
+    // e gli incrementi condizionati di StockService, mai sovrascrivendo un valore letto prima
     @NotNull
-    @Column(name = "stock")
+    @Column(name = "stock", updatable = false)
     private Integer stockQuantity = 0;
 
     @JsonProperty("stock_quantity")
@@ -53,7 +61,9 @@ public class Product {
         return imageUrl;
     }
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    // LAZY: le liste usano le proiezioni e il nome è già denormalizzato in 'category';
+    // le letture che servono l'entità completa la caricano con un entity graph
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "category_id")
     private Category categoryEntity;
 
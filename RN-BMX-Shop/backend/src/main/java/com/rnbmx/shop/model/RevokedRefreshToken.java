@@ -0,0 +1,29 @@
+package com.rnbmx.shop.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+// Refresh token già usati (rotazione) o revocati al logout, per jti.
+// Le righe servono solo fino alla scadenza del token, poi vengono cancellate.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "revoked_refresh_tokens", indexes = {
+        @Index(name = "idx_revoked_refresh_tokens_expires_at", columnList = "expires_at")
+})
+public class RevokedRefreshToken {
+    @Id
+    @Column(length = 64)
+    private String jti;
+
+    @Column(nullable = false)
+    private String subject;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+}
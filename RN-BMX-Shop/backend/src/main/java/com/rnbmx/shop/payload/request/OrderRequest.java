@@ -0,0 +1,45 @@
+package com.rnbmx.shop.payload.request;
+
+import java.util.List;
+import javax.validation.Valid;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Positive;
+import javax.validation.constraints.Size;
+import lombok.Data;
+
+// Prezzi e totale inviati dal client vengono ignorati: li calcola il server dai prodotti
+@Data
+public class OrderRequest {
+
+    public static final int MAX_ITEMS = 100;
+
+    @NotEmpty(message = "L'ordine deve contenere almeno un prodotto")
+    @Size(max = MAX_ITEMS, message = "Troppi prodotti nello stesso ordine")
+    private List<@Valid Item> items;
+
+    @NotBlank(message = "L'indirizzo di spedizione è obbligatorio")
+    @Size(max = 255)
+    private String shippingAddress;
+
+    @Size(max = 30)
+    private String phone;
+
+    @Size(max = 30)
+    private String paymentMethod;
+
+    @Size(max = 255)
+    private String paymentToken;
+
+    @Data
+    public static class Item {
+
+        @NotNull(message = "Il prodotto è obbligatorio")
+        private Long productId;
+
+        @NotNull(message = "La quantità è obbligatoria")
+        @Positive(message = "La quantità deve essere maggiore di zero")
+        private Integer quantity;
+    }
+}
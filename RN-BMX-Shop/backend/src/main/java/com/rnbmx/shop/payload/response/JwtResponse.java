@@ -1,5 +1,6 @@
 package com.rnbmx.shop.payload.response;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Data;
 
 import java.util.List;
@@ -20,6 +21,10 @@ public class JwtResponse {
     private String profileImage;
     private List<String> roles;
 
+    // Presente solo in modalità stateless
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String refreshToken;
+
     public JwtResponse(String token, Long id, String firstName, String lastName, String email,
             String phone, String country, String city, String address, String gender,
             String profileImage, List<String> roles) {
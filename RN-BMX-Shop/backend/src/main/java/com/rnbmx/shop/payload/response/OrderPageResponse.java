@@ -0,0 +1,20 @@
+package com.rnbmx.shop.payload.response;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class OrderPageResponse {
+    private List<OrderResponse> items;
+    private String nextCursor;
+    private boolean hasMore;
+    private int limit;
+
+    public OrderPageResponse(List<OrderResponse> items, String nextCursor, boolean hasMore, int limit) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.hasMore = hasMore;
+        this.limit = limit;
+    }
+}
@@ -0,0 +1,73 @@
+package com.rnbmx.shop.payload.response;
+
+import com.rnbmx.shop.model.Order;
+import com.rnbmx.shop.model.OrderItem;
+import com.rnbmx.shop.model.OrderStatus;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+// Vista dell'ordine restituita dalle API: niente entità User/Product serializzate
+@Data
+public class OrderResponse {
+
+    private Long id;
+    private Long userId;
+    private String email;
+    private LocalDateTime orderDate;
+    private OrderStatus status;
+    private BigDecimal totalAmount;
+    private String paymentId;
+    private String shippingAddress;
+    private String phone;
+    private String paymentMethod;
+    private List<Item> orderItems;
+
+    public static OrderResponse from(Order order) {
+        OrderResponse response = from(order,
+                order.getOrderItems().stream().map(Item::from).collect(Collectors.toList()));
+        response.email = order.getUser().getEmail();
+        return response;
+    }
+
+    // Non legge i campi dell'utente oltre all'id: chi crea l'ordine ha solo un riferimento
+    public static OrderResponse from(Order order, List<Item> items) {
+        OrderResponse response = new OrderResponse();
+        response.id = order.getId();
+        response.userId = order.getUser().getId();
+        response.orderDate = order.getOrderDate();
+        response.status = order.getStatus();
+        response.totalAmount = order.getTotalAmount();
+        response.paymentId = order.getPaymentId();
+        response.shippingAddress = order.getShippingAddress();
+        response.phone = order.getPhone();
+        response.paymentMethod = order.getPaymentMethod();
+        response.orderItems = items;
+        return response;
+    }
+
+    @Data
+    public static class Item {
+        private Long id;
+        private Long productId;
+        private String productName;
+        private Integer quantity;
+        private BigDecimal price;
+
+        public Item(Long id, Long productId, String productName, Integer quantity, BigDecimal price) {
+            this.id = id;
+            this.productId = productId;
+            this.productName = productName;
+            this.quantity = quantity;
+            this.price = price;
+        }
+
+        public static Item from(OrderItem item) {
+            return new Item(item.getId(), item.getProduct().getId(), item.getProduct().getName(),
+                    item.getQuantity(), item.getPrice());
+        }
+    }
+}
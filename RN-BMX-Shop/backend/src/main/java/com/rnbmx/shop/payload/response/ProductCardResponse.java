@@ -0,0 +1,70 @@
+package com.rnbmx.shop.payload.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.rnbmx.shop.model.Product;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Vista ridotta del prodotto per le liste (card del catalogo): niente entità
+// categoria e descrizione troncata. Il dettaglio completo resta su /api/products/{id}.
+@Data
+public class ProductCardResponse {
+
+    public static final int SUMMARY_LENGTH = 160;
+
+    private Long id;
+    private String name;
+    private String brand;
+    private BigDecimal price;
+    private Integer stockQuantity;
+    private String imageUrl;
+    private String category;
+    private Long categoryId;
+    private boolean featured;
+    private LocalDateTime createdAt;
+    private String description;
+
+    // Usato dalle query di proiezione (select new ...)
+    public ProductCardResponse(Long id, String name, String brand, BigDecimal price, Integer stockQuantity,
+            String imageUrl, String category, Long categoryId, boolean featured, LocalDateTime createdAt,
+            String description) {
+        this.id = id;
+        this.name = name;
+        this.brand = brand;
+        this.price = price;
+        this.stockQuantity = stockQuantity;
+        this.imageUrl = imageUrl;
+        this.category = category;
+        this.categoryId = categoryId;
+        this.featured = featured;
+        this.createdAt = createdAt;
+        this.description = summarize(description);
+    }
+
+    public static ProductCardResponse from(Product product) {
+        return new ProductCardResponse(product.getId(), product.getName(), product.getBrand(), product.getPrice(),
+                product.getStockQuantity(), product.getImageUrl(), product.getCategory(),
+                product.getCategoryEntity() != null ? product.getCategoryEntity().getId() : null,
+                product.isFeatured(), product.getCreatedAt(), product.getDescription());
+    }
+
+    // Stessi alias del modello Product, usati dal frontend
+    @JsonProperty("stock_quantity")
+    public Integer getStock_quantity() {
+        return stockQuantity;
+    }
+
+    @JsonProperty("image_url")
+    public String getImage_url() {
+        return imageUrl;
+    }
+
+    private static String summarize(String description) {
+        if (description == null || description.length() <= SUMMARY_LENGTH) {
+            return description;
+        }
+        return description.substring(0, SUMMARY_LENGTH);
+    }
+}
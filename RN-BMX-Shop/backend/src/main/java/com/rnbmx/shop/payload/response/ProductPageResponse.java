@@ -0,0 +1,25 @@
+package com.rnbmx.shop.payload.response;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class ProductPageResponse {
+    private List<ProductCardResponse> items;
+    private String nextCursor;
+    private boolean hasMore;
+    private int limit;
+    private String sort;
+    private String direction;
+
+    public ProductPageResponse(List<ProductCardResponse> items, String nextCursor, boolean hasMore, int limit, String sort,
+            String direction) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.hasMore = hasMore;
+        this.limit = limit;
+        this.sort = sort;
+        this.direction = direction;
+    }
+}
@@ -2,12 +2,38 @@ package com.rnbmx.shop.repository;
 
 import com.rnbmx.shop.model.Order;
 import com.rnbmx.shop.model.User;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface OrderRepository extends JpaRepository<Order, Long> {
-    List<Order> findByUserOrderByOrderDateDesc(User user);
+public interface OrderRepository extends JpaRepository<Order, Long>, OrderRepositoryCustom {
+    // Fetch plan per le letture: righe e prodotti nella stessa query. Il DISTINCT resta
+    // in memoria (passDistinctThrough=false) e non viene inviato a PostgreSQL
+    @EntityGraph(attributePaths = { "orderItems", "orderItems.product" })
+    @QueryHints(@QueryHint(name = "hibernate.query.passDistinctThrough", value = "false"))
+    @Query("SELECT DISTINCT o FROM Order o WHERE o.user = :user ORDER BY o.orderDate DESC, o.id DESC")
+    List<Order> findByUserOrderByOrderDateDesc(@Param("user") User user);
+
+    @EntityGraph(attributePaths = { "user", "orderItems", "orderItems.product" })
+    @QueryHints(@QueryHint(name = "hibernate.query.passDistinctThrough", value = "false"))
+    @Query("SELECT DISTINCT o FROM Order o ORDER BY o.orderDate DESC, o.id DESC")
+    List<Order> findAllWithItems();
+
+    @EntityGraph(attributePaths = { "user", "orderItems", "orderItems.product" })
+    Optional<Order> findWithItemsById(Long id);
+
+    // SELECT ... FOR UPDATE: usato solo per i cambi di stato, che possono restituire merce
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM Order o WHERE o.id = :id")
+    Optional<Order> findByIdForUpdate(@Param("id") Long id);
 }
\ No newline at end of file
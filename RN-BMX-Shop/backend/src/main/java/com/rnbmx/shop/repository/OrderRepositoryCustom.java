@@ -0,0 +1,15 @@
+package com.rnbmx.shop.repository;
+
+import com.rnbmx.shop.model.Order;
+import com.rnbmx.shop.model.OrderStatus;
+import com.rnbmx.shop.service.OrderCursor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface OrderRepositoryCustom {
+    // Pagina keyset dello storico ordini (dal più recente). I filtri null vengono ignorati.
+    // Gli ordini tornano con righe e prodotti già caricati, nell'ordine della pagina
+    List<Order> findPage(Long userId, OrderStatus status, LocalDateTime from, LocalDateTime to, OrderCursor after,
+            int limit);
+}
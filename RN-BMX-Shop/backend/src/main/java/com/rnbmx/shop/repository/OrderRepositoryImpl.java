@@ -0,0 +1,92 @@
+package com.rnbmx.shop.repository;
+
+import com.rnbmx.shop.model.Order;
+import com.rnbmx.shop.model.OrderItem;
+import com.rnbmx.shop.model.OrderStatus;
+import com.rnbmx.shop.service.OrderCursor;
+
+import javax.persistence.EntityGraph;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Subgraph;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class OrderRepositoryImpl implements OrderRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // Due query: prima gli id della pagina (servita dagli indici su user_id/status + order_date),
+    // poi gli ordini con righe e prodotti in un'unica lettura. Con un fetch della collezione
+    // e setMaxResults insieme, Hibernate paginerebbe in memoria caricando tutto lo storico.
+    @Override
+    public List<Order> findPage(Long userId, OrderStatus status, LocalDateTime from, LocalDateTime to,
+            OrderCursor after, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Order> root = query.from(Order.class);
+
+        Path<Long> id = root.get("id");
+        Path<LocalDateTime> orderDate = root.get("orderDate");
+        List<Predicate> predicates = new ArrayList<>();
+        if (userId != null) {
+            predicates.add(cb.equal(root.get("user").get("id"), userId));
+        }
+        if (status != null) {
+            predicates.add(cb.equal(root.get("status"), status));
+        }
+        if (from != null) {
+            predicates.add(cb.greaterThanOrEqualTo(orderDate, from));
+        }
+        if (to != null) {
+            predicates.add(cb.lessThan(orderDate, to));
+        }
+        if (after != null) {
+            // (order_date, id) < (dataCursore, idCursore) espresso in forma compatibile con JPQL
+            predicates.add(after.getOrderDate() == null ? cb.lessThan(id, after.getLastId())
+                    : cb.or(cb.lessThan(orderDate, after.getOrderDate()),
+                            cb.and(cb.equal(orderDate, after.getOrderDate()), cb.lessThan(id, after.getLastId()))));
+        }
+
+        query.select(id)
+                .where(predicates.toArray(new Predicate[0]))
+                .orderBy(cb.desc(orderDate), cb.desc(id));
+        List<Long> ids = entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        EntityGraph<Order> graph = entityManager.createEntityGraph(Order.class);
+        graph.addAttributeNodes("user");
+        Subgraph<OrderItem> items = graph.addSubgraph("orderItems");
+        items.addAttributeNodes("product");
+
+        List<Order> orders = entityManager
+                .createQuery("SELECT DISTINCT o FROM Order o WHERE o.id IN :ids", Order.class)
+                .setParameter("ids", ids)
+                .setHint("javax.persistence.fetchgraph", graph)
+                .getResultList();
+
+        // L'IN non conserva l'ordinamento: si riapplica quello della prima query
+        Map<Long, Integer> position = new HashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            position.put(ids.get(i), i);
+        }
+        List<Order> sorted = new ArrayList<>(orders);
+        sorted.sort(Comparator.comparing(order -> position.get(order.getId())));
+        return sorted;
+    }
+}
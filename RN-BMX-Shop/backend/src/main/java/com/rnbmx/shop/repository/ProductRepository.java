@@ -2,14 +2,42 @@ package com.rnbmx.shop.repository;
 
 import com.rnbmx.shop.model.Category;
 import com.rnbmx.shop.model.Product;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, ProductRepositoryCustom {
+    // La categoria è LAZY: le letture che restituiscono l'entità completa la caricano
+    // nella stessa query, così la serializzazione JSON non incontra proxy non inizializzati
+    @Override
+    @EntityGraph(attributePaths = "categoryEntity")
+    List<Product> findAll();
+
+    @Override
+    @EntityGraph(attributePaths = "categoryEntity")
+    Optional<Product> findById(Long id);
+
+    @EntityGraph(attributePaths = "categoryEntity")
     List<Product> findByCategoryEntity(Category category);
 
-    List<Product> findByNameContainingIgnoreCase(String name);
-}
\ No newline at end of file
+    // Servite dall'indice parziale idx_products_featured
+    @EntityGraph(attributePaths = "categoryEntity")
+    List<Product> findByFeaturedTrue(Sort sort);
+
+    @EntityGraph(attributePaths = "categoryEntity")
+    List<Product> findByFeaturedTrue(Pageable pageable);
+
+    // Solo id, disponibilità e ultima modifica: bastano allo snapshot del catalogo per
+    // recepire gli ordini senza ricaricare i prodotti. Righe [id, stock, updatedAt]
+    @Query("SELECT p.id, p.stockQuantity, p.updatedAt FROM Product p WHERE p.id IN :ids")
+    List<Object[]> findStockLevels(@Param("ids") Collection<Long> ids);
+}
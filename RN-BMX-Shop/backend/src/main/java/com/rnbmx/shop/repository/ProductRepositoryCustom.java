@@ -0,0 +1,14 @@
+package com.rnbmx.shop.repository;
+
+import com.rnbmx.shop.payload.response.ProductCardResponse;
+import com.rnbmx.shop.service.ProductCursor;
+import com.rnbmx.shop.service.ProductSortField;
+
+import java.util.List;
+
+public interface ProductRepositoryCustom {
+    // Pagina keyset: restituisce al massimo 'limit' card successive al cursore,
+    // leggendo solo le colonne necessarie alla lista
+    List<ProductCardResponse> findCardPage(Long categoryId, ProductSortField sortField, boolean ascending, ProductCursor after,
+            int limit);
+}
@@ -0,0 +1,87 @@
+package com.rnbmx.shop.repository;
+
+import com.rnbmx.shop.model.Category;
+import com.rnbmx.shop.model.Product;
+import com.rnbmx.shop.payload.response.ProductCardResponse;
+import com.rnbmx.shop.service.ProductCursor;
+import com.rnbmx.shop.service.ProductSortField;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ProductRepositoryImpl implements ProductRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<ProductCardResponse> findCardPage(Long categoryId, ProductSortField sortField, boolean ascending,
+            ProductCursor after, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ProductCardResponse> query = cb.createQuery(ProductCardResponse.class);
+        Root<Product> root = query.from(Product.class);
+        Join<Product, Category> category = root.join("categoryEntity", JoinType.LEFT);
+
+        Path<Long> id = root.get("id");
+        List<Predicate> predicates = new ArrayList<>();
+        if (categoryId != null) {
+            predicates.add(cb.equal(root.get("categoryEntity").get("id"), categoryId));
+        }
+
+        if (after != null) {
+            switch (sortField) {
+                case PRICE:
+                    predicates.add(afterKey(cb, root.<BigDecimal>get("price"), after.getPriceValue(), id,
+                            after.getLastId(), ascending));
+                    break;
+                case CREATED_AT:
+                    predicates.add(afterKey(cb, root.<LocalDateTime>get("createdAt"), after.getCreatedAtValue(), id,
+                            after.getLastId(), ascending));
+                    break;
+                default:
+                    predicates.add(ascending ? cb.greaterThan(id, after.getLastId())
+                            : cb.lessThan(id, after.getLastId()));
+            }
+        }
+
+        Path<?> sortPath = root.get(sortField.getProperty());
+        // Proiezione: la descrizione viene troncata già dal database
+        query.select(cb.construct(ProductCardResponse.class,
+                id, root.get("name"), root.get("brand"), root.get("price"), root.get("stockQuantity"),
+                root.get("imageUrl"), root.get("category"), category.get("id"), root.get("featured"),
+                root.get("createdAt"),
+                cb.substring(root.<String>get("description"), 1, ProductCardResponse.SUMMARY_LENGTH)))
+                .where(predicates.toArray(new Predicate[0]))
+                .orderBy(ascending ? cb.asc(sortPath) : cb.desc(sortPath),
+                        ascending ? cb.asc(id) : cb.desc(id));
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    // (valore, id) > (valoreCursore, idCursore) espresso in forma compatibile con JPQL
+    private static <T extends Comparable<? super T>> Predicate afterKey(CriteriaBuilder cb, Path<T> path, T value,
+            Path<Long> id, Long lastId, boolean ascending) {
+        if (value == null) {
+            return ascending ? cb.greaterThan(id, lastId) : cb.lessThan(id, lastId);
+        }
+        if (ascending) {
+            return cb.or(cb.greaterThan(path, value),
+                    cb.and(cb.equal(path, value), cb.greaterThan(id, lastId)));
+        }
+        return cb.or(cb.lessThan(path, value),
+                cb.and(cb.equal(path, value), cb.lessThan(id, lastId)));
+    }
+}
@@ -1,6 +1,7 @@
 package com.rnbmx.shop.repository;
 
 import com.rnbmx.shop.model.User;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
@@ -12,6 +13,10 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     Optional<User> findByEmail(String email);
 
+    // Lookup sull'indice univoco di email con i ruoli nella stessa query
+    @EntityGraph(attributePaths = "roles")
+    Optional<User> findWithRolesByEmail(String email);
+
     Boolean existsByUsername(String username);
 
     Boolean existsByEmail(String email);
@@ -0,0 +1,271 @@
+package com.rnbmx.shop.search;
+
+import com.rnbmx.shop.payload.response.ProductCardResponse;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Indici bitset immutabili sul catalogo per il filtro combinato e il conteggio
+// delle faccette. Ogni prodotto è identificato dalla sua posizione nella lista delle
+// card dello snapshot, che sono anche gli elementi restituiti da browse.
+public final class CatalogFacetIndex {
+
+    // Fasce di prezzo fisse mostrate come faccetta (estremo superiore escluso)
+    private static final BigDecimal[] PRICE_BOUNDS = {
+            new BigDecimal("50"), new BigDecimal("100"), new BigDecimal("250"),
+            new BigDecimal("500"), new BigDecimal("1000") };
+
+    private final List<ProductCardResponse> cards;
+    private final int size;
+    private final Map<String, BitSet> byBrand;
+    private final Map<String, BitSet> byCategory;
+    private final BitSet[] byPriceRange;
+    private final BitSet inStock;
+
+    // Posizioni ordinate per prezzo, per risolvere un intervallo con due ricerche binarie
+    private final int[] priceOrder;
+    private final BigDecimal[] sortedPrices;
+
+    public CatalogFacetIndex(List<ProductCardResponse> cards) {
+        this.cards = cards;
+        this.size = cards.size();
+        this.byBrand = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        this.byCategory = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        this.byPriceRange = new BitSet[PRICE_BOUNDS.length + 1];
+        this.inStock = new BitSet(size);
+        for (int i = 0; i < byPriceRange.length; i++) {
+            byPriceRange[i] = new BitSet(size);
+        }
+
+        List<Integer> withPrice = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            ProductCardResponse card = cards.get(i);
+            byBrand.computeIfAbsent(nullToEmpty(card.getBrand()), k -> new BitSet(size)).set(i);
+            byCategory.computeIfAbsent(nullToEmpty(card.getCategory()), k -> new BitSet(size)).set(i);
+            if (card.getStockQuantity() != null && card.getStockQuantity() > 0) {
+                inStock.set(i);
+            }
+            if (card.getPrice() != null) {
+                byPriceRange[priceRangeOf(card.getPrice())].set(i);
+                withPrice.add(i);
+            }
+        }
+
+        withPrice.sort(Comparator.comparing(i -> cards.get(i).getPrice()));
+        priceOrder = new int[withPrice.size()];
+        sortedPrices = new BigDecimal[withPrice.size()];
+        for (int k = 0; k < priceOrder.length; k++) {
+            priceOrder[k] = withPrice.get(k);
+            sortedPrices[k] = cards.get(priceOrder[k]).getPrice();
+        }
+    }
+
+    private CatalogFacetIndex(CatalogFacetIndex base, List<ProductCardResponse> cards, BitSet inStock) {
+        this.cards = cards;
+        this.size = base.size;
+        this.byBrand = base.byBrand;
+        this.byCategory = base.byCategory;
+        this.byPriceRange = base.byPriceRange;
+        this.inStock = inStock;
+        this.priceOrder = base.priceOrder;
+        this.sortedPrices = base.sortedPrices;
+    }
+
+    // Copia per una variazione di disponibilità: stesse posizioni, cambiano solo le card
+    // indicate. Gli indici per marca, categoria e prezzo non vengono mai modificati dopo la
+    // costruzione, quindi sono condivisi; si copia solo il bitset della disponibilità
+    public CatalogFacetIndex withStock(List<ProductCardResponse> cards, Collection<Integer> positions) {
+        BitSet stock = (BitSet) inStock.clone();
+        for (int position : positions) {
+            Integer quantity = cards.get(position).getStockQuantity();
+            stock.set(position, quantity != null && quantity > 0);
+        }
+        return new CatalogFacetIndex(this, cards, stock);
+    }
+
+    public Result browse(Collection<String> brands, Collection<String> categories, BigDecimal minPrice,
+            BigDecimal maxPrice, Boolean onlyInStock, int offset, int limit) {
+        BitSet brandFilter = union(byBrand, brands);
+        BitSet categoryFilter = union(byCategory, categories);
+        BitSet priceFilter = priceBetween(minPrice, maxPrice);
+        BitSet stockFilter = Boolean.TRUE.equals(onlyInStock) ? inStock : null;
+
+        BitSet matches = and(brandFilter, categoryFilter, priceFilter, stockFilter);
+
+        // Ogni faccetta si conta applicando tutti i filtri tranne il proprio,
+        // così l'utente vede quanti risultati otterrebbe cambiando quella scelta
+        Map<String, Integer> brandCounts = count(byBrand, and(null, categoryFilter, priceFilter, stockFilter));
+        Map<String, Integer> categoryCounts = count(byCategory, and(brandFilter, null, priceFilter, stockFilter));
+
+        BitSet withoutPrice = and(brandFilter, categoryFilter, null, stockFilter);
+        List<Map<String, Object>> priceCounts = new ArrayList<>();
+        for (int i = 0; i < byPriceRange.length; i++) {
+            Map<String, Object> bucket = new LinkedHashMap<>();
+            bucket.put("min", i == 0 ? BigDecimal.ZERO : PRICE_BOUNDS[i - 1]);
+            bucket.put("max", i < PRICE_BOUNDS.length ? PRICE_BOUNDS[i] : null);
+            bucket.put("count", intersectionSize(withoutPrice, byPriceRange[i]));
+            priceCounts.add(bucket);
+        }
+        int inStockCount = intersectionSize(and(brandFilter, categoryFilter, priceFilter, null), inStock);
+
+        // Card precalcolate dello snapshot: descrizione già troncata, nessuna entità completa
+        List<ProductCardResponse> items = new ArrayList<>(Math.max(0, Math.min(limit, matches.cardinality())));
+        int skipped = 0;
+        for (int i = matches.nextSetBit(0); i >= 0 && items.size() < limit; i = matches.nextSetBit(i + 1)) {
+            if (skipped++ < offset) {
+                continue;
+            }
+            items.add(cards.get(i));
+        }
+
+        return new Result(matches.cardinality(), items, brandCounts, categoryCounts, priceCounts, inStockCount);
+    }
+
+    private BitSet priceBetween(BigDecimal min, BigDecimal max) {
+        if (min == null && max == null) {
+            return null;
+        }
+        int from = min == null ? 0 : lowerBound(min);
+        int to = max == null ? sortedPrices.length : upperBound(max);
+        BitSet bits = new BitSet(size);
+        for (int k = from; k < to; k++) {
+            bits.set(priceOrder[k]);
+        }
+        return bits;
+    }
+
+    // Primo indice con prezzo >= value
+    private int lowerBound(BigDecimal value) {
+        int lo = 0;
+        int hi = sortedPrices.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sortedPrices[mid].compareTo(value) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    // Primo indice con prezzo > value
+    private int upperBound(BigDecimal value) {
+        int lo = 0;
+        int hi = sortedPrices.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sortedPrices[mid].compareTo(value) <= 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private BitSet union(Map<String, BitSet> index, Collection<String> values) {
+        if (values == null || values.isEmpty()) {
+            return null;
+        }
+        BitSet bits = new BitSet(size);
+        for (String value : values) {
+            BitSet valueBits = value != null ? index.get(value.trim()) : null;
+            if (valueBits != null) {
+                bits.or(valueBits);
+            }
+        }
+        return bits;
+    }
+
+    // AND dei filtri attivi; null significa "nessun filtro" per quella dimensione
+    private BitSet and(BitSet... filters) {
+        BitSet result = new BitSet(size);
+        result.set(0, size);
+        for (BitSet filter : filters) {
+            if (filter != null) {
+                result.and(filter);
+            }
+        }
+        return result;
+    }
+
+    private static Map<String, Integer> count(Map<String, BitSet> index, BitSet base) {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (Map.Entry<String, BitSet> entry : index.entrySet()) {
+            if (!entry.getKey().isEmpty()) {
+                counts.put(entry.getKey(), intersectionSize(base, entry.getValue()));
+            }
+        }
+        return counts;
+    }
+
+    private static int intersectionSize(BitSet a, BitSet b) {
+        BitSet copy = (BitSet) a.clone();
+        copy.and(b);
+        return copy.cardinality();
+    }
+
+    private static int priceRangeOf(BigDecimal price) {
+        for (int i = 0; i < PRICE_BOUNDS.length; i++) {
+            if (price.compareTo(PRICE_BOUNDS[i]) < 0) {
+                return i;
+            }
+        }
+        return PRICE_BOUNDS.length;
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value.trim();
+    }
+
+    public static final class Result {
+        private final int total;
+        private final List<ProductCardResponse> items;
+        private final Map<String, Integer> brands;
+        private final Map<String, Integer> categories;
+        private final List<Map<String, Object>> priceRanges;
+        private final int inStock;
+
+        Result(int total, List<ProductCardResponse> items, Map<String, Integer> brands, Map<String, Integer> categories,
+                List<Map<String, Object>> priceRanges, int inStock) {
+            this.total = total;
+            this.items = items;
+            this.brands = brands;
+            this.categories = categories;
+            this.priceRanges = priceRanges;
+            this.inStock = inStock;
+        }
+
+        public int getTotal() {
+            return total;
+        }
+
+        public List<ProductCardResponse> getItems() {
+            return items;
+        }
+
+        public Map<String, Integer> getBrands() {
+            return brands;
+        }
+
+        public Map<String, Integer> getCategories() {
+            return categories;
+        }
+
+        public List<Map<String, Object>> getPriceRanges() {
+            return priceRanges;
+        }
+
+        public int getInStock() {
+            return inStock;
+        }
+    }
+}
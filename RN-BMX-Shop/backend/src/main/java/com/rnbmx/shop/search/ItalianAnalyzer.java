@@ -0,0 +1,69 @@
+package com.rnbmx.shop.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+// Analizzatore leggero per l'italiano: normalizza accenti e maiuscole, scarta le
+// stopword e riduce ogni parola alla sua radice togliendo le desinenze di genere e numero
+// (bicicletta/biciclette -> biciclett, componente/componenti -> component).
+public final class ItalianAnalyzer {
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^a-z0-9]+");
+
+    private static final Set<String> STOPWORDS = new HashSet<>(Arrays.asList(
+            "a", "ad", "al", "alla", "alle", "agli", "ai", "all", "che", "chi", "con", "col", "da", "dal",
+            "dalla", "dalle", "dai", "dagli", "del", "della", "delle", "dei", "degli", "dell", "di", "e", "ed",
+            "gli", "i", "il", "in", "l", "la", "le", "lo", "ma", "nel", "nella", "nelle", "nei", "negli", "o",
+            "per", "piu", "se", "sul", "sulla", "sulle", "sui", "su", "tra", "fra", "un", "una", "uno"));
+
+    private ItalianAnalyzer() {
+    }
+
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        return DIACRITICS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    // Token già normalizzati e ridotti alla radice, senza stopword
+    public static List<String> analyze(String text) {
+        List<String> terms = new ArrayList<>();
+        for (String token : SEPARATORS.split(normalize(text))) {
+            if (token.isEmpty() || STOPWORDS.contains(token)) {
+                continue;
+            }
+            terms.add(stem(token));
+        }
+        return terms;
+    }
+
+    public static String stem(String token) {
+        if (token.length() <= 3 || !Character.isLetter(token.charAt(token.length() - 1))) {
+            return token;
+        }
+        // Plurali in -che/-chi e -ghe/-ghi: bianche -> bianc, larghi -> larg
+        if (token.length() > 4 && (token.endsWith("he") || token.endsWith("hi"))
+                && (token.charAt(token.length() - 3) == 'c' || token.charAt(token.length() - 3) == 'g')) {
+            return token.substring(0, token.length() - 2);
+        }
+        // Desinenze -ia/-ie/-io/-ii: accessorio/accessori -> accessor
+        if (token.length() > 5 && (token.endsWith("ie") || token.endsWith("ia") || token.endsWith("io")
+                || token.endsWith("ii"))) {
+            return token.substring(0, token.length() - 2);
+        }
+        char last = token.charAt(token.length() - 1);
+        if (last == 'a' || last == 'e' || last == 'i' || last == 'o') {
+            return token.substring(0, token.length() - 1);
+        }
+        return token;
+    }
+}
@@ -0,0 +1,227 @@
+package com.rnbmx.shop.search;
+
+import com.rnbmx.shop.model.Product;
+import com.rnbmx.shop.repository.ProductRepository;
+import com.rnbmx.shop.service.CatalogChangedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+// Indice invertito in memoria su nome, descrizione, marca e categoria dei prodotti.
+// Costruito all'avvio e aggiornato in modo incrementale ad ogni CatalogChangedEvent.
+@Component
+public class ProductSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductSearchIndex.class);
+
+    // Peso di ciascun campo nel punteggio di rilevanza
+    private static final float NAME_WEIGHT = 3.0f;
+    private static final float BRAND_WEIGHT = 2.0f;
+    private static final float CATEGORY_WEIGHT = 1.5f;
+    private static final float DESCRIPTION_WEIGHT = 1.0f;
+
+    // Le corrispondenze per prefisso (type-ahead) valgono meno di quelle esatte
+    private static final double PREFIX_FACTOR = 0.6;
+    private static final int MIN_PREFIX_LENGTH = 2;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Product> documents = new HashMap<>();
+    private final Map<Long, Map<String, Float>> documentTerms = new HashMap<>();
+    private final NavigableMap<String, Map<Long, Float>> postings = new TreeMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.nanoTime();
+        List<Product> products = productRepository.findAll();
+        int termCount;
+        lock.writeLock().lock();
+        try {
+            documents.clear();
+            documentTerms.clear();
+            postings.clear();
+            for (Product product : products) {
+                addDocument(product);
+            }
+            termCount = postings.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Indice di ricerca costruito: {} prodotti, {} termini in {} ms", products.size(),
+                termCount, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        // La disponibilità non è testo indicizzato: le variazioni di stock arrivano con ogni ordine
+        if (event.getProductId() == null || event.getType() == CatalogChangedEvent.Type.STOCK_CHANGED) {
+            return;
+        }
+        if (event.getType() == CatalogChangedEvent.Type.DELETED) {
+            remove(event.getProductId());
+        } else {
+            productRepository.findById(event.getProductId()).ifPresent(this::index);
+        }
+    }
+
+    public void index(Product product) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(product.getId());
+            addDocument(product);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Tutti i termini della query devono comparire nel prodotto; l'ultimo termine
+    // viene confrontato anche per prefisso, a meno che la query finisca con uno spazio
+    public List<Product> search(String query, int limit) {
+        List<String> terms = ItalianAnalyzer.analyze(query);
+        if (terms.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        boolean prefixLast = !Character.isWhitespace(query.charAt(query.length() - 1));
+
+        lock.readLock().lock();
+        try {
+            int documentCount = documents.size();
+            Map<Long, Double> scores = null;
+            for (int i = 0; i < terms.size(); i++) {
+                boolean prefix = prefixLast && i == terms.size() - 1;
+                Map<Long, Double> termScores = scoreTerm(terms.get(i), prefix, documentCount);
+                if (scores == null) {
+                    scores = termScores;
+                } else {
+                    Map<Long, Double> merged = new HashMap<>();
+                    for (Map.Entry<Long, Double> entry : termScores.entrySet()) {
+                        Double previous = scores.get(entry.getKey());
+                        if (previous != null) {
+                            merged.put(entry.getKey(), previous + entry.getValue());
+                        }
+                    }
+                    scores = merged;
+                }
+                if (scores.isEmpty()) {
+                    return Collections.emptyList();
+                }
+            }
+
+            return scores.entrySet().stream()
+                    .sorted(Map.Entry.<Long, Double>comparingByValue().reversed()
+                            .thenComparing(Map.Entry.<Long, Double>comparingByKey()))
+                    .limit(limit)
+                    .map(entry -> documents.get(entry.getKey()))
+                    .collect(Collectors.toList());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Map<Long, Double> scoreTerm(String term, boolean prefix, int documentCount) {
+        Map<Long, Double> termScores = new HashMap<>();
+        accumulate(termScores, term, postings.get(term), 1.0, documentCount);
+        if (prefix && term.length() >= MIN_PREFIX_LENGTH) {
+            for (Map.Entry<String, Map<Long, Float>> entry : postings
+                    .subMap(term, false, term + Character.MAX_VALUE, false).entrySet()) {
+                accumulate(termScores, entry.getKey(), entry.getValue(), PREFIX_FACTOR, documentCount);
+            }
+        }
+        return termScores;
+    }
+
+    private static void accumulate(Map<Long, Double> termScores, String term, Map<Long, Float> docs, double factor,
+            int documentCount) {
+        if (docs == null || docs.isEmpty()) {
+            return;
+        }
+        double idf = Math.log(1.0 + (double) documentCount / docs.size());
+        for (Map.Entry<Long, Float> posting : docs.entrySet()) {
+            double score = posting.getValue() * idf * factor;
+            termScores.merge(posting.getKey(), score, Math::max);
+        }
+    }
+
+    private void addDocument(Product product) {
+        if (product == null || product.getId() == null) {
+            return;
+        }
+        Map<String, Float> weights = new HashMap<>();
+        addField(weights, product.getName(), NAME_WEIGHT);
+        addField(weights, product.getBrand(), BRAND_WEIGHT);
+        addField(weights, product.getCategory(), CATEGORY_WEIGHT);
+        addField(weights, product.getDescription(), DESCRIPTION_WEIGHT);
+
+        documents.put(product.getId(), product);
+        documentTerms.put(product.getId(), weights);
+        for (Map.Entry<String, Float> entry : weights.entrySet()) {
+            postings.computeIfAbsent(entry.getKey(), t -> new HashMap<>()).put(product.getId(), entry.getValue());
+        }
+    }
+
+    private void removeDocument(Long productId) {
+        documents.remove(productId);
+        Map<String, Float> weights = documentTerms.remove(productId);
+        if (weights == null) {
+            return;
+        }
+        for (String term : weights.keySet()) {
+            Map<Long, Float> docs = postings.get(term);
+            if (docs != null) {
+                docs.remove(productId);
+                if (docs.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+
+    private static void addField(Map<String, Float> weights, String text, float weight) {
+        List<String> terms = ItalianAnalyzer.analyze(text);
+        if (terms.isEmpty()) {
+            return;
+        }
+        // Frequenza smorzata: ripetere una parola nella descrizione conta poco
+        Map<String, Integer> counts = new HashMap<>();
+        for (String term : terms) {
+            counts.merge(term, 1, Integer::sum);
+        }
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            float score = weight * (1.0f + (float) Math.log(entry.getValue()));
+            weights.merge(entry.getKey(), score, Float::sum);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.rnbmx.shop.search;
+
+// Voce di completamento restituita da /api/products/suggest. Valore immutabile letto
+// dall'indice sotto lock: la serializzazione avviene dopo, senza accedere al trie
+public final class Suggestion {
+
+    public enum Type {
+        PRODUCT,
+        BRAND,
+        CATEGORY
+    }
+
+    private final String text;
+    private final Type type;
+    private final long weight;
+
+    Suggestion(String text, Type type, long weight) {
+        this.text = text;
+        this.type = type;
+        this.weight = weight;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public long getWeight() {
+        return weight;
+    }
+}
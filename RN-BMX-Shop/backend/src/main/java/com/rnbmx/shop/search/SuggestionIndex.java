@@ -0,0 +1,501 @@
+package com.rnbmx.shop.search;
+
+import com.rnbmx.shop.model.Product;
+import com.rnbmx.shop.repository.ProductRepository;
+import com.rnbmx.shop.service.CatalogChangedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Completamento automatico servito da un radix trie in memoria con nomi prodotto,
+// marche e categorie. Ogni nodo conosce il peso massimo del proprio sottoalbero,
+// così i primi N risultati si trovano senza visitare tutto il ramo del prefisso.
+@Component
+public class SuggestionIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(SuggestionIndex.class);
+
+    public static final int MAX_LIMIT = 20;
+
+    // Le visualizzazioni vengono applicate al trie a blocchi per non prendere
+    // il lock in scrittura ad ogni richiesta di dettaglio prodotto
+    static final int VIEW_FLUSH_THRESHOLD = 100;
+
+    // Numero massimo di parole iniziali da cui far partire il completamento
+    private static final int MAX_WORD_STARTS = 6;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Node root = new Node("");
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final Map<Long, List<String>> productEntries = new HashMap<>();
+
+    private final ConcurrentHashMap<Long, Long> pendingViews = new ConcurrentHashMap<>();
+    private final AtomicInteger pendingViewCount = new AtomicInteger();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.nanoTime();
+        List<Product> products = productRepository.findAll();
+        int count;
+        lock.writeLock().lock();
+        try {
+            root.children.clear();
+            root.terminals.clear();
+            root.best = 0;
+            entries.clear();
+            productEntries.clear();
+            for (Product product : products) {
+                addProduct(product);
+            }
+            count = entries.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Indice di completamento costruito: {} voci in {} ms", count,
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        // I suggerimenti non mostrano la disponibilità
+        if (event.getProductId() == null || event.getType() == CatalogChangedEvent.Type.STOCK_CHANGED) {
+            return;
+        }
+        Product product = event.getType() == CatalogChangedEvent.Type.DELETED ? null
+                : productRepository.findById(event.getProductId()).orElse(null);
+        if (product != null) {
+            index(product);
+        } else {
+            remove(event.getProductId());
+        }
+    }
+
+    // Dopo una modifica si toccano solo le voci il cui testo è cambiato: quelle rimaste
+    // uguali conservano riferimenti e visualizzazioni. Se il prodotto è rinominato e il
+    // vecchio nome non è usato da altri, le sue visualizzazioni passano al nome nuovo
+    public void index(Product product) {
+        if (product == null || product.getId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            List<String> previous = productEntries.getOrDefault(product.getId(), Collections.emptyList());
+            Map<String, String> current = entryTexts(product);
+
+            long carriedViews = 0;
+            for (String id : previous) {
+                if (!current.containsKey(id)) {
+                    Entry dropped = release(id);
+                    if (dropped != null && dropped.type == Suggestion.Type.PRODUCT) {
+                        carriedViews += dropped.views;
+                    }
+                }
+            }
+            for (Map.Entry<String, String> text : current.entrySet()) {
+                if (previous.contains(text.getKey())) {
+                    continue;
+                }
+                Entry entry = acquire(text.getKey(), text.getValue());
+                if (entry.type == Suggestion.Type.PRODUCT && carriedViews > 0) {
+                    entry.views += carriedViews;
+                    refreshKeys(entry);
+                }
+            }
+            if (current.isEmpty()) {
+                productEntries.remove(product.getId());
+            } else {
+                productEntries.put(product.getId(), new ArrayList<>(current.keySet()));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            removeProduct(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<Suggestion> suggest(String prefix, int limit) {
+        String key = normalizePrefix(prefix);
+        int max = Math.min(limit, MAX_LIMIT);
+        if (key.isEmpty() || max <= 0) {
+            return Collections.emptyList();
+        }
+
+        lock.readLock().lock();
+        try {
+            StringBuilder path = new StringBuilder();
+            Node start = findPrefix(key, path);
+            if (start == null) {
+                return Collections.emptyList();
+            }
+
+            // Visita best-first: un nodo non può contenere voci più pesanti del suo 'best'
+            PriorityQueue<Candidate> queue = new PriorityQueue<>(Candidate.ORDER);
+            queue.add(new Candidate(start.best, path.toString(), start, null));
+            Set<Entry> seen = new HashSet<>();
+            List<Suggestion> result = new ArrayList<>(max);
+            while (!queue.isEmpty() && result.size() < max) {
+                Candidate candidate = queue.poll();
+                if (candidate.entry != null) {
+                    // Copia dei valori correnti: l'entry resta modificabile solo sotto il lock in scrittura
+                    if (seen.add(candidate.entry)) {
+                        result.add(new Suggestion(candidate.entry.text, candidate.entry.type, candidate.weight));
+                    }
+                    continue;
+                }
+                for (Entry entry : candidate.node.terminals) {
+                    queue.add(new Candidate(entry.weight(), candidate.key, null, entry));
+                }
+                for (Node child : candidate.node.children.values()) {
+                    queue.add(new Candidate(child.best, candidate.key + child.label, child, null));
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void recordView(Long productId) {
+        if (productId == null) {
+            return;
+        }
+        pendingViews.merge(productId, 1L, Long::sum);
+        if (pendingViewCount.incrementAndGet() >= VIEW_FLUSH_THRESHOLD) {
+            flushViews();
+        }
+    }
+
+    // Nodi del trie, radice esclusa: serve ai test per verificare che resti compresso
+    int nodeCount() {
+        lock.readLock().lock();
+        try {
+            return countNodes(root) - 1;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static int countNodes(Node node) {
+        int count = 1;
+        for (Node child : node.children.values()) {
+            count += countNodes(child);
+        }
+        return count;
+    }
+
+    private void flushViews() {
+        // Se un altro thread sta scrivendo, le visualizzazioni restano in attesa del prossimo giro
+        if (!lock.writeLock().tryLock()) {
+            return;
+        }
+        try {
+            pendingViewCount.set(0);
+            for (Long productId : new ArrayList<>(pendingViews.keySet())) {
+                Long views = pendingViews.remove(productId);
+                List<String> ids = productEntries.get(productId);
+                if (views == null || ids == null) {
+                    continue;
+                }
+                for (String id : ids) {
+                    Entry entry = entries.get(id);
+                    if (entry != null && entry.type == Suggestion.Type.PRODUCT) {
+                        entry.views += views;
+                        refreshKeys(entry);
+                    }
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void addProduct(Product product) {
+        if (product == null || product.getId() == null) {
+            return;
+        }
+        Map<String, String> texts = entryTexts(product);
+        for (Map.Entry<String, String> text : texts.entrySet()) {
+            acquire(text.getKey(), text.getValue());
+        }
+        if (!texts.isEmpty()) {
+            productEntries.put(product.getId(), new ArrayList<>(texts.keySet()));
+        }
+    }
+
+    // Voci di un prodotto: id "TIPO:testo normalizzato" -> testo da mostrare
+    private static Map<String, String> entryTexts(Product product) {
+        Map<String, String> texts = new LinkedHashMap<>();
+        putEntryText(texts, product.getName(), Suggestion.Type.PRODUCT);
+        putEntryText(texts, product.getBrand(), Suggestion.Type.BRAND);
+        putEntryText(texts, product.getCategory(), Suggestion.Type.CATEGORY);
+        return texts;
+    }
+
+    private static void putEntryText(Map<String, String> texts, String text, Suggestion.Type type) {
+        String normalized = normalizePrefix(text).trim();
+        if (!normalized.isEmpty()) {
+            texts.put(type.name() + ":" + normalized, text.trim());
+        }
+    }
+
+    // Un riferimento in più alla voce, creata e inserita nel trie se non esiste
+    private Entry acquire(String id, String text) {
+        Entry entry = entries.get(id);
+        boolean created = entry == null;
+        if (created) {
+            entry = new Entry(text, Suggestion.Type.valueOf(id.substring(0, id.indexOf(':'))));
+            entries.put(id, entry);
+        }
+        entry.references++;
+        for (String key : keysFor(id.substring(id.indexOf(':') + 1))) {
+            if (created) {
+                insert(root, key, entry);
+            } else {
+                refresh(root, key);
+            }
+        }
+        return entry;
+    }
+
+    // Un riferimento in meno; restituisce la voce se era l'ultimo ed è stata tolta dal trie
+    private Entry release(String id) {
+        Entry entry = entries.get(id);
+        if (entry == null) {
+            return null;
+        }
+        entry.references--;
+        for (String key : keysFor(id.substring(id.indexOf(':') + 1))) {
+            if (entry.references <= 0) {
+                remove(root, key, entry);
+            } else {
+                refresh(root, key);
+            }
+        }
+        if (entry.references > 0) {
+            return null;
+        }
+        entries.remove(id);
+        return entry;
+    }
+
+    private void removeProduct(Long productId) {
+        List<String> ids = productEntries.remove(productId);
+        if (ids == null) {
+            return;
+        }
+        for (String id : ids) {
+            release(id);
+        }
+    }
+
+    private void refreshKeys(Entry entry) {
+        for (String key : keysFor(normalizePrefix(entry.text).trim())) {
+            refresh(root, key);
+        }
+    }
+
+    // "bmx freestyle elite" -> "bmx freestyle elite", "freestyle elite", "elite"
+    private static List<String> keysFor(String normalized) {
+        String[] words = normalized.split(" ");
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < words.length && i < MAX_WORD_STARTS; i++) {
+            keys.add(String.join(" ", Arrays.asList(words).subList(i, words.length)));
+        }
+        return keys;
+    }
+
+    private static String normalizePrefix(String text) {
+        String normalized = ItalianAnalyzer.normalize(text).replaceAll("[^a-z0-9]+", " ");
+        int start = 0;
+        while (start < normalized.length() && normalized.charAt(start) == ' ') {
+            start++;
+        }
+        return normalized.substring(start);
+    }
+
+    // Restituisce il nodo che contiene il prefisso e ne scrive in 'path' il percorso completo
+    private Node findPrefix(String prefix, StringBuilder path) {
+        Node node = root;
+        String rest = prefix;
+        while (!rest.isEmpty()) {
+            Node child = node.children.get(rest.charAt(0));
+            if (child == null) {
+                return null;
+            }
+            if (rest.length() <= child.label.length()) {
+                path.append(child.label);
+                return child.label.startsWith(rest) ? child : null;
+            }
+            if (!rest.startsWith(child.label)) {
+                return null;
+            }
+            path.append(child.label);
+            rest = rest.substring(child.label.length());
+            node = child;
+        }
+        return node;
+    }
+
+    private static void insert(Node node, String rest, Entry entry) {
+        if (rest.isEmpty()) {
+            node.terminals.add(entry);
+            node.updateBest();
+            return;
+        }
+        Node child = node.children.get(rest.charAt(0));
+        if (child == null) {
+            child = new Node(rest);
+            child.terminals.add(entry);
+            child.updateBest();
+            node.children.put(rest.charAt(0), child);
+            node.updateBest();
+            return;
+        }
+        int common = commonPrefixLength(child.label, rest);
+        if (common < child.label.length()) {
+            // Divide l'arco: il nuovo nodo intermedio contiene il prefisso comune
+            Node middle = new Node(child.label.substring(0, common));
+            child.label = child.label.substring(common);
+            middle.children.put(child.label.charAt(0), child);
+            middle.updateBest();
+            node.children.put(middle.label.charAt(0), middle);
+            child = middle;
+        }
+        insert(child, rest.substring(common), entry);
+        node.updateBest();
+    }
+
+    private static void remove(Node node, String rest, Entry entry) {
+        if (rest.isEmpty()) {
+            node.terminals.remove(entry);
+            node.updateBest();
+            return;
+        }
+        char first = rest.charAt(0);
+        Node child = node.children.get(first);
+        if (child == null || !rest.startsWith(child.label)) {
+            return;
+        }
+        remove(child, rest.substring(child.label.length()), entry);
+        if (child.terminals.isEmpty() && child.children.isEmpty()) {
+            node.children.remove(first);
+        } else if (child.terminals.isEmpty() && child.children.size() == 1) {
+            // Riunisce gli archi per mantenere il trie compresso
+            Node only = child.children.values().iterator().next();
+            only.label = child.label + only.label;
+            node.children.put(first, only);
+        }
+        node.updateBest();
+    }
+
+    private static void refresh(Node node, String rest) {
+        if (!rest.isEmpty()) {
+            Node child = node.children.get(rest.charAt(0));
+            if (child != null && rest.startsWith(child.label)) {
+                refresh(child, rest.substring(child.label.length()));
+            }
+        }
+        node.updateBest();
+    }
+
+    private static int commonPrefixLength(String a, String b) {
+        int max = Math.min(a.length(), b.length());
+        int i = 0;
+        while (i < max && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static final class Node {
+        String label;
+        final Map<Character, Node> children = new HashMap<>();
+        final Set<Entry> terminals = new HashSet<>();
+        long best;
+
+        Node(String label) {
+            this.label = label;
+        }
+
+        void updateBest() {
+            long max = 0;
+            for (Entry entry : terminals) {
+                max = Math.max(max, entry.weight());
+            }
+            for (Node child : children.values()) {
+                max = Math.max(max, child.best);
+            }
+            best = max;
+        }
+    }
+
+    private static final class Candidate {
+        // Peso decrescente; a parità, chiave in ordine alfabetico. Il percorso di un nodo precede
+        // tutte le chiavi del suo sottoalbero, quindi le voci di pari peso escono già ordinate
+        static final Comparator<Candidate> ORDER = Comparator
+                .comparingLong((Candidate c) -> -c.weight)
+                .thenComparing(c -> c.key)
+                .thenComparing(c -> c.entry == null)
+                .thenComparing(c -> c.entry != null ? c.entry.text : "");
+
+        final long weight;
+        final String key;
+        final Node node;
+        final Entry entry;
+
+        Candidate(long weight, String key, Node node, Entry entry) {
+            this.weight = weight;
+            this.key = key;
+            this.node = node;
+            this.entry = entry;
+        }
+    }
+
+    // Voce del trie: riferimenti e visualizzazioni cambiano solo sotto il lock in scrittura
+    private static final class Entry {
+        final String text;
+        final Suggestion.Type type;
+
+        // Numero di prodotti che portano questa voce e visualizzazioni registrate
+        long references;
+        long views;
+
+        Entry(String text, Suggestion.Type type) {
+            this.text = text;
+            this.type = type;
+        }
+
+        long weight() {
+            return references * 10 + views;
+        }
+    }
+}
@@ -17,7 +17,9 @@ import org.springframework.security.web.authentication.WebAuthenticationDetailsS
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
+import com.rnbmx.shop.security.services.UserDetailsImpl;
 import com.rnbmx.shop.security.services.UserDetailsServiceImpl;
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.MalformedJwtException;
 import io.jsonwebtoken.SignatureException;
@@ -30,8 +32,20 @@ public class AuthTokenFilter extends OncePerRequestFilter {
     @Autowired
     private UserDetailsServiceImpl userDetailsService;
 
+    @Autowired
+    private VerifiedTokenCache tokenCache;
+
+    @Autowired
+    private PublicPathMatcher publicPathMatcher;
+
     private static final Logger logger = LoggerFactory.getLogger(AuthTokenFilter.class);
 
+    // Letture anonime del catalogo: nessun parsing del token, l'header Authorization non serve
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return publicPathMatcher.isAnonymousRead(request);
+    }
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
@@ -42,11 +56,23 @@ public class AuthTokenFilter extends OncePerRequestFilter {
 
         try {
             String jwt = parseJwt(request);
-            if (jwt != null && jwtUtils.validateJwtToken(jwt)) {
-                String username = jwtUtils.getUserNameFromJwtToken(jwt);
-                logger.info("Utente estratto dal token: {}", username);
-
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+            // Token già verificato in precedenza: niente parsing né verifica della firma
+            VerifiedTokenCache.VerifiedToken verified = jwt != null ? tokenCache.get(jwt) : null;
+            if (verified == null && jwt != null) {
+                Claims claims = jwtUtils.getValidatedClaims(jwt);
+                if (claims != null) {
+                    verified = tokenCache.put(jwt, claims);
+                }
+            }
+            if (verified != null && !verified.isRefresh() && !tokenCache.isRevoked(verified.getTokenId())) {
+                String username = verified.getSubject();
+                logger.debug("Utente estratto dal token: {}", username);
+
+                // In modalità stateless id e ruoli arrivano dal token firmato: nessun accesso al DB
+                UserDetails userDetails = jwtUtils.isStateless() && verified.getUserId() != null
+                        && !verified.getRoles().isEmpty()
+                                ? UserDetailsImpl.fromToken(verified.getUserId(), username, verified.getRoles())
+                                : userDetailsService.loadUserForToken(username);
                 UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
                         userDetails, null, userDetails.getAuthorities());
                 authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
@@ -62,7 +88,7 @@ public class AuthTokenFilter extends OncePerRequestFilter {
                 }
             } else if (jwt != null) {
                 // Token presente ma non valido, log solo a livello debug per risorse pubbliche
-                if (path.startsWith("/api/products")) {
+                if (publicPathMatcher.isPublic(request)) {
                     logger.debug("Token non valido per risorsa pubblica: {}", path);
                 } else {
                     logger.warn("Token non valido per risorsa protetta: {}", path);
@@ -70,7 +96,7 @@ public class AuthTokenFilter extends OncePerRequestFilter {
             }
         } catch (SignatureException e) {
             // Non bloccare le richieste pubbliche
-            if (!isPublicResource(path)) {
+            if (!publicPathMatcher.isPublic(request)) {
                 logger.error("Firma JWT non valida: {}", e.getMessage());
                 response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
                 response.getWriter().write("{\"message\":\"JWT signature does not match\"}");
@@ -78,7 +104,7 @@ public class AuthTokenFilter extends OncePerRequestFilter {
             }
             logger.debug("Firma JWT non valida per risorsa pubblica: {}", e.getMessage());
         } catch (MalformedJwtException e) {
-            if (!isPublicResource(path)) {
+            if (!publicPathMatcher.isPublic(request)) {
                 logger.error("Token JWT non valido: {}", e.getMessage());
                 response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
                 response.getWriter().write("{\"message\":\"Invalid JWT token\"}");
@@ -86,7 +112,7 @@ public class AuthTokenFilter extends OncePerRequestFilter {
             }
             logger.debug("Token JWT non valido per risorsa pubblica: {}", e.getMessage());
         } catch (ExpiredJwtException e) {
-            if (!isPublicResource(path)) {
+            if (!publicPathMatcher.isPublic(request)) {
                 logger.error("Token JWT scaduto: {}", e.getMessage());
                 response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
                 response.getWriter().write("{\"message\":\"JWT token is expired\"}");
@@ -94,7 +120,7 @@ public class AuthTokenFilter extends OncePerRequestFilter {
             }
             logger.debug("Token JWT scaduto per risorsa pubblica: {}", e.getMessage());
         } catch (UnsupportedJwtException e) {
-            if (!isPublicResource(path)) {
+            if (!publicPathMatcher.isPublic(request)) {
                 logger.error("Token JWT non supportato: {}", e.getMessage());
                 response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
                 response.getWriter().write("{\"message\":\"JWT token is unsupported\"}");
@@ -102,7 +128,7 @@ public class AuthTokenFilter extends OncePerRequestFilter {
             }
             logger.debug("Token JWT non supportato per risorsa pubblica: {}", e.getMessage());
         } catch (IllegalArgumentException e) {
-            if (!isPublicResource(path)) {
+            if (!publicPathMatcher.isPublic(request)) {
                 logger.error("Il claim del token JWT è vuoto: {}", e.getMessage());
                 response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
                 response.getWriter().write("{\"message\":\"JWT claims string is empty\"}");
@@ -111,7 +137,7 @@ public class AuthTokenFilter extends OncePerRequestFilter {
             logger.debug("JWT claims vuoto per risorsa pubblica: {}", e.getMessage());
         } catch (Exception e) {
             // Non bloccare le risorse pubbliche
-            if (!isPublicResource(path)) {
+            if (!publicPathMatcher.isPublic(request)) {
                 logger.error("Impossibile impostare l'autenticazione utente: {}", e.getMessage());
             } else {
                 logger.debug("Errore di autenticazione per risorsa pubblica: {}", e.getMessage());
@@ -130,15 +156,4 @@ public class AuthTokenFilter extends OncePerRequestFilter {
 
         return null;
     }
-
-    // Metodo per verificare se un percorso è una risorsa pubblica
-    private boolean isPublicResource(String path) {
-        return path.startsWith("/api/products") ||
-                path.startsWith("/api/auth") ||
-                path.startsWith("/api/public") ||
-                path.startsWith("/api/debug") ||
-                path.startsWith("/api/debug-login") ||
-                path.startsWith("/api/categories") ||
-                path.startsWith("/api/reviews/product");
-    }
-}
\ No newline at end of file
+}
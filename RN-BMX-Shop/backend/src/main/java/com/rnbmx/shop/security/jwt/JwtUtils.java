@@ -2,8 +2,12 @@ package com.rnbmx.shop.security.jwt;
 
 import java.util.Date;
 import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
 
 import javax.annotation.PostConstruct;
+import javax.crypto.SecretKey;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -27,8 +31,29 @@ public class JwtUtils {
     @Value("${bmx.app.jwtExpirationMs}")
     private int jwtExpirationMs;
 
+    // Modalità stateless: id e ruoli firmati nel token, nessuna lettura dal DB per richiesta.
+    // L'access token dura poco e si rinnova con il refresh token, che rilegge i ruoli dal DB.
+    @Value("${bmx.app.auth.stateless:false}")
+    private boolean stateless;
+
+    @Value("${bmx.app.jwtAccessExpirationMs:900000}")
+    private long jwtAccessExpirationMs;
+
+    @Value("${bmx.app.jwtRefreshExpirationMs:604800000}")
+    private long jwtRefreshExpirationMs;
+
+    public static final String CLAIM_USER_ID = "id";
+    public static final String CLAIM_ROLES = "roles";
+    public static final String CLAIM_TYPE = "typ";
+    public static final String TYPE_ACCESS = "access";
+    public static final String TYPE_REFRESH = "refresh";
+
     private byte[] secretKeyBytes;
 
+    // Chiave e parser sono immutabili e thread-safe: costruiti una sola volta
+    private SecretKey signingKey;
+    private JwtParser jwtParser;
+
     @PostConstruct
     public void init() {
         // Verifichiamo la lunghezza della chiave configurata
@@ -56,45 +81,77 @@ public class JwtUtils {
             secretKeyBytes = existingKey;
             logger.info("Chiave JWT configurata ha una lunghezza sufficiente");
         }
+
+        signingKey = Keys.hmacShaKeyFor(secretKeyBytes);
+        jwtParser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
     }
 
     public String generateJwtToken(Authentication authentication) {
-        UserDetailsImpl userPrincipal = (UserDetailsImpl) authentication.getPrincipal();
+        return generateJwtToken((UserDetailsImpl) authentication.getPrincipal());
+    }
 
+    // Metodo aggiuntivo per generare token direttamente da UserDetailsImpl
+    public String generateJwtToken(UserDetailsImpl userPrincipal) {
+        List<String> roles = userPrincipal.getAuthorities().stream()
+                .map(authority -> authority.getAuthority())
+                .collect(Collectors.toList());
+        long expirationMs = stateless ? jwtAccessExpirationMs : jwtExpirationMs;
+        Date now = new Date();
+
+        // Il jti identifica il token nelle revoche al logout
         return Jwts.builder()
                 .setSubject((userPrincipal.getEmail()))
-                .setIssuedAt(new Date())
-                .setExpiration(new Date((new Date()).getTime() + jwtExpirationMs))
-                .signWith(Keys.hmacShaKeyFor(secretKeyBytes), SignatureAlgorithm.HS512)
+                .setId(UUID.randomUUID().toString())
+                .claim(CLAIM_TYPE, TYPE_ACCESS)
+                .claim(CLAIM_USER_ID, userPrincipal.getId())
+                .claim(CLAIM_ROLES, roles)
+                .setIssuedAt(now)
+                .setExpiration(new Date(now.getTime() + expirationMs))
+                .signWith(signingKey, SignatureAlgorithm.HS512)
                 .compact();
     }
 
-    // Metodo aggiuntivo per generare token direttamente da UserDetailsImpl
-    public String generateJwtToken(UserDetailsImpl userPrincipal) {
+    // Il refresh token non porta ruoli: al rinnovo l'utente viene riletto dal DB
+    public String generateRefreshToken(UserDetailsImpl userPrincipal) {
+        Date now = new Date();
+
         return Jwts.builder()
                 .setSubject((userPrincipal.getEmail()))
-                .setIssuedAt(new Date())
-                .setExpiration(new Date((new Date()).getTime() + jwtExpirationMs))
-                .signWith(Keys.hmacShaKeyFor(secretKeyBytes), SignatureAlgorithm.HS512)
+                .setId(UUID.randomUUID().toString())
+                .claim(CLAIM_TYPE, TYPE_REFRESH)
+                .setIssuedAt(now)
+                .setExpiration(new Date(now.getTime() + jwtRefreshExpirationMs))
+                .signWith(signingKey, SignatureAlgorithm.HS512)
                 .compact();
     }
 
+    public boolean isStateless() {
+        return stateless;
+    }
+
+    public static boolean isRefreshToken(Claims claims) {
+        return TYPE_REFRESH.equals(claims.get(CLAIM_TYPE, String.class));
+    }
+
     public String getUserNameFromJwtToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(Keys.hmacShaKeyFor(secretKeyBytes))
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .getSubject();
+        return parseClaims(token).getSubject();
+    }
+
+    // Verifica firma e scadenza e restituisce i claims; lancia JwtException se il token non è valido
+    public Claims parseClaims(String token) {
+        return jwtParser.parseClaimsJws(token).getBody();
     }
 
     public boolean validateJwtToken(String authToken) {
+        return getValidatedClaims(authToken) != null;
+    }
+
+    // Validazione e lettura dei claims con un solo parsing: restituisce null se il token non è valido
+    public Claims getValidatedClaims(String authToken) {
         try {
-            Jwts.parserBuilder()
-                    .setSigningKey(Keys.hmacShaKeyFor(secretKeyBytes))
-                    .build()
-                    .parseClaimsJws(authToken);
-            return true;
+            return parseClaims(authToken);
         } catch (SignatureException e) {
             logger.error("Firma JWT non valida: {}", e.getMessage());
         } catch (MalformedJwtException e) {
@@ -107,6 +164,6 @@ public class JwtUtils {
             logger.error("Claims JWT vuoto: {}", e.getMessage());
         }
 
-        return false;
+        return null;
     }
 }
\ No newline at end of file
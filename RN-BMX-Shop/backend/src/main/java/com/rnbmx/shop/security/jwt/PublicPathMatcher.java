@@ -0,0 +1,132 @@
+package com.rnbmx.shop.security.jwt;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.security.web.util.matcher.RequestMatcher;
+
+// Regole di accesso dei percorsi pubblici, compilate una sola volta in un trie per
+// segmenti di percorso. Lo stesso oggetto decide i permitAll di WebSecurityConfig e
+// la tolleranza ai token non validi di AuthTokenFilter; il livello calcolato viene
+// salvato come attributo della richiesta, così ogni richiesta viene analizzata una volta.
+//
+// Pattern supportati: "/a/b" (esatto), "/a/*" (un segmento qualsiasi), "/a/**"
+// (il percorso e tutto ciò che sta sotto). A parità di percorso vince la regola più specifica.
+public class PublicPathMatcher {
+
+    public enum Access {
+        // Autenticazione richiesta
+        PROTECTED,
+        // Autenticazione richiesta da Spring, ma un token non valido non blocca il filtro JWT
+        TOKEN_OPTIONAL,
+        // Accesso libero (permitAll)
+        PERMIT_ALL,
+        // Accesso libero e, per le richieste di sola lettura, nessun parsing del token
+        ANONYMOUS_READ
+    }
+
+    private static final String ACCESS_ATTRIBUTE = PublicPathMatcher.class.getName() + ".ACCESS";
+
+    private final Node root = new Node();
+
+    public PublicPathMatcher add(String pattern, Access access) {
+        if (!pattern.startsWith("/")) {
+            throw new IllegalArgumentException("Il pattern deve iniziare con '/': " + pattern);
+        }
+
+        Node node = root;
+        String[] segments = pattern.substring(1).split("/", -1);
+        for (int i = 0; i < segments.length; i++) {
+            String segment = segments[i];
+            if ("**".equals(segment)) {
+                if (i != segments.length - 1) {
+                    throw new IllegalArgumentException("'**' è ammesso solo in fondo al pattern: " + pattern);
+                }
+                node.subtree = access;
+                return this;
+            }
+            node = "*".equals(segment)
+                    ? (node.wildcard != null ? node.wildcard : (node.wildcard = new Node()))
+                    : node.children.computeIfAbsent(segment, s -> new Node());
+        }
+        node.exact = access;
+        return this;
+    }
+
+    public Access match(String path) {
+        if (path == null || !path.startsWith("/")) {
+            return Access.PROTECTED;
+        }
+        Access access = match(root, path, 1);
+        return access != null ? access : Access.PROTECTED;
+    }
+
+    public Access match(HttpServletRequest request) {
+        Object cached = request.getAttribute(ACCESS_ATTRIBUTE);
+        if (cached instanceof Access) {
+            return (Access) cached;
+        }
+        Access access = match(pathOf(request));
+        request.setAttribute(ACCESS_ATTRIBUTE, access);
+        return access;
+    }
+
+    // Risorse per cui un token non valido non produce un 401 dal filtro JWT
+    public boolean isPublic(HttpServletRequest request) {
+        return match(request) != Access.PROTECTED;
+    }
+
+    // Letture del catalogo: il token non serve, il filtro JWT può essere saltato
+    public boolean isAnonymousRead(HttpServletRequest request) {
+        String method = request.getMethod();
+        return ("GET".equals(method) || "HEAD".equals(method) || "OPTIONS".equals(method))
+                && match(request) == Access.ANONYMOUS_READ;
+    }
+
+    // Matcher per authorizeHttpRequests(...).permitAll()
+    public RequestMatcher permitAllMatcher() {
+        return request -> match(request).compareTo(Access.PERMIT_ALL) >= 0;
+    }
+
+    // Stesso percorso usato da AntPathRequestMatcher: servlet path più eventuale path info
+    private static String pathOf(HttpServletRequest request) {
+        String path = request.getServletPath();
+        if (path == null || path.isEmpty()) {
+            path = request.getRequestURI().substring(request.getContextPath().length());
+        }
+        String pathInfo = request.getPathInfo();
+        return pathInfo != null ? path + pathInfo : path;
+    }
+
+    // Scorre il percorso segmento per segmento senza creare array; prova prima il
+    // segmento letterale, poi "*", e infine ricade sull'eventuale "**" del nodo
+    private static Access match(Node node, String path, int start) {
+        if (start > path.length()) {
+            return node.exact != null ? node.exact : node.subtree;
+        }
+
+        int end = path.indexOf('/', start);
+        if (end < 0) {
+            end = path.length();
+        }
+
+        Access access = null;
+        Node literal = node.children.get(path.substring(start, end));
+        if (literal != null) {
+            access = match(literal, path, end + 1);
+        }
+        if (access == null && node.wildcard != null) {
+            access = match(node.wildcard, path, end + 1);
+        }
+        return access != null ? access : node.subtree;
+    }
+
+    private static final class Node {
+        private final Map<String, Node> children = new HashMap<>();
+        private Node wildcard;
+        private Access exact;
+        private Access subtree;
+    }
+}
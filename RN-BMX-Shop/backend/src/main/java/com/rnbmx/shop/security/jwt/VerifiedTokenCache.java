@@ -0,0 +1,238 @@
+package com.rnbmx.shop.security.jwt;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.rnbmx.shop.security.services.UserSecurityChangedEvent;
+
+import io.jsonwebtoken.Claims;
+
+// Token JWT già verificati, indicizzati per hash SHA-256 del token (il token in
+// chiaro non viene mai memorizzato). Così la firma HS512 si verifica una volta
+// per token invece che ad ogni richiesta. Le voci scadono con il token; oltre
+// maxEntries esce la voce inserita per prima (i token hanno tutti la stessa durata,
+// quindi è anche quella più vicina alla scadenza), senza scansioni della mappa.
+//
+// Le revoche degli access token (logout) sono una struttura a parte, per jti, anche
+// questa limitata: ogni revoca dura fino alla scadenza del token e poi viene scartata.
+@Component
+public class VerifiedTokenCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(VerifiedTokenCache.class);
+
+    @Value("${bmx.app.tokenCache.maxEntries:10000}")
+    private int maxEntries;
+
+    @Value("${bmx.app.tokenCache.maxRevocations:100000}")
+    private int maxRevocations;
+
+    private final Map<String, VerifiedToken> entries = new ConcurrentHashMap<>();
+
+    // Chiavi in ordine di inserimento. Può contenere chiavi già rimosse (scadute o
+    // invalidate): vengono scartate quando arrivano in testa
+    private final Queue<String> insertionOrder = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queuedKeys = new AtomicInteger();
+
+    // jti -> scadenza del token revocato; l'ordine delle revoche è protetto dal proprio lock
+    private final Map<String, Long> revokedUntil = new ConcurrentHashMap<>();
+    private final Deque<String> revocationOrder = new ArrayDeque<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong droppedRevocations = new AtomicLong();
+
+    // Restituisce il token verificato, oppure null se non è in cache o è scaduto
+    public VerifiedToken get(String token) {
+        String key = hash(token);
+        VerifiedToken cached = entries.get(key);
+        if (cached == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        if (cached.isExpired(System.currentTimeMillis())) {
+            entries.remove(key, cached);
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return cached;
+    }
+
+    // Da chiamare solo con claims appena verificati da JwtUtils
+    public VerifiedToken put(String token, Claims claims) {
+        String key = hash(token);
+        VerifiedToken verified = new VerifiedToken(claims, claims.getId() != null ? claims.getId() : key);
+        VerifiedToken previous = entries.putIfAbsent(key, verified);
+        if (previous != null) {
+            return previous;
+        }
+        insertionOrder.add(key);
+        queuedKeys.incrementAndGet();
+        evict();
+        return verified;
+    }
+
+    // Revoca il token fino alla sua scadenza naturale. Restituisce true solo alla
+    // chiamata che lo ha revocato: due revoche concorrenti non possono vincere entrambe
+    public boolean revoke(String token, Claims claims) {
+        String tokenId = claims.getId() != null ? claims.getId() : hash(token);
+        long expiresAt = claims.getExpiration() != null ? claims.getExpiration().getTime() : Long.MAX_VALUE;
+        if (revokedUntil.putIfAbsent(tokenId, expiresAt) != null) {
+            return false;
+        }
+        synchronized (revocationOrder) {
+            revocationOrder.addLast(tokenId);
+            long now = System.currentTimeMillis();
+            // Escono le revoche già scadute in testa e, oltre il limite, le più vecchie
+            while (!revocationOrder.isEmpty()) {
+                String oldest = revocationOrder.peekFirst();
+                Long until = revokedUntil.get(oldest);
+                boolean expired = until == null || until <= now;
+                if (!expired && revokedUntil.size() <= maxRevocations) {
+                    break;
+                }
+                revocationOrder.pollFirst();
+                revokedUntil.remove(oldest);
+                if (!expired) {
+                    droppedRevocations.incrementAndGet();
+                    logger.warn("Limite di {} revoche raggiunto: scartata una revoca non ancora scaduta",
+                            maxRevocations);
+                }
+            }
+        }
+        return true;
+    }
+
+    public boolean isRevoked(String tokenId) {
+        Long until = tokenId != null ? revokedUntil.get(tokenId) : null;
+        return until != null && until > System.currentTimeMillis();
+    }
+
+    // Cambio ruoli, password o eliminazione: i token dell'utente vanno riverificati
+    public void invalidateSubject(String subject) {
+        entries.values().removeIf(token -> token.getSubject().equals(subject));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserSecurityChanged(UserSecurityChangedEvent event) {
+        // I dati anagrafici non sono nel token
+        if (event.getReason() == UserSecurityChangedEvent.Reason.PROFILE_UPDATED) {
+            return;
+        }
+        logger.debug("Invalidazione token in cache per {} ({})", event.getEmail(), event.getReason());
+        invalidateSubject(event.getEmail());
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("entries", entries.size());
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("revocations", revokedUntil.size());
+        stats.put("droppedRevocations", droppedRevocations.get());
+        return stats;
+    }
+
+    // Ogni inserimento toglie al più poche chiavi dalla testa della coda: O(1) ammortizzato.
+    // La coda resta entro il doppio del limite anche quando molte chiavi escono per altre vie
+    private void evict() {
+        while (entries.size() > maxEntries || queuedKeys.get() > 2 * maxEntries) {
+            String oldest = insertionOrder.poll();
+            if (oldest == null) {
+                return;
+            }
+            queuedKeys.decrementAndGet();
+            entries.remove(oldest);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String> rolesOf(Claims claims) {
+        Object roles = claims.get(JwtUtils.CLAIM_ROLES);
+        if (roles instanceof List) {
+            return Collections.unmodifiableList(((List<Object>) roles).stream()
+                    .map(String::valueOf)
+                    .collect(Collectors.toList()));
+        }
+        return Collections.emptyList();
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 non disponibile", e);
+        }
+    }
+
+    public static final class VerifiedToken {
+        private final String subject;
+        private final Long userId;
+        private final List<String> roles;
+        private final boolean refresh;
+        private final long expiresAt;
+        private final String tokenId;
+
+        private VerifiedToken(Claims claims, String tokenId) {
+            Object userId = claims.get(JwtUtils.CLAIM_USER_ID);
+            this.subject = claims.getSubject();
+            this.userId = userId instanceof Number ? ((Number) userId).longValue() : null;
+            this.roles = rolesOf(claims);
+            this.refresh = JwtUtils.isRefreshToken(claims);
+            this.expiresAt = claims.getExpiration() != null ? claims.getExpiration().getTime() : Long.MAX_VALUE;
+            this.tokenId = tokenId;
+        }
+
+        public String getSubject() {
+            return subject;
+        }
+
+        public Long getUserId() {
+            return userId;
+        }
+
+        // Ruoli presenti nei claims del token (vuoto se il token non li contiene)
+        public List<String> getRoles() {
+            return roles;
+        }
+
+        // Un refresh token non autentica le richieste: serve solo a /api/auth/refresh
+        public boolean isRefresh() {
+            return refresh;
+        }
+
+        public long getExpiresAt() {
+            return expiresAt;
+        }
+
+        // jti del token, oppure l'hash del token per quelli emessi senza jti
+        public String getTokenId() {
+            return tokenId;
+        }
+
+        boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.rnbmx.shop.security.services;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.rnbmx.shop.exception.LoginRateLimitedException;
+
+// Limite ai tentativi di login, per IP e per email, controllato prima di qualsiasi
+// accesso al DB o hashing. Ogni chiave ha un token bucket senza lock; i bucket
+// pieni non portano informazione e sono i primi a essere rimossi quando la mappa
+// raggiunge la dimensione massima.
+@Component
+public class LoginRateLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoginRateLimiter.class);
+
+    @Value("${bmx.app.loginRateLimit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${bmx.app.loginRateLimit.ip.capacity:20}")
+    private int ipCapacity;
+
+    @Value("${bmx.app.loginRateLimit.ip.perMinute:10}")
+    private double ipPerMinute;
+
+    @Value("${bmx.app.loginRateLimit.email.capacity:5}")
+    private int emailCapacity;
+
+    @Value("${bmx.app.loginRateLimit.email.perMinute:2}")
+    private double emailPerMinute;
+
+    @Value("${bmx.app.loginRateLimit.maxKeys:100000}")
+    private int maxKeys;
+
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    private final AtomicLong rejected = new AtomicLong();
+
+    private long ipIntervalNanos;
+    private long emailIntervalNanos;
+
+    @PostConstruct
+    public void init() {
+        ipIntervalNanos = (long) (TimeUnit.MINUTES.toNanos(1) / ipPerMinute);
+        emailIntervalNanos = (long) (TimeUnit.MINUTES.toNanos(1) / emailPerMinute);
+    }
+
+    // Consuma un token per l'IP e uno per l'email; lancia LoginRateLimitedException se uno dei due è esaurito
+    public void acquire(String clientIp, String email) {
+        if (!enabled) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        long waitNanos = bucket("ip:" + clientIp, ipCapacity, ipIntervalNanos, now).tryAcquire(now);
+        if (waitNanos == 0 && email != null && !email.isBlank()) {
+            String emailKey = "email:" + email.trim().toLowerCase(Locale.ROOT);
+            waitNanos = bucket(emailKey, emailCapacity, emailIntervalNanos, now).tryAcquire(now);
+        }
+
+        if (waitNanos > 0) {
+            rejected.incrementAndGet();
+            long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999L));
+            logger.warn("Login limitato per IP {}: riprovare tra {}s", clientIp, retryAfterSeconds);
+            throw new LoginRateLimitedException(retryAfterSeconds);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("keys", buckets.size());
+        stats.put("rejected", rejected.get());
+        return stats;
+    }
+
+    private TokenBucket bucket(String key, int capacity, long intervalNanos, long now) {
+        TokenBucket bucket = buckets.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (buckets.size() >= maxKeys) {
+            evict(now);
+        }
+        return buckets.computeIfAbsent(key, k -> new TokenBucket(capacity, intervalNanos, now));
+    }
+
+    private void evict(long now) {
+        buckets.values().removeIf(bucket -> bucket.isFull(now));
+        // Sotto attacco distribuito i bucket possono essere tutti in uso: si libera spazio comunque
+        Iterator<TokenBucket> iterator = buckets.values().iterator();
+        while (buckets.size() >= maxKeys && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    // Token bucket nella forma GCRA: un solo long con l'istante teorico in cui il
+    // bucket torna pieno, aggiornato con CAS. Ammette "capacity" richieste di fila
+    // e poi una ogni "intervalNanos".
+    static final class TokenBucket {
+        private final long intervalNanos;
+        private final long burstNanos;
+        private final AtomicLong fullAt;
+
+        TokenBucket(int capacity, long intervalNanos, long now) {
+            this.intervalNanos = intervalNanos;
+            this.burstNanos = capacity * intervalNanos;
+            this.fullAt = new AtomicLong(now);
+        }
+
+        // 0 se il token è stato consumato, altrimenti l'attesa in nanosecondi
+        long tryAcquire(long now) {
+            while (true) {
+                long current = fullAt.get();
+                long next = Math.max(current, now) + intervalNanos;
+                long excess = next - now - burstNanos;
+                if (excess > 0) {
+                    return excess;
+                }
+                if (fullAt.compareAndSet(current, next)) {
+                    return 0;
+                }
+            }
+        }
+
+        boolean isFull(long now) {
+            return fullAt.get() - now <= 0;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.rnbmx.shop.security.services;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.concurrent.DelegatingSecurityContextExecutorService;
+import org.springframework.stereotype.Service;
+
+import com.rnbmx.shop.exception.PasswordHashingBusyException;
+
+// Pool dedicato e limitato per il lavoro di BCrypt/Argon2 (login, registrazione,
+// cambio password). I thread di Tomcat vengono rilasciati subito e, quando coda e
+// thread sono pieni, la richiesta viene rifiutata con 503 invece di accodarsi:
+// un picco di login non può togliere thread al catalogo.
+@Service
+public class PasswordHashingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PasswordHashingService.class);
+
+    // 0 = metà dei core disponibili
+    @Value("${bmx.app.password.hashThreads:0}")
+    private int hashThreads;
+
+    @Value("${bmx.app.password.hashQueueCapacity:64}")
+    private int queueCapacity;
+
+    @Value("${bmx.app.password.retryAfterSeconds:1}")
+    private long retryAfterSeconds;
+
+    private ThreadPoolExecutor pool;
+    private ExecutorService executor;
+
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        int threads = hashThreads > 0 ? hashThreads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger counter = new AtomicInteger();
+        pool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "password-hash-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        // Il SecurityContext di chi invia il task viene propagato e ripulito a fine esecuzione
+        executor = new DelegatingSecurityContextExecutorService(pool);
+        logger.info("Pool hashing password: {} thread, coda {}", threads, queueCapacity);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return task.get();
+                } finally {
+                    completed.incrementAndGet();
+                }
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            logger.warn("Pool hashing password saturo, richiesta rifiutata");
+            CompletableFuture<T> busy = new CompletableFuture<>();
+            busy.completeExceptionally(new PasswordHashingBusyException(retryAfterSeconds));
+            return busy;
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("threads", pool.getPoolSize());
+        stats.put("active", pool.getActiveCount());
+        stats.put("queued", pool.getQueue().size());
+        stats.put("completed", completed.get());
+        stats.put("rejected", rejected.get());
+        return stats;
+    }
+}
@@ -0,0 +1,85 @@
+package com.rnbmx.shop.security.services;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import io.jsonwebtoken.Claims;
+
+// Revoca dei refresh token salvata nel database (tabella revoked_refresh_tokens), così
+// rotazione e logout valgono anche dopo un riavvio e su più istanze. L'INSERT con
+// ON CONFLICT DO NOTHING è un test-and-set atomico: tra due /refresh concorrenti con
+// lo stesso token solo una inserisce la riga e ottiene la nuova coppia di token.
+@Service
+public class RefreshTokenRevocationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RefreshTokenRevocationService.class);
+
+    private static final String REVOKE_SQL = "INSERT INTO revoked_refresh_tokens (jti, subject, expires_at)"
+            + " VALUES (?, ?, ?) ON CONFLICT (jti) DO NOTHING";
+
+    private static final String PURGE_SQL = "DELETE FROM revoked_refresh_tokens WHERE expires_at < ?";
+
+    @Value("${bmx.app.refreshTokens.purgeIntervalMinutes:60}")
+    private long purgeIntervalMinutes;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private ScheduledExecutorService purger;
+
+    @PostConstruct
+    public void init() {
+        purger = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "refresh-token-purger");
+            thread.setDaemon(true);
+            return thread;
+        });
+        purger.scheduleWithFixedDelay(this::purgeSafely, purgeIntervalMinutes, purgeIntervalMinutes,
+                TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        purger.shutdownNow();
+    }
+
+    // true solo per la chiamata che revoca il token; false se era già stato usato o
+    // revocato (o se non ha jti, quindi non può essere tracciato)
+    public boolean revoke(Claims claims) {
+        if (claims.getId() == null || claims.getExpiration() == null) {
+            return false;
+        }
+        LocalDateTime expiresAt = LocalDateTime.ofInstant(claims.getExpiration().toInstant(), ZoneId.systemDefault());
+        return jdbcTemplate.update(REVOKE_SQL, claims.getId(), claims.getSubject(), expiresAt) == 1;
+    }
+
+    // Un token scaduto è già rifiutato dalla verifica della firma: la sua riga non serve più
+    public int purgeExpired() {
+        int deleted = jdbcTemplate.update(PURGE_SQL, LocalDateTime.now());
+        if (deleted > 0) {
+            logger.info("Rimosse {} revoche di refresh token scaduti", deleted);
+        }
+        return deleted;
+    }
+
+    private void purgeSafely() {
+        try {
+            purgeExpired();
+        } catch (Exception e) {
+            logger.error("Errore durante la pulizia dei refresh token revocati: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -75,11 +75,6 @@ public class UserDetailsImpl implements UserDetails {
             usedLastName = user.getSurname();
         }
 
-        System.out.println("Build UserDetails: ID=" + user.getId() +
-                ", Email=" + user.getEmail() +
-                ", FirstName=" + usedFirstName +
-                ", LastName=" + usedLastName);
-
         return new UserDetailsImpl(
                 user.getId(),
                 usedFirstName,
@@ -95,6 +90,16 @@ public class UserDetailsImpl implements UserDetails {
                 authorities);
     }
 
+    // Principal ricostruito dai soli claims del token (modalità stateless): niente
+    // dati anagrafici né password, i controller che li usano li rileggono dal DB
+    public static UserDetailsImpl fromToken(Long id, String email, List<String> roles) {
+        List<GrantedAuthority> authorities = roles.stream()
+                .map(SimpleGrantedAuthority::new)
+                .collect(Collectors.toList());
+
+        return new UserDetailsImpl(id, null, null, email, null, null, null, null, null, null, null, authorities);
+    }
+
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
         return authorities;
@@ -5,65 +5,130 @@ import com.rnbmx.shop.repository.UserRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
-public class UserDetailsServiceImpl implements UserDetailsService {
+public class UserDetailsServiceImpl implements UserDetailsService, UserDetailsPasswordService {
     private static final Logger logger = LoggerFactory.getLogger(UserDetailsServiceImpl.class);
 
     @Autowired
     UserRepository userRepository;
 
+    // Durata massima di un principal in cache; le modifiche fatte da questa istanza
+    // lo invalidano subito, il TTL copre quelle fatte da altre istanze
+    @Value("${bmx.app.principalCache.ttlSeconds:60}")
+    private long ttlSeconds;
+
+    @Value("${bmx.app.principalCache.maxEntries:10000}")
+    private int maxEntries;
+
+    private final Map<String, CachedPrincipal> principals = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    // Usato dal login con password: legge sempre l'hash aggiornato dal DB
     @Override
-    @Transactional
+    @Transactional(readOnly = true)
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
-        logger.info("Tentativo di caricare utente con email: {}", email);
+        if (email == null || email.trim().isEmpty()) {
+            logger.warn("Tentativo di login con email null o vuota");
+            throw new UsernameNotFoundException("L'indirizzo email non può essere vuoto");
+        }
+
+        User user = userRepository.findWithRolesByEmail(email)
+                .orElseThrow(() -> {
+                    logger.debug("Utente non trovato con email: {}", email);
+                    return new UsernameNotFoundException("Utente non trovato con email: " + email);
+                });
+
+        logger.debug("Utente caricato: ID={}, ruoli={}", user.getId(), user.getRoles().size());
+        return UserDetailsImpl.build(user);
+    }
+
+    // Usato dal filtro JWT ad ogni richiesta autenticata: il token è già verificato,
+    // quindi basta il principal in cache finché non scade o viene invalidato
+    public UserDetails loadUserForToken(String email) throws UsernameNotFoundException {
+        long now = System.currentTimeMillis();
+        CachedPrincipal cached = principals.get(email);
+        if (cached != null && cached.getExpiresAt() > now) {
+            hits.incrementAndGet();
+            return cached.getUserDetails();
+        }
 
-        try {
-            // Verifica se l'email è null o vuota
-            if (email == null || email.trim().isEmpty()) {
-                logger.error("Tentativo di login con email null o vuota");
-                throw new UsernameNotFoundException("L'indirizzo email non può essere vuoto");
+        misses.incrementAndGet();
+        UserDetails userDetails = loadUserByUsername(email);
+        if (principals.size() >= maxEntries) {
+            principals.values().removeIf(entry -> entry.getExpiresAt() <= now);
+            if (principals.size() >= maxEntries) {
+                principals.clear();
             }
+        }
+        principals.put(email, new CachedPrincipal(userDetails, now + ttlSeconds * 1000));
+        return userDetails;
+    }
 
-            // Conta il numero di utenti nel sistema per debug
-            long userCount = userRepository.count();
-            logger.info("Numero totale di utenti nel sistema: {}", userCount);
+    // Chiamato da DaoAuthenticationProvider dopo un login riuscito quando l'hash salvato
+    // usa un algoritmo o un costo diverso da quello configurato
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        User entity = userRepository.findWithRolesByEmail(user.getUsername())
+                .orElseThrow(() -> new UsernameNotFoundException("Utente non trovato con email: " + user.getUsername()));
+        entity.setPassword(newPassword);
+        userRepository.save(entity);
+        evict(entity.getEmail());
+        logger.debug("Hash della password aggiornato per l'utente {}", entity.getId());
+        return UserDetailsImpl.build(entity);
+    }
 
-            // DEBUG: Elenco tutti gli utenti nel sistema per debug
-            logger.info("DEBUGGING: Elenco di tutti gli utenti nel sistema:");
-            userRepository.findAll().forEach(u -> {
-                logger.info("Utente ID: {}, Email: {}, Username: {}, Nome: {}, Cognome: {}, Name: {}, Surname: {}",
-                        u.getId(), u.getEmail(), u.getUsername(), u.getFirstName(), u.getLastName(), u.getName(),
-                        u.getSurname());
-            });
+    public void evict(String email) {
+        if (email != null) {
+            principals.remove(email);
+        }
+    }
 
-            // Cerca l'utente nel repository
-            User user = userRepository.findByEmail(email)
-                    .orElseThrow(() -> {
-                        logger.error("Utente non trovato con email: {}", email);
-                        return new UsernameNotFoundException("Utente non trovato con email: " + email);
-                    });
+    // Dopo il commit, così una richiesta concorrente non ricarica i dati vecchi
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserSecurityChanged(UserSecurityChangedEvent event) {
+        evict(event.getEmail());
+    }
 
-            logger.info("Utente trovato con email: {} e ID: {}", email, user.getId());
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("entries", principals.size());
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        return stats;
+    }
 
-            // Log dei dettagli dell'utente per debug (non in produzione!)
-            logger.debug("Dettagli utente trovato: firstName={}, lastName={}, name={}, surname={}, roles={}",
-                    user.getFirstName(), user.getLastName(), user.getName(), user.getSurname(), user.getRoles());
+    private static final class CachedPrincipal {
+        private final UserDetails userDetails;
+        private final long expiresAt;
 
-            // Costruisci l'oggetto UserDetails
-            UserDetails userDetails = UserDetailsImpl.build(user);
-            logger.info("UserDetails costruito con successo per utente: {}", email);
+        private CachedPrincipal(UserDetails userDetails, long expiresAt) {
+            this.userDetails = userDetails;
+            this.expiresAt = expiresAt;
+        }
 
+        UserDetails getUserDetails() {
             return userDetails;
-        } catch (Exception e) {
-            logger.error("Errore durante il caricamento dell'utente: {}", e.getMessage());
-            logger.error("Dettaglio errore:", e);
-            throw e;
+        }
+
+        long getExpiresAt() {
+            return expiresAt;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,30 @@
+package com.rnbmx.shop.security.services;
+
+// Evento pubblicato quando cambiano i dati di sicurezza di un utente (ruoli,
+// password, profilo, eliminazione). Le cache di autenticazione lo usano per
+// invalidare ciò che hanno memorizzato per quell'utente.
+public class UserSecurityChangedEvent {
+
+    public enum Reason {
+        ROLES_CHANGED,
+        PASSWORD_CHANGED,
+        PROFILE_UPDATED,
+        DELETED
+    }
+
+    private final String email;
+    private final Reason reason;
+
+    public UserSecurityChangedEvent(String email, Reason reason) {
+        this.email = email;
+        this.reason = reason;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+}
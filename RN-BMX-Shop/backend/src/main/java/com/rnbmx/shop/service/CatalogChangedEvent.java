@@ -0,0 +1,30 @@
+package com.rnbmx.shop.service;
+
+// Evento pubblicato da ProductService ad ogni modifica del catalogo.
+// I listener lo ricevono dopo il commit della transazione.
+public class CatalogChangedEvent {
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED,
+        // Solo la disponibilità è cambiata (ordini, annullamenti): lo snapshot si aggiorna in modo aggregato
+        STOCK_CHANGED
+    }
+
+    private final Type type;
+    private final Long productId;
+
+    public CatalogChangedEvent(Type type, Long productId) {
+        this.type = type;
+        this.productId = productId;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+}
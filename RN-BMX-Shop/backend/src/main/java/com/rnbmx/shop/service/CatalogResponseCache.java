@@ -0,0 +1,135 @@
+package com.rnbmx.shop.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import java.util.zip.GZIPOutputStream;
+
+// Corpi JSON già serializzati (ed eventualmente compressi) per le viste più lette
+// del catalogo. Ogni voce è legata all'impronta del contenuto della propria vista:
+// resta valida finché quella vista non cambia, anche se nel frattempo lo snapshot
+// ha ricevuto aggiornamenti di disponibilità per prodotti che non ne fanno parte.
+@Component
+public class CatalogResponseCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogResponseCache.class);
+
+    // Sotto questa soglia la compressione non ripaga il costo
+    private static final int GZIP_MIN_BYTES = 1024;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final Map<String, CachedBody> entries = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public CachedBody get(String view, CatalogSnapshot snapshot, ToLongFunction<CatalogSnapshot> fingerprint,
+            Function<CatalogSnapshot, ?> body) {
+        long viewFingerprint = fingerprint.applyAsLong(snapshot);
+        CachedBody cached = entries.get(view);
+        if (cached != null && cached.getFingerprint() == viewFingerprint) {
+            hits.incrementAndGet();
+            return cached;
+        }
+
+        misses.incrementAndGet();
+        CachedBody fresh = encode(snapshot.getVersion(), viewFingerprint, body.apply(snapshot));
+        // Una richiesta lenta su uno snapshot vecchio non deve sovrascrivere una voce più recente
+        entries.merge(view, fresh, (old, candidate) -> old.getVersion() > candidate.getVersion() ? old : candidate);
+        return fresh;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        // Le voci sono già invalidate dall'impronta: qui si libera solo la memoria. Le variazioni
+        // di stock arrivano con ogni ordine e toccano poche viste: svuotare qui butterebbe via
+        // a ogni checkout anche i corpi delle viste rimaste identiche
+        if (event.getType() == CatalogChangedEvent.Type.STOCK_CHANGED) {
+            return;
+        }
+        entries.clear();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("entries", entries.size());
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("bytes", entries.values().stream()
+                .mapToLong(entry -> entry.getJson().length + (entry.hasGzip() ? entry.getGzip().length : 0))
+                .sum());
+        return stats;
+    }
+
+    private CachedBody encode(long version, long fingerprint, Object body) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(body);
+            byte[] gzip = json.length >= GZIP_MIN_BYTES ? gzip(json) : null;
+            logger.debug("Risposta catalogo v{} serializzata: {} byte (gzip {})", version, json.length,
+                    gzip != null ? gzip.length : "-");
+            return new CachedBody(version, fingerprint, json, gzip);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Serializzazione della risposta del catalogo fallita", e);
+        }
+    }
+
+    private static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    public static final class CachedBody {
+        private final long version;
+        private final long fingerprint;
+        private final byte[] json;
+        private final byte[] gzip;
+
+        private CachedBody(long version, long fingerprint, byte[] json, byte[] gzip) {
+            this.version = version;
+            this.fingerprint = fingerprint;
+            this.json = json;
+            this.gzip = gzip;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public long getFingerprint() {
+            return fingerprint;
+        }
+
+        public byte[] getJson() {
+            return json;
+        }
+
+        public byte[] getGzip() {
+            return gzip;
+        }
+
+        public boolean hasGzip() {
+            return gzip != null;
+        }
+    }
+}
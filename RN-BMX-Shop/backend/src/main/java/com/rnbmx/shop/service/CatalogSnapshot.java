@@ -0,0 +1,353 @@
+package com.rnbmx.shop.service;
+
+import com.rnbmx.shop.model.Category;
+import com.rnbmx.shop.model.Product;
+import com.rnbmx.shop.payload.response.ProductCardResponse;
+import com.rnbmx.shop.search.CatalogFacetIndex;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Fotografia immutabile del catalogo (prodotti, categorie, prodotti in evidenza).
+// Viene ricostruita per intero ad ogni modifica del catalogo e pubblicata con una sola
+// scrittura di riferimento, così i lettori non devono mai sincronizzarsi. Le variazioni
+// di disponibilità producono invece una copia che sostituisce solo i prodotti toccati.
+public final class CatalogSnapshot {
+
+    private static final long SIZE_SEED = 0x9E3779B97F4A7C15L;
+
+    private final long version;
+    private final List<Product> products;
+    private final List<Category> categories;
+    private final List<Product> featuredProducts;
+    private final Map<Long, Product> productsById;
+    private final Map<Long, Integer> positionsById;
+    private final Map<Long, List<Product>> productsByCategoryId;
+    private final List<ProductCardResponse> productCards;
+    private final Map<Long, List<ProductCardResponse>> productCardsByCategoryId;
+    private final Map<String, Category> categoriesByName;
+    private final CatalogFacetIndex facetIndex;
+    private final long lastModified;
+
+    // Somme delle impronte dei singoli elementi, per vista: una variazione di stock le
+    // aggiorna sottraendo l'impronta vecchia e sommando la nuova
+    private final long productsHash;
+    private final long categoriesHash;
+    private final long featuredHash;
+    private final Map<Long, Long> categoryHashes;
+
+    public CatalogSnapshot(long version, List<Product> products, List<Category> categories) {
+        this.version = version;
+        this.products = Collections.unmodifiableList(new ArrayList<>(products));
+        this.categories = Collections.unmodifiableList(new ArrayList<>(categories));
+        this.featuredProducts = Collections.unmodifiableList(products.stream()
+                .filter(Product::isFeatured)
+                .collect(Collectors.toList()));
+
+        // Le card delle liste vengono costruite una volta per versione, non ad ogni richiesta
+        Map<Long, Product> byId = new HashMap<>();
+        Map<Long, Integer> positions = new HashMap<>();
+        Map<Long, List<Product>> byCategory = new HashMap<>();
+        Map<Long, List<ProductCardResponse>> cardsByCategory = new HashMap<>();
+        List<ProductCardResponse> cards = new ArrayList<>(products.size());
+        for (Product product : products) {
+            ProductCardResponse card = ProductCardResponse.from(product);
+            positions.put(product.getId(), cards.size());
+            cards.add(card);
+            byId.put(product.getId(), product);
+            if (card.getCategoryId() != null) {
+                byCategory.computeIfAbsent(card.getCategoryId(), id -> new ArrayList<>()).add(product);
+                cardsByCategory.computeIfAbsent(card.getCategoryId(), id -> new ArrayList<>()).add(card);
+            }
+        }
+        byCategory.replaceAll((id, list) -> Collections.unmodifiableList(list));
+        cardsByCategory.replaceAll((id, list) -> Collections.unmodifiableList(list));
+        this.productsById = Collections.unmodifiableMap(byId);
+        this.positionsById = Collections.unmodifiableMap(positions);
+        this.productsByCategoryId = Collections.unmodifiableMap(byCategory);
+        this.productCards = Collections.unmodifiableList(cards);
+        this.productCardsByCategoryId = Collections.unmodifiableMap(cardsByCategory);
+
+        Map<String, Category> byName = new HashMap<>();
+        for (Category category : categories) {
+            byName.put(category.getName(), category);
+        }
+        this.categoriesByName = Collections.unmodifiableMap(byName);
+        this.facetIndex = new CatalogFacetIndex(this.productCards);
+
+        // Impronte del contenuto per gli ETag: dipendono solo dai dati, quindi sono le stesse
+        // su tutte le istanze e sopravvivono ai riavvii (a differenza di 'version').
+        // La somma rende il risultato indipendente dall'ordine restituito dal database.
+        long hash = 0;
+        long featured = 0;
+        long maxUpdated = 0;
+        Map<Long, Long> hashesByCategory = new HashMap<>();
+        for (Product product : products) {
+            long productHash = productMix(product);
+            hash += productHash;
+            if (product.isFeatured()) {
+                featured += productHash;
+            }
+            if (product.getCategoryEntity() != null && product.getCategoryEntity().getId() != null) {
+                hashesByCategory.merge(product.getCategoryEntity().getId(), productHash, Long::sum);
+            }
+            maxUpdated = Math.max(maxUpdated, updatedMillis(product));
+        }
+        long categoryHash = 0;
+        for (Category category : categories) {
+            categoryHash += categoryMix(category);
+        }
+        this.productsHash = hash;
+        this.categoriesHash = categoryHash;
+        this.featuredHash = featured;
+        this.categoryHashes = Collections.unmodifiableMap(hashesByCategory);
+        this.lastModified = maxUpdated;
+    }
+
+    private CatalogSnapshot(CatalogSnapshot base, long version, List<Product> products,
+            List<Product> featuredProducts, Map<Long, Product> productsById,
+            Map<Long, List<Product>> productsByCategoryId, List<ProductCardResponse> productCards,
+            Map<Long, List<ProductCardResponse>> productCardsByCategoryId, CatalogFacetIndex facetIndex,
+            long lastModified, long productsHash, long featuredHash, Map<Long, Long> categoryHashes) {
+        this.version = version;
+        this.products = products;
+        this.categories = base.categories;
+        this.featuredProducts = featuredProducts;
+        this.productsById = productsById;
+        this.positionsById = base.positionsById;
+        this.productsByCategoryId = productsByCategoryId;
+        this.productCards = productCards;
+        this.productCardsByCategoryId = productCardsByCategoryId;
+        this.categoriesByName = base.categoriesByName;
+        this.facetIndex = facetIndex;
+        this.lastModified = lastModified;
+        this.productsHash = productsHash;
+        this.categoriesHash = base.categoriesHash;
+        this.featuredHash = featuredHash;
+        this.categoryHashes = categoryHashes;
+    }
+
+    // Nuova versione con disponibilità e data di modifica aggiornate per i prodotti indicati.
+    // Categorie, indici per marca e prezzo, card e liste delle categorie non toccate sono
+    // condivisi con questo snapshot; gli id assenti (prodotti eliminati o non ancora
+    // recepiti) vengono ignorati. Restituisce this se nessuna disponibilità è cambiata.
+    public CatalogSnapshot withStock(long newVersion, Map<Long, StockLevel> levels) {
+        Map<Long, Product> patched = new HashMap<>();
+        for (StockLevel level : levels.values()) {
+            Product current = productsById.get(level.getProductId());
+            if (current != null && !Objects.equals(current.getStockQuantity(), level.getStock())) {
+                patched.put(current.getId(), copyWithStock(current, level));
+            }
+        }
+        if (patched.isEmpty()) {
+            return this;
+        }
+
+        List<Product> newProducts = new ArrayList<>(products);
+        List<ProductCardResponse> newCards = new ArrayList<>(productCards);
+        Map<Long, Product> byId = new HashMap<>(productsById);
+        Map<Long, ProductCardResponse> patchedCards = new HashMap<>();
+        Map<Long, Long> hashesByCategory = new HashMap<>(categoryHashes);
+        List<Integer> positions = new ArrayList<>(patched.size());
+        long hash = productsHash;
+        long featured = featuredHash;
+        long maxUpdated = lastModified;
+        boolean featuredTouched = false;
+        for (Product product : patched.values()) {
+            int position = positionsById.get(product.getId());
+            Product previous = products.get(position);
+            ProductCardResponse card = ProductCardResponse.from(product);
+            newProducts.set(position, product);
+            newCards.set(position, card);
+            byId.put(product.getId(), product);
+            patchedCards.put(product.getId(), card);
+            positions.add(position);
+
+            long delta = productMix(product) - productMix(previous);
+            hash += delta;
+            if (product.isFeatured()) {
+                featured += delta;
+                featuredTouched = true;
+            }
+            if (card.getCategoryId() != null) {
+                hashesByCategory.merge(card.getCategoryId(), delta, Long::sum);
+            }
+            maxUpdated = Math.max(maxUpdated, updatedMillis(product));
+        }
+
+        // Solo le liste che contengono un prodotto modificato vengono copiate
+        Map<Long, List<Product>> byCategory = new HashMap<>(productsByCategoryId);
+        Map<Long, List<ProductCardResponse>> cardsByCategory = new HashMap<>(productCardsByCategoryId);
+        for (ProductCardResponse card : patchedCards.values()) {
+            Long categoryId = card.getCategoryId();
+            if (categoryId != null && byCategory.get(categoryId) == productsByCategoryId.get(categoryId)) {
+                byCategory.put(categoryId, replace(productsByCategoryId.get(categoryId), patched,
+                        Product::getId));
+                cardsByCategory.put(categoryId, replace(productCardsByCategoryId.get(categoryId), patchedCards,
+                        ProductCardResponse::getId));
+            }
+        }
+        List<Product> newFeatured = featuredTouched
+                ? replace(featuredProducts, patched, Product::getId)
+                : featuredProducts;
+
+        List<ProductCardResponse> cardList = Collections.unmodifiableList(newCards);
+        return new CatalogSnapshot(this, newVersion, Collections.unmodifiableList(newProducts), newFeatured,
+                Collections.unmodifiableMap(byId), Collections.unmodifiableMap(byCategory), cardList,
+                Collections.unmodifiableMap(cardsByCategory), facetIndex.withStock(cardList, positions),
+                maxUpdated, hash, featured, Collections.unmodifiableMap(hashesByCategory));
+    }
+
+    private static <T> List<T> replace(List<T> source, Map<Long, ? extends T> replacements,
+            Function<T, Long> idOf) {
+        List<T> copy = new ArrayList<>(source.size());
+        for (T item : source) {
+            T replacement = replacements.get(idOf.apply(item));
+            copy.add(replacement != null ? replacement : item);
+        }
+        return Collections.unmodifiableList(copy);
+    }
+
+    // Le entità dello snapshot sono condivise tra i lettori: mai modificarle, si copia
+    private static Product copyWithStock(Product source, StockLevel level) {
+        return new Product(source.getId(), source.getName(), source.getDescription(), source.getPrice(),
+                level.getStock(), source.getImageUrl(), source.getCategoryEntity(), source.getCategory(),
+                source.getBrand(), source.getCreatedAt(),
+                level.getUpdatedAt() != null ? level.getUpdatedAt() : source.getUpdatedAt(), source.isFeatured());
+    }
+
+    private static long productMix(Product product) {
+        return mix(Objects.hash(product.getId(), product.getName(), product.getPrice(),
+                product.getStockQuantity(), product.isFeatured(), product.getCategory(), product.getUpdatedAt()));
+    }
+
+    private static long categoryMix(Category category) {
+        return mix(Objects.hash(category.getId(), category.getName()) * 31L + 7);
+    }
+
+    private static long updatedMillis(Product product) {
+        return product.getUpdatedAt() != null
+                ? product.getUpdatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                : 0;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    // Impronta dell'intero catalogo (prodotti e categorie)
+    public long getFingerprint() {
+        return mix(productsHash + categoriesHash + products.size() * SIZE_SEED + categories.size());
+    }
+
+    // Impronte delle singole viste: una variazione di stock non cambia quella delle categorie,
+    // né quella delle liste e dei prodotti che non contengono l'articolo modificato
+    public long getCategoriesFingerprint() {
+        return mix(categoriesHash + categories.size());
+    }
+
+    public long getFeaturedFingerprint() {
+        return mix(featuredHash + featuredProducts.size() * SIZE_SEED + 1);
+    }
+
+    public long getCategoryFingerprint(Category category) {
+        if (category == null || category.getId() == null) {
+            return getFingerprint();
+        }
+        return mix(categoryHashes.getOrDefault(category.getId(), 0L)
+                + getProductsByCategory(category).size() * SIZE_SEED + categoryMix(category));
+    }
+
+    // Prodotti non ancora nello snapshot: impronta dell'intero catalogo
+    public long getProductFingerprint(Long id) {
+        Product product = productsById.get(id);
+        return product != null ? productMix(product) : getFingerprint();
+    }
+
+    // max(updatedAt) dei prodotti in millisecondi, 0 se il catalogo è vuoto
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    public List<Product> getProducts() {
+        return products;
+    }
+
+    public List<Category> getCategories() {
+        return categories;
+    }
+
+    public List<Product> getFeaturedProducts() {
+        return featuredProducts;
+    }
+
+    public List<ProductCardResponse> getProductCards() {
+        return productCards;
+    }
+
+    public CatalogFacetIndex getFacetIndex() {
+        return facetIndex;
+    }
+
+    public Optional<Product> findProduct(Long id) {
+        return Optional.ofNullable(productsById.get(id));
+    }
+
+    public Optional<Category> findCategoryByName(String name) {
+        return Optional.ofNullable(categoriesByName.get(name));
+    }
+
+    public List<Product> getProductsByCategory(Category category) {
+        if (category == null || category.getId() == null) {
+            return Collections.emptyList();
+        }
+        return productsByCategoryId.getOrDefault(category.getId(), Collections.emptyList());
+    }
+
+    public List<ProductCardResponse> getProductCardsByCategory(Category category) {
+        if (category == null || category.getId() == null) {
+            return Collections.emptyList();
+        }
+        return productCardsByCategoryId.getOrDefault(category.getId(), Collections.emptyList());
+    }
+
+    // Disponibilità corrente di un prodotto letta dal database
+    public static final class StockLevel {
+        private final Long productId;
+        private final Integer stock;
+        private final LocalDateTime updatedAt;
+
+        public StockLevel(Long productId, Integer stock, LocalDateTime updatedAt) {
+            this.productId = productId;
+            this.stock = stock;
+            this.updatedAt = updatedAt;
+        }
+
+        public Long getProductId() {
+            return productId;
+        }
+
+        public Integer getStock() {
+            return stock;
+        }
+
+        public LocalDateTime getUpdatedAt() {
+            return updatedAt;
+        }
+    }
+}
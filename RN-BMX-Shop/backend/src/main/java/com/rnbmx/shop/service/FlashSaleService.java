@@ -0,0 +1,441 @@
+package com.rnbmx.shop.service;
+
+import com.rnbmx.shop.exception.FlashSaleBusyException;
+import com.rnbmx.shop.exception.InvalidOrderException;
+import com.rnbmx.shop.exception.OutOfStockException;
+import com.rnbmx.shop.model.OrderStatus;
+import com.rnbmx.shop.model.Product;
+import com.rnbmx.shop.payload.request.OrderRequest;
+import com.rnbmx.shop.repository.ProductRepository;
+import com.rnbmx.shop.security.services.UserDetailsImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+// Modalità flash sale per i prodotti a tiratura limitata. Gli ordini di un prodotto
+// in flash sale non aprono una transazione ciascuno: vengono ammessi contro un
+// contatore in memoria (CAS, nessun lock), accodati e restituiti subito come ticket.
+// Un solo thread svuota le code a intervalli e scrive ogni lotto in una transazione:
+// un decremento di stock per prodotto e insert batch per ordini e righe.
+//
+// Lo stock nel DB si decrementa solo quando il lotto viene scritto: se l'applicazione
+// si ferma, i ticket non ancora scritti vanno persi ma lo stock resta coerente.
+@Service
+public class FlashSaleService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FlashSaleService.class);
+
+    public enum TicketStatus {
+        QUEUED,
+        CONFIRMED,
+        REJECTED
+    }
+
+    private static final String DECREMENT_SQL =
+            "UPDATE products SET stock = stock - ?, updated_at = ? WHERE id = ? AND stock >= ?";
+
+    private static final String NEXT_ORDER_IDS_SQL =
+            "SELECT nextval(pg_get_serial_sequence('orders', 'id')) FROM generate_series(1, ?)";
+
+    private static final String NEXT_ITEM_IDS_SQL =
+            "SELECT nextval(pg_get_serial_sequence('order_items', 'id')) FROM generate_series(1, ?)";
+
+    private static final String INSERT_ORDER_SQL =
+            "INSERT INTO orders (id, user_id, order_date, status, total_amount, payment_id, shipping_address,"
+                    + " phone, payment_method) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String INSERT_ITEM_SQL =
+            "INSERT INTO order_items (id, order_id, product_id, quantity, price) VALUES (?, ?, ?, ?, ?)";
+
+    @Value("${bmx.app.flashSale.queueCapacity:10000}")
+    private int queueCapacity;
+
+    @Value("${bmx.app.flashSale.flushIntervalMs:200}")
+    private long flushIntervalMs;
+
+    @Value("${bmx.app.flashSale.batchSize:500}")
+    private int batchSize;
+
+    @Value("${bmx.app.flashSale.ticketTtlMinutes:30}")
+    private long ticketTtlMinutes;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+    private ScheduledExecutorService flusher;
+
+    private final Map<Long, FlashSale> sales = new ConcurrentHashMap<>();
+    private final Map<String, Ticket> tickets = new ConcurrentHashMap<>();
+
+    private final AtomicLong admitted = new AtomicLong();
+    private final AtomicLong soldOut = new AtomicLong();
+    private final AtomicLong queueFull = new AtomicLong();
+    private final AtomicLong persisted = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "flash-sale-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushSafely, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    // Scrive i ticket ancora in coda prima dello spegnimento
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushSafely();
+    }
+
+    // Attiva la flash sale: la disponibilità e il prezzo di partenza sono quelli attuali del prodotto
+    public synchronized Map<String, Object> start(Long productId) {
+        if (sales.containsKey(productId)) {
+            throw new IllegalStateException("Flash sale già attiva per il prodotto " + productId);
+        }
+        Product product = productRepository.findById(productId)
+                .orElseThrow(() -> new InvalidOrderException("Prodotto non trovato: " + productId));
+        FlashSale sale = new FlashSale(product.getId(), product.getName(), product.getPrice(),
+                product.getStockQuantity() != null ? product.getStockQuantity() : 0);
+        sales.put(productId, sale);
+        logger.info("Flash sale avviata per il prodotto {} ({} pezzi a {})", productId, sale.remaining.get(),
+                sale.price);
+        return sale.toStats();
+    }
+
+    // Chiude le ammissioni; i ticket già accodati vengono comunque scritti
+    public Optional<Map<String, Object>> stop(Long productId) {
+        FlashSale sale = sales.get(productId);
+        if (sale == null) {
+            return Optional.empty();
+        }
+        sale.closed = true;
+        logger.info("Flash sale chiusa per il prodotto {}: {} ordini ammessi", productId, sale.admitted.get());
+        return Optional.of(sale.toStats());
+    }
+
+    // Vero se l'ordine riguarda un prodotto in flash sale (e va quindi ammesso da qui)
+    public boolean handles(OrderRequest request) {
+        if (sales.isEmpty()) {
+            return false;
+        }
+        boolean flash = request.getItems().stream().anyMatch(item -> {
+            FlashSale sale = sales.get(item.getProductId());
+            return sale != null && !sale.closed;
+        });
+        if (flash && request.getItems().size() > 1) {
+            throw new InvalidOrderException("Un prodotto in flash sale va ordinato da solo");
+        }
+        return flash;
+    }
+
+    // Ammissione senza lock: prima un posto in coda, poi la quantità sul contatore.
+    // Il posto si prende prima di controllare 'closed': così stop() seguito da flush() non
+    // può rimuovere la vendita mentre un'ammissione già passata sta ancora accodando il ticket
+    public Ticket admit(UserDetailsImpl user, OrderRequest request) {
+        OrderRequest.Item item = request.getItems().get(0);
+        FlashSale sale = sales.get(item.getProductId());
+        if (sale == null) {
+            throw new InvalidOrderException("Flash sale non attiva per il prodotto " + item.getProductId());
+        }
+
+        int queued = sale.queued.incrementAndGet();
+        if (sale.closed) {
+            sale.queued.decrementAndGet();
+            throw new InvalidOrderException("Flash sale non attiva per il prodotto " + item.getProductId());
+        }
+        if (queued > queueCapacity) {
+            sale.queued.decrementAndGet();
+            queueFull.incrementAndGet();
+            throw new FlashSaleBusyException(Math.max(1, TimeUnit.MILLISECONDS.toSeconds(flushIntervalMs * 5)));
+        }
+
+        int quantity = item.getQuantity();
+        if (!sale.tryAllocate(quantity)) {
+            sale.queued.decrementAndGet();
+            soldOut.incrementAndGet();
+            throw new OutOfStockException(sale.productId);
+        }
+
+        Ticket ticket = new Ticket(UUID.randomUUID().toString(), user.getId(), sale.productId, quantity,
+                sale.price, request);
+        tickets.put(ticket.ticketId, ticket);
+        sale.queue.offer(ticket);
+        sale.admitted.incrementAndGet();
+        admitted.incrementAndGet();
+        return ticket;
+    }
+
+    public Optional<Ticket> getTicket(String ticketId) {
+        return Optional.ofNullable(tickets.get(ticketId));
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("sales", sales.values().stream().map(FlashSale::toStats).collect(Collectors.toList()));
+        stats.put("tickets", tickets.size());
+        stats.put("admitted", admitted.get());
+        stats.put("soldOut", soldOut.get());
+        stats.put("queueFull", queueFull.get());
+        stats.put("persisted", persisted.get());
+        stats.put("batches", batches.get());
+        return stats;
+    }
+
+    private void flushSafely() {
+        try {
+            // Un lotto pieno indica che in coda c'è altro: si continua senza attendere il prossimo giro
+            int written;
+            do {
+                written = flush();
+            } while (written == batchSize);
+            evictOldTickets();
+        } catch (Exception e) {
+            logger.error("Errore durante la scrittura degli ordini della flash sale: {}", e.getMessage(), e);
+        }
+    }
+
+    // Svuota le code fino a batchSize ticket e li scrive in un'unica transazione
+    private int flush() {
+        List<Ticket> batch = new ArrayList<>();
+        for (FlashSale sale : sales.values()) {
+            Ticket ticket;
+            while (batch.size() < batchSize && (ticket = sale.queue.poll()) != null) {
+                sale.queued.decrementAndGet();
+                batch.add(ticket);
+            }
+            // admit() incrementa 'queued' prima di controllare 'closed': a vendita chiusa e contatore
+            // a zero nessuna ammissione è ancora in volo e la vendita si può rimuovere
+            if (sale.closed && sale.queued.get() == 0) {
+                sales.remove(sale.productId, sale);
+            }
+        }
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            List<Ticket> written = transactionTemplate.execute(status -> write(batch));
+            LocalDateTime now = LocalDateTime.now();
+            for (Ticket ticket : written) {
+                ticket.status = TicketStatus.CONFIRMED;
+                ticket.updatedAt = now;
+            }
+            persisted.addAndGet(written.size());
+            batches.incrementAndGet();
+            logger.debug("Flash sale: lotto di {} ordini scritto", written.size());
+        } catch (RuntimeException e) {
+            // Lotto annullato: la quantità torna disponibile e i ticket vengono rifiutati
+            logger.error("Scrittura del lotto flash sale fallita ({} ordini): {}", batch.size(), e.getMessage(), e);
+            for (Ticket ticket : batch) {
+                if (ticket.status == TicketStatus.QUEUED) {
+                    reject(ticket, "Ordine non registrato, riprova");
+                }
+            }
+        }
+        return batch.size();
+    }
+
+    // Un decremento per prodotto per l'intero lotto, poi insert batch di ordini e righe
+    private List<Ticket> write(List<Ticket> batch) {
+        LocalDateTime now = LocalDateTime.now();
+
+        Map<Long, List<Ticket>> byProduct = batch.stream()
+                .collect(Collectors.groupingBy(ticket -> ticket.productId, LinkedHashMap::new, Collectors.toList()));
+        List<Long> productIds = new ArrayList<>(byProduct.keySet());
+        productIds.sort(null);
+        List<Object[]> decrements = new ArrayList<>(productIds.size());
+        for (Long productId : productIds) {
+            int quantity = byProduct.get(productId).stream().mapToInt(ticket -> ticket.quantity).sum();
+            decrements.add(new Object[] { quantity, now, productId, quantity });
+        }
+        int[] updated = jdbcTemplate.batchUpdate(DECREMENT_SQL, decrements);
+
+        // Stock modificato fuori dalla flash sale (es. dall'admin): il lotto di quel prodotto viene rifiutato
+        List<Ticket> accepted = new ArrayList<>(batch.size());
+        for (int i = 0; i < productIds.size(); i++) {
+            List<Ticket> group = byProduct.get(productIds.get(i));
+            if (updated[i] == 0) {
+                logger.warn("Flash sale: stock insufficiente nel DB per il prodotto {}", productIds.get(i));
+                group.forEach(ticket -> reject(ticket, "Prodotto esaurito"));
+            } else {
+                accepted.addAll(group);
+                eventPublisher.publishEvent(
+                        new CatalogChangedEvent(CatalogChangedEvent.Type.STOCK_CHANGED, productIds.get(i)));
+            }
+        }
+        if (accepted.isEmpty()) {
+            return accepted;
+        }
+
+        List<Long> orderIds = jdbcTemplate.queryForList(NEXT_ORDER_IDS_SQL, Long.class, accepted.size());
+        List<Long> itemIds = jdbcTemplate.queryForList(NEXT_ITEM_IDS_SQL, Long.class, accepted.size());
+        Timestamp orderDate = Timestamp.valueOf(now);
+        List<Object[]> orders = new ArrayList<>(accepted.size());
+        List<Object[]> items = new ArrayList<>(accepted.size());
+        for (int i = 0; i < accepted.size(); i++) {
+            Ticket ticket = accepted.get(i);
+            Long orderId = orderIds.get(i);
+            ticket.orderId = orderId;
+            orders.add(new Object[] { orderId, ticket.userId, orderDate,
+                    (ticket.paymentToken != null ? OrderStatus.PROCESSING : OrderStatus.PENDING).name(),
+                    ticket.price.multiply(BigDecimal.valueOf(ticket.quantity)), ticket.paymentToken,
+                    ticket.shippingAddress, ticket.phone, ticket.paymentMethod });
+            items.add(new Object[] { itemIds.get(i), orderId, ticket.productId, ticket.quantity, ticket.price });
+        }
+        jdbcTemplate.batchUpdate(INSERT_ORDER_SQL, orders);
+        jdbcTemplate.batchUpdate(INSERT_ITEM_SQL, items);
+        return accepted;
+    }
+
+    private void reject(Ticket ticket, String reason) {
+        FlashSale sale = sales.get(ticket.productId);
+        if (sale != null && !sale.closed) {
+            sale.remaining.addAndGet(ticket.quantity);
+        }
+        ticket.orderId = null;
+        ticket.message = reason;
+        ticket.status = TicketStatus.REJECTED;
+        ticket.updatedAt = LocalDateTime.now();
+    }
+
+    private void evictOldTickets() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(ticketTtlMinutes);
+        tickets.values().removeIf(
+                ticket -> ticket.status != TicketStatus.QUEUED && ticket.updatedAt.isBefore(cutoff));
+    }
+
+    private static final class FlashSale {
+        private final Long productId;
+        private final String productName;
+        private final BigDecimal price;
+        private final AtomicInteger remaining;
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicLong admitted = new AtomicLong();
+        private final Queue<Ticket> queue = new ConcurrentLinkedQueue<>();
+        private volatile boolean closed;
+
+        private FlashSale(Long productId, String productName, BigDecimal price, int stock) {
+            this.productId = productId;
+            this.productName = productName;
+            this.price = price;
+            this.remaining = new AtomicInteger(stock);
+        }
+
+        private boolean tryAllocate(int quantity) {
+            while (true) {
+                int current = remaining.get();
+                if (current < quantity) {
+                    return false;
+                }
+                if (remaining.compareAndSet(current, current - quantity)) {
+                    return true;
+                }
+            }
+        }
+
+        private Map<String, Object> toStats() {
+            Map<String, Object> stats = new HashMap<>();
+            stats.put("productId", productId);
+            stats.put("productName", productName);
+            stats.put("price", price);
+            stats.put("remaining", remaining.get());
+            stats.put("queued", queued.get());
+            stats.put("admitted", admitted.get());
+            stats.put("closed", closed);
+            return stats;
+        }
+    }
+
+    // Ticket restituito al client al momento dell'ammissione; lo stato si legge in polling
+    public static final class Ticket {
+        private final String ticketId;
+        private final Long userId;
+        private final Long productId;
+        private final int quantity;
+        private final BigDecimal price;
+        private final String shippingAddress;
+        private final String phone;
+        private final String paymentMethod;
+        private final String paymentToken;
+        private volatile TicketStatus status = TicketStatus.QUEUED;
+        private volatile Long orderId;
+        private volatile String message;
+        private volatile LocalDateTime updatedAt = LocalDateTime.now();
+
+        private Ticket(String ticketId, Long userId, Long productId, int quantity, BigDecimal price,
+                OrderRequest request) {
+            this.ticketId = ticketId;
+            this.userId = userId;
+            this.productId = productId;
+            this.quantity = quantity;
+            this.price = price;
+            this.shippingAddress = request.getShippingAddress();
+            this.phone = request.getPhone();
+            this.paymentMethod = request.getPaymentMethod();
+            this.paymentToken = request.getPaymentToken();
+        }
+
+        public boolean isOwnedBy(Long userId) {
+            return this.userId.equals(userId);
+        }
+
+        public Map<String, Object> toResponse() {
+            Map<String, Object> response = new HashMap<>();
+            response.put("ticketId", ticketId);
+            response.put("productId", productId);
+            response.put("quantity", quantity);
+            response.put("totalAmount", price.multiply(BigDecimal.valueOf(quantity)));
+            response.put("status", status);
+            response.put("orderId", orderId);
+            response.put("message", message);
+            return response;
+        }
+    }
+}
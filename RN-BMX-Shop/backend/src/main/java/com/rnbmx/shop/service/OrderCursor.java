@@ -0,0 +1,51 @@
+package com.rnbmx.shop.service;
+
+import com.rnbmx.shop.payload.response.OrderResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+// Cursore opaco per lo storico ordini: data e id dell'ultimo ordine restituito.
+// L'ordinamento è sempre dal più recente (order_date DESC, id DESC).
+public final class OrderCursor {
+
+    private final LocalDateTime orderDate;
+    private final Long lastId;
+
+    private OrderCursor(LocalDateTime orderDate, Long lastId) {
+        this.orderDate = orderDate;
+        this.lastId = lastId;
+    }
+
+    public static OrderCursor after(OrderResponse order) {
+        return new OrderCursor(order.getOrderDate(), order.getId());
+    }
+
+    public static OrderCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", -1);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Cursore non valido");
+            }
+            return new OrderCursor(parts[0].isEmpty() ? null : LocalDateTime.parse(parts[0]),
+                    Long.parseLong(parts[1]));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Cursore non valido: " + token, e);
+        }
+    }
+
+    public String encode() {
+        String raw = (orderDate != null ? orderDate.toString() : "") + "|" + lastId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public LocalDateTime getOrderDate() {
+        return orderDate;
+    }
+
+    public Long getLastId() {
+        return lastId;
+    }
+}
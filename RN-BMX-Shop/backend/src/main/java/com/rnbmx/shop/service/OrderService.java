@@ -0,0 +1,200 @@
+package com.rnbmx.shop.service;
+
+import com.rnbmx.shop.exception.InvalidOrderException;
+import com.rnbmx.shop.model.Order;
+import com.rnbmx.shop.model.OrderStatus;
+import com.rnbmx.shop.model.Product;
+import com.rnbmx.shop.payload.request.OrderRequest;
+import com.rnbmx.shop.payload.response.OrderPageResponse;
+import com.rnbmx.shop.payload.response.OrderResponse;
+import com.rnbmx.shop.repository.OrderRepository;
+import com.rnbmx.shop.repository.ProductRepository;
+import com.rnbmx.shop.repository.UserRepository;
+import com.rnbmx.shop.security.services.UserDetailsImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+public class OrderService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderService.class);
+
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private static final String INSERT_ITEM_SQL =
+            "INSERT INTO order_items (id, order_id, product_id, quantity, price) VALUES (?, ?, ?, ?, ?)";
+
+    // Un solo round trip per riservare gli id delle righe dalla sequenza della colonna identity
+    private static final String NEXT_ITEM_IDS_SQL =
+            "SELECT nextval(pg_get_serial_sequence('order_items', 'id')) FROM generate_series(1, ?)";
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private StockService stockService;
+
+    private final AtomicLong ordersCreated = new AtomicLong();
+    private final AtomicLong itemsCreated = new AtomicLong();
+    private final AtomicLong totalCreateNanos = new AtomicLong();
+
+    // Crea l'ordine in una sola transazione: una query per i prodotti, un insert per
+    // l'ordine e un batch JDBC per le righe. Il totale si calcola dai prezzi attuali.
+    @Transactional
+    public OrderResponse createOrder(UserDetailsImpl user, OrderRequest request) {
+        long start = System.nanoTime();
+
+        // Lo stesso prodotto ripetuto nel carrello diventa una sola riga
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        for (OrderRequest.Item item : request.getItems()) {
+            quantities.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+        }
+
+        Map<Long, Product> products = productRepository.findAllById(quantities.keySet()).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+
+        BigDecimal total = BigDecimal.ZERO;
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            Product product = products.get(entry.getKey());
+            if (product == null) {
+                throw new InvalidOrderException("Prodotto non trovato: " + entry.getKey());
+            }
+            total = total.add(product.getPrice().multiply(BigDecimal.valueOf(entry.getValue())));
+        }
+
+        // Decremento condizionato della disponibilità: se un prodotto non basta, rollback dell'intero ordine
+        stockService.reserve(quantities);
+
+        // Riferimento senza SELECT: dell'utente serve solo l'id per la chiave esterna
+        Order order = new Order(userRepository.getReferenceById(user.getId()), LocalDateTime.now(),
+                request.getPaymentToken() != null ? OrderStatus.PROCESSING : OrderStatus.PENDING, total,
+                request.getPaymentToken());
+        order.setShippingAddress(request.getShippingAddress());
+        order.setPhone(request.getPhone());
+        order.setPaymentMethod(request.getPaymentMethod());
+        // Con GenerationType.IDENTITY l'insert è immediato e l'id è subito disponibile
+        orderRepository.save(order);
+
+        // Le righe non passano da order.getOrderItems(): il cascade le inserirebbe una seconda volta
+        List<Long> itemIds = jdbcTemplate.queryForList(NEXT_ITEM_IDS_SQL, Long.class, quantities.size());
+        List<Object[]> rows = new ArrayList<>(quantities.size());
+        List<OrderResponse.Item> items = new ArrayList<>(quantities.size());
+        int i = 0;
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            Product product = products.get(entry.getKey());
+            Long itemId = itemIds.get(i++);
+            rows.add(new Object[] { itemId, order.getId(), product.getId(), entry.getValue(), product.getPrice() });
+            items.add(new OrderResponse.Item(itemId, product.getId(), product.getName(), entry.getValue(),
+                    product.getPrice()));
+        }
+        jdbcTemplate.batchUpdate(INSERT_ITEM_SQL, rows);
+
+        OrderResponse response = OrderResponse.from(order, items);
+        response.setEmail(user.getEmail());
+
+        long elapsed = System.nanoTime() - start;
+        ordersCreated.incrementAndGet();
+        itemsCreated.addAndGet(items.size());
+        totalCreateNanos.addAndGet(elapsed);
+        logger.debug("Ordine {} creato per {}: {} righe, totale {} ({} ms)", order.getId(), user.getEmail(),
+                items.size(), total, TimeUnit.NANOSECONDS.toMillis(elapsed));
+        return response;
+    }
+
+    @Transactional(readOnly = true)
+    public List<OrderResponse> getUserOrders(Long userId) {
+        return orderRepository.findByUserOrderByOrderDateDesc(userRepository.getReferenceById(userId)).stream()
+                .map(OrderResponse::from)
+                .collect(Collectors.toList());
+    }
+
+    // Paginazione keyset dello storico (userId null = tutti gli utenti, per gli admin)
+    @Transactional(readOnly = true)
+    public OrderPageResponse getOrderPage(Long userId, OrderStatus status, LocalDateTime from, LocalDateTime to,
+            Integer limit, String cursor) {
+        int pageSize = limit == null || limit <= 0 ? DEFAULT_PAGE_SIZE : Math.min(limit, MAX_PAGE_SIZE);
+        OrderCursor after = cursor != null && !cursor.trim().isEmpty() ? OrderCursor.decode(cursor.trim()) : null;
+        if (from != null && to != null && !from.isBefore(to)) {
+            throw new IllegalArgumentException("Intervallo di date non valido");
+        }
+
+        // Un elemento in più per sapere se esiste una pagina successiva senza COUNT
+        List<OrderResponse> rows = orderRepository.findPage(userId, status, from, to, after, pageSize + 1).stream()
+                .map(OrderResponse::from)
+                .collect(Collectors.toList());
+        boolean hasMore = rows.size() > pageSize;
+        List<OrderResponse> items = hasMore ? rows.subList(0, pageSize) : rows;
+        String nextCursor = hasMore ? OrderCursor.after(items.get(items.size() - 1)).encode() : null;
+
+        return new OrderPageResponse(items, nextCursor, hasMore, pageSize);
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<OrderResponse> getOrder(Long id) {
+        return orderRepository.findWithItemsById(id).map(OrderResponse::from);
+    }
+
+    @Transactional(readOnly = true)
+    public List<OrderResponse> getAllOrders() {
+        return orderRepository.findAllWithItems().stream()
+                .map(OrderResponse::from)
+                .collect(Collectors.toList());
+    }
+
+    // L'annullamento restituisce la merce prenotata; un ordine annullato non si riattiva.
+    // Il lock sulla riga evita una doppia restituzione in concorrenza con la pulizia delle prenotazioni
+    @Transactional
+    public Optional<OrderResponse> updateStatus(Long id, OrderStatus status) {
+        return orderRepository.findByIdForUpdate(id).map(order -> {
+            if (order.getStatus() == OrderStatus.CANCELLED && status != OrderStatus.CANCELLED) {
+                throw new InvalidOrderException("Un ordine annullato non può essere riattivato");
+            }
+            if (order.getStatus() != OrderStatus.CANCELLED && status == OrderStatus.CANCELLED) {
+                Map<Long, Integer> quantities = new HashMap<>();
+                order.getOrderItems().forEach(item -> quantities.merge(item.getProduct().getId(),
+                        item.getQuantity(), Integer::sum));
+                stockService.release(quantities);
+            }
+            order.setStatus(status);
+            logger.info("Stato dell'ordine {} aggiornato a {}", id, status);
+            return OrderResponse.from(order);
+        });
+    }
+
+    public Map<String, Object> getStats() {
+        long created = ordersCreated.get();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("ordersCreated", created);
+        stats.put("itemsCreated", itemsCreated.get());
+        stats.put("avgCreateMs", created > 0 ? totalCreateNanos.get() / created / 1_000_000.0 : 0);
+        stats.put("stock", stockService.getStats());
+        return stats;
+    }
+}
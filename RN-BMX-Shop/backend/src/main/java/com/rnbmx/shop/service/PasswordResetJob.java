@@ -0,0 +1,217 @@
+package com.rnbmx.shop.service;
+
+import com.rnbmx.shop.security.services.UserSecurityChangedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+// Reimpostazione massiva delle password in background. Gli utenti vengono letti a
+// pagine per id crescente (nessuna transazione lunga), gli hash calcolati su un pool
+// dedicato e le righe aggiornate con batch JDBC. Dopo ogni pagina viene registrato
+// l'ultimo id elaborato: un job interrotto riprende da lì.
+//
+// Non si può ricalcolare un hash senza la password in chiaro: l'aggiornamento di
+// algoritmo o costo per le password esistenti avviene al login (UserDetailsPasswordService).
+@Service
+public class PasswordResetJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(PasswordResetJob.class);
+
+    public enum State {
+        IDLE,
+        RUNNING,
+        COMPLETED,
+        CANCELLED,
+        FAILED
+    }
+
+    @Value("${bmx.app.passwordJob.batchSize:500}")
+    private int batchSize;
+
+    // Volutamente separato dal pool dei login: il job non deve rallentare gli accessi
+    @Value("${bmx.app.passwordJob.hashThreads:2}")
+    private int hashThreads;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PasswordEncoder encoder;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+    private ExecutorService coordinator;
+    private ExecutorService hashPool;
+
+    private volatile State state = State.IDLE;
+    private volatile boolean cancelRequested;
+    private volatile long lastUserId;
+    private volatile long processed;
+    private volatile long total;
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+    private volatile String error;
+
+    // Destinatari dell'ultimo avvio, per poter riprendere un job interrotto. La password in
+    // chiaro non viene conservata: va passata di nuovo alla ripresa
+    private volatile List<String> lastEmails;
+
+    @PostConstruct
+    public void init() {
+        namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        coordinator = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "password-reset-job");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger counter = new AtomicInteger();
+        hashPool = Executors.newFixedThreadPool(hashThreads, runnable -> {
+            Thread thread = new Thread(runnable, "password-reset-hash-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        cancelRequested = true;
+        coordinator.shutdownNow();
+        hashPool.shutdownNow();
+    }
+
+    // emails == null significa tutti gli utenti; afterUserId > 0 salta gli utenti già elaborati
+    public synchronized Map<String, Object> start(String rawPassword, List<String> emails, long afterUserId) {
+        if (state == State.RUNNING) {
+            throw new IllegalStateException("Un job di reimpostazione password è già in corso");
+        }
+        if (rawPassword == null || rawPassword.isEmpty()) {
+            throw new IllegalArgumentException("La password è obbligatoria");
+        }
+
+        lastEmails = emails != null ? new ArrayList<>(emails) : null;
+        cancelRequested = false;
+        lastUserId = afterUserId;
+        processed = 0;
+        total = count(lastEmails, afterUserId);
+        startedAt = LocalDateTime.now();
+        finishedAt = null;
+        error = null;
+        state = State.RUNNING;
+
+        List<String> scope = lastEmails;
+        coordinator.execute(() -> run(rawPassword, scope));
+        logger.info("Job reimpostazione password avviato: {} utenti da id {}", total, afterUserId);
+        return getStatus();
+    }
+
+    // Riprende dall'ultimo id elaborato con gli stessi destinatari e la password indicata
+    public synchronized Map<String, Object> resume(String rawPassword) {
+        if (state == State.IDLE || state == State.COMPLETED) {
+            throw new IllegalStateException("Nessun job da riprendere");
+        }
+        return start(rawPassword, lastEmails, lastUserId);
+    }
+
+    public void cancel() {
+        cancelRequested = true;
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("state", state);
+        status.put("processed", processed);
+        status.put("total", total);
+        status.put("lastUserId", lastUserId);
+        status.put("startedAt", startedAt);
+        status.put("finishedAt", finishedAt);
+        status.put("error", error);
+        return status;
+    }
+
+    private void run(String rawPassword, List<String> emails) {
+        try {
+            while (!cancelRequested) {
+                List<Map<String, Object>> page = nextPage(emails, lastUserId);
+                if (page.isEmpty()) {
+                    finish(State.COMPLETED);
+                    return;
+                }
+
+                // Ogni utente ha il proprio salt: un hash per riga, in parallelo sul pool del job
+                List<CompletableFuture<Object[]>> hashed = page.stream()
+                        .map(row -> CompletableFuture.supplyAsync(
+                                () -> new Object[] { encoder.encode(rawPassword), row.get("id") }, hashPool))
+                        .collect(Collectors.toList());
+                List<Object[]> updates = hashed.stream()
+                        .map(CompletableFuture::join)
+                        .collect(Collectors.toList());
+
+                // Una transazione breve per pagina (auto-commit del batch)
+                jdbcTemplate.batchUpdate("UPDATE users SET password = ? WHERE id = ?", updates);
+                page.forEach(row -> eventPublisher.publishEvent(new UserSecurityChangedEvent(
+                        (String) row.get("email"), UserSecurityChangedEvent.Reason.PASSWORD_CHANGED)));
+
+                lastUserId = ((Number) page.get(page.size() - 1).get("id")).longValue();
+                processed += page.size();
+                logger.info("Job reimpostazione password: {}/{} (ultimo id {})", processed, total, lastUserId);
+            }
+            finish(State.CANCELLED);
+        } catch (Exception e) {
+            error = e.getMessage();
+            logger.error("Job reimpostazione password interrotto all'id {}: {}", lastUserId, e.getMessage(), e);
+            finish(State.FAILED);
+        }
+    }
+
+    private void finish(State result) {
+        finishedAt = LocalDateTime.now();
+        state = result;
+        logger.info("Job reimpostazione password terminato: {} ({} utenti, ultimo id {})", result, processed,
+                lastUserId);
+    }
+
+    private List<Map<String, Object>> nextPage(List<String> emails, long afterUserId) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("afterId", afterUserId)
+                .addValue("limit", batchSize);
+        String sql = "SELECT id, email FROM users WHERE id > :afterId";
+        if (emails != null) {
+            sql += " AND email IN (:emails)";
+            params.addValue("emails", emails);
+        }
+        return namedJdbcTemplate.queryForList(sql + " ORDER BY id LIMIT :limit", params);
+    }
+
+    private long count(List<String> emails, long afterUserId) {
+        MapSqlParameterSource params = new MapSqlParameterSource().addValue("afterId", afterUserId);
+        String sql = "SELECT COUNT(*) FROM users WHERE id > :afterId";
+        if (emails != null) {
+            sql += " AND email IN (:emails)";
+            params.addValue("emails", emails);
+        }
+        Long count = namedJdbcTemplate.queryForObject(sql, params, Long.class);
+        return count != null ? count : 0;
+    }
+}
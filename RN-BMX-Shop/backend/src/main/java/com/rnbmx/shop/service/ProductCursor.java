@@ -0,0 +1,83 @@
+package com.rnbmx.shop.service;
+
+import com.rnbmx.shop.payload.response.ProductCardResponse;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+// Cursore opaco per la paginazione keyset: contiene la chiave di ordinamento,
+// il valore dell'ultimo elemento restituito e il suo id.
+public final class ProductCursor {
+
+    private final ProductSortField sortField;
+    private final boolean ascending;
+    private final String value;
+    private final Long lastId;
+
+    private ProductCursor(ProductSortField sortField, boolean ascending, String value, Long lastId) {
+        this.sortField = sortField;
+        this.ascending = ascending;
+        this.value = value;
+        this.lastId = lastId;
+    }
+
+    public static ProductCursor after(ProductCardResponse product, ProductSortField sortField, boolean ascending) {
+        String value;
+        switch (sortField) {
+            case PRICE:
+                value = product.getPrice() != null ? product.getPrice().toPlainString() : "";
+                break;
+            case CREATED_AT:
+                value = product.getCreatedAt() != null ? product.getCreatedAt().toString() : "";
+                break;
+            default:
+                value = "";
+        }
+        return new ProductCursor(sortField, ascending, value, product.getId());
+    }
+
+    public static ProductCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", -1);
+            if (parts.length != 4) {
+                throw new IllegalArgumentException("Cursore non valido");
+            }
+            ProductCursor cursor = new ProductCursor(ProductSortField.valueOf(parts[0]), "a".equals(parts[1]),
+                    parts[2], Long.parseLong(parts[3]));
+            // Valida subito il valore, così un cursore manomesso fallisce qui e non nella query
+            cursor.getPriceValue();
+            cursor.getCreatedAtValue();
+            return cursor;
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Cursore non valido: " + token, e);
+        }
+    }
+
+    public String encode() {
+        String raw = sortField.name() + "|" + (ascending ? "a" : "d") + "|" + value + "|" + lastId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public ProductSortField getSortField() {
+        return sortField;
+    }
+
+    public boolean isAscending() {
+        return ascending;
+    }
+
+    public Long getLastId() {
+        return lastId;
+    }
+
+    public BigDecimal getPriceValue() {
+        return sortField == ProductSortField.PRICE && !value.isEmpty() ? new BigDecimal(value) : null;
+    }
+
+    public LocalDateTime getCreatedAtValue() {
+        return sortField == ProductSortField.CREATED_AT && !value.isEmpty() ? LocalDateTime.parse(value) : null;
+    }
+}
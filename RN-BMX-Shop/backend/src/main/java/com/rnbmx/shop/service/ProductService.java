@@ -2,27 +2,102 @@ package com.rnbmx.shop.service;
 
 import com.rnbmx.shop.model.Product;
 import com.rnbmx.shop.model.Category;
+import com.rnbmx.shop.payload.response.ProductCardResponse;
+import com.rnbmx.shop.payload.response.ProductPageResponse;
 import com.rnbmx.shop.repository.ProductRepository;
 import com.rnbmx.shop.repository.CategoryRepository;
+import com.rnbmx.shop.search.CatalogFacetIndex;
+import com.rnbmx.shop.search.ProductSearchIndex;
+import com.rnbmx.shop.search.Suggestion;
+import com.rnbmx.shop.search.SuggestionIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
 
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 @Service
 public class ProductService {
 
+    private static final Logger logger = LoggerFactory.getLogger(ProductService.class);
+
+    public static final int DEFAULT_PAGE_SIZE = 24;
+    public static final int MAX_PAGE_SIZE = 100;
+    public static final int DEFAULT_SEARCH_LIMIT = 50;
+
     @Autowired
     private ProductRepository productRepository;
 
     @Autowired
     private CategoryRepository categoryRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private StockService stockService;
+
+    @Autowired
+    private ProductSearchIndex searchIndex;
+
+    @Autowired
+    private SuggestionIndex suggestionIndex;
+
+    // Snapshot corrente del catalogo: letto senza lock, sostituito con una sola
+    // scrittura dopo ogni ricostruzione
+    private volatile CatalogSnapshot catalogSnapshot;
+
+    @Value("${bmx.app.catalog.stockRefreshMs:1000}")
+    private long stockRefreshMs;
+
+    // Prodotti con disponibilità cambiata dall'ultimo aggiornamento dello snapshot
+    private final Set<Long> pendingStockIds = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean stockRefreshPending = new AtomicBoolean();
+    private final ScheduledExecutorService stockRefreshScheduler = Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+                Thread thread = new Thread(runnable, "catalog-stock-refresh");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private final Object rebuildLock = new Object();
+    private final AtomicLong catalogVersion = new AtomicLong();
+
+    // Contatori per misurare l'efficacia della cache
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
+    private final AtomicLong rebuildCount = new AtomicLong();
+    private final AtomicLong totalRebuildNanos = new AtomicLong();
+    private volatile long lastRebuildNanos;
+    private final AtomicLong stockPatches = new AtomicLong();
+    private final AtomicLong patchedProducts = new AtomicLong();
+
     public List<Product> getAllProducts() {
-        return productRepository.findAll();
+        return getCatalogSnapshot().getProducts();
     }
 
     public Optional<Product> getProductById(Long id) {
@@ -30,35 +105,305 @@ public class ProductService {
     }
 
     public List<Product> getFeaturedProducts() {
-        return productRepository.findAll().stream()
-                .filter(Product::isFeatured)
-                .collect(Collectors.toList());
+        return getCatalogSnapshot().getFeaturedProducts();
+    }
+
+    // Prodotti in evidenza con ordinamento e limite opzionali. Se lo snapshot non è
+    // ancora pronto usa la query sull'indice parziale invece di caricare tutto il catalogo
+    public List<Product> getFeaturedProducts(Integer limit, String sortBy, String direction) {
+        Sort sort = resolveFeaturedSort(sortBy, direction);
+        CatalogSnapshot snapshot = catalogSnapshot;
+        if (snapshot != null) {
+            cacheHits.incrementAndGet();
+            return snapshot.getFeaturedProducts().stream()
+                    .sorted(comparatorFor(sort))
+                    .limit(limit != null && limit > 0 ? limit : Long.MAX_VALUE)
+                    .collect(Collectors.toList());
+        }
+
+        cacheMisses.incrementAndGet();
+        if (limit != null && limit > 0) {
+            return productRepository.findByFeaturedTrue(PageRequest.of(0, limit, sort));
+        }
+        return productRepository.findByFeaturedTrue(sort);
     }
 
     public List<Product> getProductsByCategory(Category category) {
-        return productRepository.findByCategoryEntity(category);
+        return getCatalogSnapshot().getProductsByCategory(category);
+    }
+
+    // Paginazione keyset del catalogo (category null = tutte le categorie).
+    // Se è presente un cursore, ordinamento e direzione vengono presi dal cursore.
+    public ProductPageResponse getProductPage(Category category, Integer limit, String cursor, String sort,
+            String direction) {
+        int pageSize = limit == null || limit <= 0 ? DEFAULT_PAGE_SIZE : Math.min(limit, MAX_PAGE_SIZE);
+
+        ProductCursor after = null;
+        ProductSortField sortField;
+        boolean ascending;
+        if (cursor != null && !cursor.trim().isEmpty()) {
+            after = ProductCursor.decode(cursor.trim());
+            sortField = after.getSortField();
+            ascending = after.isAscending();
+            if ((sort != null && ProductSortField.fromParam(sort) != sortField)
+                    || (direction != null && "asc".equalsIgnoreCase(direction) != ascending)) {
+                throw new IllegalArgumentException("Il cursore non corrisponde all'ordinamento richiesto");
+            }
+        } else {
+            sortField = ProductSortField.fromParam(sort);
+            ascending = direction == null || !"desc".equalsIgnoreCase(direction);
+        }
+
+        Long categoryId = category != null ? category.getId() : null;
+        // Un elemento in più per sapere se esiste una pagina successiva senza COUNT
+        List<ProductCardResponse> rows = productRepository.findCardPage(categoryId, sortField, ascending, after,
+                pageSize + 1);
+        boolean hasMore = rows.size() > pageSize;
+        List<ProductCardResponse> items = hasMore ? rows.subList(0, pageSize) : rows;
+        String nextCursor = hasMore
+                ? ProductCursor.after(items.get(items.size() - 1), sortField, ascending).encode()
+                : null;
+
+        return new ProductPageResponse(items, nextCursor, hasMore, pageSize, sortField.getProperty(),
+                ascending ? "asc" : "desc");
+    }
+
+    public Optional<Category> getCategoryByName(String name) {
+        return getCatalogSnapshot().findCategoryByName(name);
+    }
+
+    public List<Category> getAllCategories() {
+        return getCatalogSnapshot().getCategories();
     }
 
     @Transactional
     public Product createProduct(Product product) {
-        return productRepository.save(product);
+        Product saved = productRepository.save(product);
+        eventPublisher.publishEvent(new CatalogChangedEvent(CatalogChangedEvent.Type.CREATED, saved.getId()));
+        return saved;
     }
 
+    // Copia solo i campi modificabili sull'entità caricata nella transazione. La disponibilità
+    // non passa dall'entità (colonna non aggiornabile): la variazione richiesta viene applicata
+    // da StockService come incremento relativo, senza cancellare gli ordini concorrenti
     @Transactional
-    public Product updateProduct(Long id, Product product) {
-        if (!productRepository.existsById(id)) {
-            throw new RuntimeException("Prodotto non trovato con ID: " + id);
+    public Product updateProduct(Long id, Product product, int stockDelta) {
+        Product existing = productRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Prodotto non trovato con ID: " + id));
+        existing.setName(product.getName());
+        existing.setDescription(product.getDescription());
+        existing.setPrice(product.getPrice());
+        existing.setImageUrl(product.getImageUrl());
+        existing.setCategoryEntity(product.getCategoryEntity());
+        existing.setBrand(product.getBrand());
+        existing.setFeatured(product.isFeatured());
+        Product saved = productRepository.save(existing);
+
+        if (stockDelta != 0) {
+            saved.setStockQuantity(stockService.adjust(id, stockDelta));
         }
-        product.setId(id);
-        return productRepository.save(product);
+        eventPublisher.publishEvent(new CatalogChangedEvent(CatalogChangedEvent.Type.UPDATED, id));
+        return saved;
     }
 
     @Transactional
     public void deleteProduct(Long id) {
         productRepository.deleteById(id);
+        eventPublisher.publishEvent(new CatalogChangedEvent(CatalogChangedEvent.Type.DELETED, id));
     }
 
     public List<Product> searchProducts(String query) {
-        return productRepository.findByNameContainingIgnoreCase(query);
+        return searchProducts(query, DEFAULT_SEARCH_LIMIT);
+    }
+
+    // Ricerca full-text sull'indice in memoria, ordinata per rilevanza. L'indice non segue
+    // le variazioni di stock: i risultati si leggono dallo snapshot, aggiornato con la disponibilità
+    public List<Product> searchProducts(String query, int limit) {
+        CatalogSnapshot snapshot = getCatalogSnapshot();
+        return searchIndex.search(query, Math.min(limit, MAX_PAGE_SIZE)).stream()
+                .map(product -> snapshot.findProduct(product.getId()).orElse(product))
+                .collect(Collectors.toList());
+    }
+
+    private static Sort resolveFeaturedSort(String sortBy, String direction) {
+        String property;
+        if ("price".equals(sortBy) || "name".equals(sortBy) || "id".equals(sortBy)) {
+            property = sortBy;
+        } else {
+            property = "createdAt";
+        }
+        Sort.Direction dir = "asc".equalsIgnoreCase(direction) ? Sort.Direction.ASC : Sort.Direction.DESC;
+        // id come secondo criterio rende stabile l'ordinamento a parità di valore
+        return Sort.by(dir, property).and(Sort.by(dir, "id"));
+    }
+
+    private static Comparator<Product> comparatorFor(Sort sort) {
+        Comparator<Product> comparator = null;
+        for (Sort.Order order : sort) {
+            Comparator<Product> next;
+            switch (order.getProperty()) {
+                case "price":
+                    next = Comparator.comparing(Product::getPrice,
+                            Comparator.nullsLast(Comparator.naturalOrder()));
+                    break;
+                case "name":
+                    next = Comparator.comparing(Product::getName,
+                            Comparator.nullsLast(Comparator.naturalOrder()));
+                    break;
+                case "id":
+                    next = Comparator.comparing(Product::getId,
+                            Comparator.nullsLast(Comparator.naturalOrder()));
+                    break;
+                default:
+                    next = Comparator.comparing(Product::getCreatedAt,
+                            Comparator.nullsLast(Comparator.naturalOrder()));
+            }
+            if (order.isDescending()) {
+                next = next.reversed();
+            }
+            comparator = comparator == null ? next : comparator.thenComparing(next);
+        }
+        return comparator;
+    }
+
+    // Filtro combinato con conteggio delle faccette, calcolato sugli indici bitset dello snapshot
+    public CatalogFacetIndex.Result browseProducts(Collection<String> brands, Collection<String> categories,
+            BigDecimal minPrice, BigDecimal maxPrice, Boolean inStock, Integer offset, Integer limit) {
+        int pageSize = limit == null || limit <= 0 ? DEFAULT_PAGE_SIZE : Math.min(limit, MAX_PAGE_SIZE);
+        int start = offset == null || offset < 0 ? 0 : offset;
+        return getCatalogSnapshot().getFacetIndex()
+                .browse(brands, categories, minPrice, maxPrice, inStock, start, pageSize);
+    }
+
+    // Completamento automatico dal trie in memoria, senza accesso al database
+    public List<Suggestion> suggest(String prefix, int limit) {
+        return suggestionIndex.suggest(prefix, limit);
+    }
+
+    public void recordProductView(Long id) {
+        suggestionIndex.recordView(id);
+    }
+
+    // Ricostruisce lo snapshot solo dopo il commit, così una transazione
+    // annullata non lascia in cache dati mai scritti
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        if (event.getType() == CatalogChangedEvent.Type.STOCK_CHANGED) {
+            scheduleStockRefresh(event.getProductId());
+            return;
+        }
+        logger.debug("Catalogo modificato ({} prodotto {}), ricostruzione snapshot", event.getType(),
+                event.getProductId());
+        rebuildCatalogSnapshot();
+    }
+
+    // Gli ordini cambiano la disponibilità di continuo: invece di una ricostruzione per
+    // ordine, un solo aggiornamento entro stockRefreshMs per tutte le variazioni arrivate,
+    // che rilegge la disponibilità dei soli prodotti coinvolti
+    private void scheduleStockRefresh(Long productId) {
+        if (productId != null) {
+            pendingStockIds.add(productId);
+        }
+        if (!stockRefreshPending.compareAndSet(false, true)) {
+            return;
+        }
+        stockRefreshScheduler.schedule(() -> {
+            stockRefreshPending.set(false);
+            try {
+                refreshStock();
+            } catch (Exception e) {
+                logger.error("Aggiornamento della disponibilità nello snapshot fallito: {}", e.getMessage(), e);
+            }
+        }, stockRefreshMs, TimeUnit.MILLISECONDS);
+    }
+
+    // Copia dello snapshot corrente con la nuova disponibilità dei prodotti in attesa: una
+    // query per chiave primaria sui soli id coinvolti, nessun findAll. Una variazione arrivata
+    // dopo la copia del set resta in attesa e pianifica da sé il prossimo aggiornamento
+    void refreshStock() {
+        List<Long> ids = new ArrayList<>(pendingStockIds);
+        if (ids.isEmpty()) {
+            return;
+        }
+        pendingStockIds.removeAll(ids);
+        synchronized (rebuildLock) {
+            CatalogSnapshot snapshot = catalogSnapshot;
+            if (snapshot == null) {
+                // Nessuno snapshot da aggiornare: il primo accesso lo costruirà già aggiornato
+                return;
+            }
+            Map<Long, CatalogSnapshot.StockLevel> levels = new HashMap<>();
+            for (Object[] row : productRepository.findStockLevels(ids)) {
+                Long id = (Long) row[0];
+                levels.put(id, new CatalogSnapshot.StockLevel(id, (Integer) row[1], (LocalDateTime) row[2]));
+            }
+            // Disponibilità invariata (es. prenotazione poi rilasciata): snapshot, ETag
+            // e corpi già serializzati restano validi
+            CatalogSnapshot patched = snapshot.withStock(catalogVersion.get() + 1, levels);
+            if (patched == snapshot) {
+                return;
+            }
+            catalogVersion.incrementAndGet();
+            catalogSnapshot = patched;
+            stockPatches.incrementAndGet();
+            patchedProducts.addAndGet(ids.size());
+            logger.debug("Snapshot catalogo v{}: disponibilità aggiornata per {} prodotti", patched.getVersion(),
+                    ids.size());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        stockRefreshScheduler.shutdownNow();
+    }
+
+    public CatalogSnapshot getCatalogSnapshot() {
+        CatalogSnapshot snapshot = catalogSnapshot;
+        if (snapshot != null) {
+            cacheHits.incrementAndGet();
+            return snapshot;
+        }
+        cacheMisses.incrementAndGet();
+        synchronized (rebuildLock) {
+            snapshot = catalogSnapshot;
+            if (snapshot == null) {
+                snapshot = rebuildCatalogSnapshot();
+            }
+            return snapshot;
+        }
+    }
+
+    public CatalogSnapshot rebuildCatalogSnapshot() {
+        synchronized (rebuildLock) {
+            long start = System.nanoTime();
+            List<Product> products = productRepository.findAll();
+            List<Category> categories = categoryRepository.findAll();
+            CatalogSnapshot snapshot = new CatalogSnapshot(catalogVersion.incrementAndGet(), products, categories);
+            catalogSnapshot = snapshot;
+
+            long elapsed = System.nanoTime() - start;
+            lastRebuildNanos = elapsed;
+            totalRebuildNanos.addAndGet(elapsed);
+            rebuildCount.incrementAndGet();
+            logger.info("Snapshot catalogo v{} ricostruito: {} prodotti, {} categorie in {} ms",
+                    snapshot.getVersion(), products.size(), categories.size(), elapsed / 1_000_000);
+            return snapshot;
+        }
+    }
+
+    public Map<String, Object> getCatalogCacheStats() {
+        CatalogSnapshot snapshot = catalogSnapshot;
+        long rebuilds = rebuildCount.get();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("version", snapshot != null ? snapshot.getVersion() : 0);
+        stats.put("products", snapshot != null ? snapshot.getProducts().size() : 0);
+        stats.put("hits", cacheHits.get());
+        stats.put("misses", cacheMisses.get());
+        stats.put("rebuilds", rebuilds);
+        stats.put("lastRebuildMs", lastRebuildNanos / 1_000_000.0);
+        stats.put("stockPatches", stockPatches.get());
+        stats.put("patchedProducts", patchedProducts.get());
+        stats.put("avgRebuildMs", rebuilds > 0 ? totalRebuildNanos.get() / 1_000_000.0 / rebuilds : 0);
+        return stats;
     }
-}
\ No newline at end of file
+}
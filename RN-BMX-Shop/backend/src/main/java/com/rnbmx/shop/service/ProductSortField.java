@@ -0,0 +1,31 @@
+package com.rnbmx.shop.service;
+
+// Chiavi di ordinamento ammesse per la paginazione keyset del catalogo.
+// Ogni chiave usa l'id come secondo criterio, così l'ordine è sempre totale e stabile.
+public enum ProductSortField {
+    ID("id"),
+    PRICE("price"),
+    CREATED_AT("createdAt");
+
+    private final String property;
+
+    ProductSortField(String property) {
+        this.property = property;
+    }
+
+    public String getProperty() {
+        return property;
+    }
+
+    public static ProductSortField fromParam(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return ID;
+        }
+        for (ProductSortField field : values()) {
+            if (field.property.equalsIgnoreCase(value.trim())) {
+                return field;
+            }
+        }
+        throw new IllegalArgumentException("Ordinamento non supportato: " + value);
+    }
+}
@@ -0,0 +1,58 @@
+package com.rnbmx.shop.service;
+
+import com.rnbmx.shop.exception.RoleNotFoundException;
+import com.rnbmx.shop.model.ERole;
+import com.rnbmx.shop.model.Role;
+import com.rnbmx.shop.repository.RoleRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+// I ruoli sono un insieme fisso (ERole): vengono creati se mancano e caricati una
+// sola volta all'avvio. Registrazione e assegnazione dei ruoli non interrogano più
+// la tabella roles ad ogni richiesta.
+@Component
+public class RoleRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(RoleRegistry.class);
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    private Map<ERole, Role> roles;
+
+    @PostConstruct
+    public void init() {
+        Map<ERole, Role> loaded = new EnumMap<>(ERole.class);
+        roleRepository.findAll().forEach(role -> loaded.put(role.getName(), role));
+
+        for (ERole name : ERole.values()) {
+            if (!loaded.containsKey(name)) {
+                loaded.put(name, roleRepository.save(new Role(name)));
+                logger.info("Ruolo creato: {}", name.name());
+            }
+        }
+
+        roles = Collections.unmodifiableMap(loaded);
+        logger.info("Ruoli caricati: {}", roles.keySet());
+    }
+
+    public Role get(ERole name) {
+        Role role = roles.get(name);
+        if (role == null) {
+            throw new RoleNotFoundException("Errore: Ruolo " + name + " non trovato.");
+        }
+        return role;
+    }
+
+    public Collection<Role> all() {
+        return roles.values();
+    }
+}
@@ -0,0 +1,194 @@
+package com.rnbmx.shop.service;
+
+import com.rnbmx.shop.exception.OutOfStockException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Prenotazione della disponibilità all'interno della transazione dell'ordine.
+// Ogni riga è un decremento condizionato (stock >= quantità): niente letture con
+// lock né SELECT ... FOR UPDATE, il lock di riga dura solo fino al commit e due
+// checkout concorrenti non possono mai portare lo stock sotto zero.
+//
+// Un ordine PENDING (non ancora pagato) tiene la merce prenotata: se resta in quello
+// stato oltre reservationTtlMinutes viene annullato e la disponibilità restituita.
+@Service
+public class StockService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockService.class);
+
+    private static final String RESERVE_SQL =
+            "UPDATE products SET stock = stock - ?, updated_at = ? WHERE id = ? AND stock >= ?";
+
+    private static final String RELEASE_SQL =
+            "UPDATE products SET stock = stock + ?, updated_at = ? WHERE id = ?";
+
+    // Rettifica manuale: la disponibilità non può scendere sotto zero
+    private static final String ADJUST_SQL =
+            "UPDATE products SET stock = stock + ?, updated_at = ? WHERE id = ? AND stock + ? >= 0 RETURNING stock";
+
+    // Annulla gli ordini scaduti e restituisce la merce in un'unica istruzione atomica
+    private static final String EXPIRE_SQL =
+            "WITH expired AS ("
+                    + " UPDATE orders SET status = 'CANCELLED'"
+                    + " WHERE status = 'PENDING' AND order_date < ? RETURNING id),"
+                    + " released AS ("
+                    + " SELECT oi.product_id, SUM(oi.quantity) AS quantity FROM order_items oi"
+                    + " JOIN expired e ON e.id = oi.order_id GROUP BY oi.product_id)"
+                    + " UPDATE products p SET stock = p.stock + r.quantity, updated_at = ?"
+                    + " FROM released r WHERE p.id = r.product_id RETURNING p.id";
+
+    @Value("${bmx.app.stock.reservationTtlMinutes:30}")
+    private long reservationTtlMinutes;
+
+    @Value("${bmx.app.stock.sweepIntervalSeconds:60}")
+    private long sweepIntervalSeconds;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+    private ScheduledExecutorService sweeper;
+
+    private final AtomicLong reservedUnits = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong releasedUnits = new AtomicLong();
+    private final AtomicLong expiredSweeps = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stock-reservation-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.scheduleWithFixedDelay(this::sweepSafely, sweepIntervalSeconds, sweepIntervalSeconds,
+                TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sweeper.shutdownNow();
+    }
+
+    // Da chiamare dentro la transazione dell'ordine: se un prodotto non basta viene
+    // lanciata OutOfStockException e il rollback annulla anche i decrementi già fatti
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void reserve(Map<Long, Integer> quantities) {
+        // Ordine crescente di id: due ordini con gli stessi prodotti prendono i lock
+        // di riga nella stessa sequenza e non possono andare in deadlock
+        Map<Long, Integer> sorted = new TreeMap<>(quantities);
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> rows = new ArrayList<>(sorted.size());
+        sorted.forEach((productId, quantity) -> rows.add(new Object[] { quantity, now, productId, quantity }));
+
+        int[] updated = jdbcTemplate.batchUpdate(RESERVE_SQL, rows);
+        int i = 0;
+        for (Long productId : sorted.keySet()) {
+            if (updated[i++] == 0) {
+                rejected.incrementAndGet();
+                throw new OutOfStockException(productId);
+            }
+        }
+
+        sorted.values().forEach(quantity -> reservedUnits.addAndGet(quantity));
+        publishStockChanged(sorted);
+    }
+
+    // Restituisce la merce di un ordine annullato
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void release(Map<Long, Integer> quantities) {
+        Map<Long, Integer> sorted = new TreeMap<>(quantities);
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> rows = new ArrayList<>(sorted.size());
+        sorted.forEach((productId, quantity) -> rows.add(new Object[] { quantity, now, productId }));
+        jdbcTemplate.batchUpdate(RELEASE_SQL, rows);
+
+        sorted.values().forEach(quantity -> releasedUnits.addAndGet(quantity));
+        publishStockChanged(sorted);
+    }
+
+    // Rettifica della disponibilità dall'amministrazione come variazione relativa: gli
+    // ordini confermati nel frattempo restano conteggiati. Restituisce lo stock risultante
+    @Transactional
+    public int adjust(Long productId, int delta) {
+        List<Integer> stock = jdbcTemplate.queryForList(ADJUST_SQL, Integer.class, delta, LocalDateTime.now(),
+                productId, delta);
+        if (stock.isEmpty()) {
+            throw new OutOfStockException(productId);
+        }
+        logger.info("Disponibilità del prodotto {} rettificata di {}: ora {}", productId, delta, stock.get(0));
+        publishStockChanged(Map.of(productId, delta));
+        return stock.get(0);
+    }
+
+    // Annulla gli ordini PENDING più vecchi del TTL; restituisce il numero di prodotti aggiornati.
+    // Gira sul thread di pulizia, fuori dal proxy: la transazione è esplicita
+    public int releaseExpiredReservations() {
+        List<Long> productIds = transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<Long> ids = jdbcTemplate.queryForList(EXPIRE_SQL, Long.class,
+                    now.minusMinutes(reservationTtlMinutes), now);
+            ids.forEach(id -> eventPublisher.publishEvent(
+                    new CatalogChangedEvent(CatalogChangedEvent.Type.STOCK_CHANGED, id)));
+            return ids;
+        });
+        if (productIds != null && !productIds.isEmpty()) {
+            expiredSweeps.incrementAndGet();
+            logger.info("Prenotazioni scadute annullate: disponibilità restituita per {} prodotti",
+                    productIds.size());
+        }
+        return productIds != null ? productIds.size() : 0;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("reservedUnits", reservedUnits.get());
+        stats.put("rejected", rejected.get());
+        stats.put("releasedUnits", releasedUnits.get());
+        stats.put("expiredSweeps", expiredSweeps.get());
+        stats.put("reservationTtlMinutes", reservationTtlMinutes);
+        return stats;
+    }
+
+    private void publishStockChanged(Map<Long, Integer> quantities) {
+        quantities.keySet().forEach(id -> eventPublisher.publishEvent(
+                new CatalogChangedEvent(CatalogChangedEvent.Type.STOCK_CHANGED, id)));
+    }
+
+    private void sweepSafely() {
+        try {
+            releaseExpiredReservations();
+        } catch (Exception e) {
+            logger.error("Errore durante l'annullamento delle prenotazioni scadute: {}", e.getMessage(), e);
+        }
+    }
+}
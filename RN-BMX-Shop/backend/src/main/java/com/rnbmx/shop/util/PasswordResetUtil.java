@@ -5,13 +5,12 @@ import org.springframework.boot.CommandLineRunner;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Component;
 
-import com.rnbmx.shop.model.User;
-import com.rnbmx.shop.repository.UserRepository;
+import com.rnbmx.shop.service.PasswordResetJob;
 
-import java.util.Optional;
+import java.util.Arrays;
+import java.util.List;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -23,10 +22,7 @@ public class PasswordResetUtil {
     private static final Logger logger = LoggerFactory.getLogger(PasswordResetUtil.class);
 
     @Autowired
-    private UserRepository userRepository;
-
-    @Autowired
-    private PasswordEncoder passwordEncoder;
+    private PasswordResetJob passwordResetJob;
 
     // Commentato il Bean per disabilitare il reset delle password all'avvio
     // @Bean
@@ -35,36 +31,14 @@ public class PasswordResetUtil {
             logger.info("=== Reimpostazione password predefinite per test ===");
 
             // Elenco email per cui reimpostare la password
-            String[] emails = {
+            List<String> emails = Arrays.asList(
                     "admin@rnbmx.com",
                     "lucacapassona@gmail.com",
-                    "test@gmail.com"
-            };
+                    "test@gmail.com");
 
-            // Password predefinita per tutti
+            // Password predefinita per tutti; il job gira in background
             String defaultPassword = "password123";
-            String encodedPassword = passwordEncoder.encode(defaultPassword);
-
-            for (String email : emails) {
-                Optional<User> userOpt = userRepository.findByEmail(email);
-
-                if (userOpt.isPresent()) {
-                    User user = userOpt.get();
-
-                    // Salva la password precedente per riferimento
-                    String oldPassword = user.getPassword();
-
-                    // Imposta la nuova password
-                    user.setPassword(encodedPassword);
-                    userRepository.save(user);
-
-                    logger.info("Password reimpostata per: {} (vecchio hash: {})", email, oldPassword);
-                    logger.info("Nuovo hash: {}", encodedPassword);
-                    logger.info("Credenziali di login: email={}, password={}", email, defaultPassword);
-                } else {
-                    logger.warn("Utente con email {} non trovato nel database", email);
-                }
-            }
+            passwordResetJob.start(defaultPassword, emails, 0);
 
             logger.info("====================================================");
             logger.info("Per effettuare il login, utilizza una di queste email con password: {}", defaultPassword);
@@ -0,0 +1,61 @@
+package com.rnbmx.shop;
+
+import com.rnbmx.shop.model.Category;
+import com.rnbmx.shop.model.Product;
+import com.rnbmx.shop.model.User;
+import com.rnbmx.shop.repository.CategoryRepository;
+import com.rnbmx.shop.repository.ProductRepository;
+import com.rnbmx.shop.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+// Base dei test di integrazione: contesto Spring completo su un PostgreSQL in container.
+// Il container è unico per tutta l'esecuzione (avviato una volta, fermato da Testcontainers
+// a fine JVM), così i contesti Spring in cache non puntano mai a un database già spento.
+@SpringBootTest
+public abstract class PostgresIntegrationTest {
+
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:14-alpine");
+
+    static {
+        POSTGRES.start();
+    }
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+    }
+
+    @Autowired
+    protected UserRepository userRepository;
+
+    @Autowired
+    protected ProductRepository productRepository;
+
+    @Autowired
+    protected CategoryRepository categoryRepository;
+
+    protected User createUser() {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        User user = new User("Test", "Utente", "test-" + suffix + "@rnbmx.it", "3330000000", "{noop}password",
+                "Italia", "Roma", "Via dei Test 1", "M");
+        user.setUsername("test-" + suffix);
+        return userRepository.save(user);
+    }
+
+    protected Product createProduct(int stock) {
+        Category category = categoryRepository.findByName("Componenti")
+                .orElseGet(() -> categoryRepository.save(new Category("Componenti")));
+        Product product = new Product("Prodotto di test " + UUID.randomUUID(), "Prodotto creato dai test",
+                new BigDecimal("10.00"), stock, null, category);
+        return productRepository.save(product);
+    }
+}
@@ -0,0 +1,135 @@
+package com.rnbmx.shop.search;
+
+import com.rnbmx.shop.model.Product;
+import com.rnbmx.shop.payload.response.ProductCardResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CatalogFacetIndexTest {
+
+    private CatalogFacetIndex index;
+
+    @BeforeEach
+    void createIndex() {
+        List<ProductCardResponse> products = new ArrayList<>();
+        products.add(product(1L, "Sunday", "Telai", "80", 5));
+        products.add(product(2L, "Sunday", "Manubri", "45", 0));
+        products.add(product(3L, "Cult", "Telai", "300", 2));
+        products.add(product(4L, "Cult", "Ruote", "120", 0));
+        products.add(product(5L, null, "Accessori", "1000", 1));
+        products.add(product(6L, "Odyssey", "Ruote", null, 3));
+        index = new CatalogFacetIndex(products);
+    }
+
+    @Test
+    void withoutFiltersEverythingMatches() {
+        CatalogFacetIndex.Result result = index.browse(null, null, null, null, null, 0, 20);
+
+        assertEquals(6, result.getTotal());
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 6L), ids(result));
+        // La marca mancante non compare tra le faccette
+        assertEquals(counts("Cult", 2, "Odyssey", 1, "Sunday", 2), result.getBrands());
+        assertEquals(counts("Accessori", 1, "Manubri", 1, "Ruote", 2, "Telai", 2), result.getCategories());
+        assertEquals(4, result.getInStock());
+    }
+
+    @Test
+    void priceRangesExcludeTheirUpperBound() {
+        List<Map<String, Object>> ranges = index.browse(null, null, null, null, null, 0, 20).getPriceRanges();
+
+        assertEquals(6, ranges.size());
+        assertEquals(List.of(1, 1, 1, 1, 0, 1), ranges.stream()
+                .map(range -> range.get("count"))
+                .collect(Collectors.toList()));
+        assertEquals(BigDecimal.ZERO, ranges.get(0).get("min"));
+        assertEquals(new BigDecimal("1000"), ranges.get(5).get("min"));
+        assertNull(ranges.get(5).get("max"));
+    }
+
+    @Test
+    void valuesOfOneFacetAreOredAndCaseInsensitive() {
+        CatalogFacetIndex.Result result = index.browse(List.of("sunday", " CULT "), null, null, null, null, 0, 20);
+
+        assertEquals(List.of(1L, 2L, 3L, 4L), ids(result));
+        // Le marche si contano senza il filtro sulla marca, le categorie con
+        assertEquals(counts("Cult", 2, "Odyssey", 1, "Sunday", 2), result.getBrands());
+        assertEquals(counts("Accessori", 0, "Manubri", 1, "Ruote", 1, "Telai", 2), result.getCategories());
+    }
+
+    @Test
+    void differentFacetsAreAndedAndCountedWithoutTheirOwnFilter() {
+        CatalogFacetIndex.Result result = index.browse(List.of("Sunday"), null, null, null, true, 0, 20);
+
+        assertEquals(List.of(1L), ids(result));
+        assertEquals(counts("Cult", 1, "Odyssey", 1, "Sunday", 1), result.getBrands());
+        assertEquals(1, result.getInStock());
+        assertEquals(List.of(0, 1, 0, 0, 0, 0), result.getPriceRanges().stream()
+                .map(range -> range.get("count"))
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    void priceFilterIncludesBothEndsAndSkipsMissingPrices() {
+        assertEquals(List.of(1L, 3L, 4L), ids(index.browse(null, null, new BigDecimal("80"),
+                new BigDecimal("300"), null, 0, 20)));
+        assertEquals(List.of(5L), ids(index.browse(null, null, new BigDecimal("1000"), null, null, 0, 20)));
+        assertEquals(List.of(2L), ids(index.browse(null, null, null, new BigDecimal("45.00"), null, 0, 20)));
+        assertEquals(5, index.browse(null, null, BigDecimal.ZERO, null, null, 0, 20).getTotal());
+        assertEquals(0, index.browse(null, null, new BigDecimal("301"), new BigDecimal("999"), null, 0, 20)
+                .getTotal());
+    }
+
+    @Test
+    void unknownValueMatchesNothing() {
+        CatalogFacetIndex.Result result = index.browse(List.of("Fit"), null, null, null, null, 0, 20);
+
+        assertEquals(0, result.getTotal());
+        assertTrue(result.getItems().isEmpty());
+        assertEquals(counts("Cult", 2, "Odyssey", 1, "Sunday", 2), result.getBrands());
+        assertEquals(0, result.getInStock());
+    }
+
+    @Test
+    void offsetAndLimitPageTheMatches() {
+        CatalogFacetIndex.Result page = index.browse(null, null, null, null, null, 2, 2);
+        assertEquals(6, page.getTotal());
+        assertEquals(List.of(3L, 4L), ids(page));
+
+        assertTrue(index.browse(null, null, null, null, null, 6, 2).getItems().isEmpty());
+        assertTrue(index.browse(null, null, null, null, null, 0, 0).getItems().isEmpty());
+    }
+
+    private static List<Long> ids(CatalogFacetIndex.Result result) {
+        return result.getItems().stream().map(ProductCardResponse::getId).collect(Collectors.toList());
+    }
+
+    private static Map<String, Integer> counts(Object... keysAndCounts) {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (int i = 0; i < keysAndCounts.length; i += 2) {
+            counts.put((String) keysAndCounts[i], (Integer) keysAndCounts[i + 1]);
+        }
+        return counts;
+    }
+
+    private static ProductCardResponse product(Long id, String brand, String category, String price, int stock) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName("Prodotto " + id);
+        product.setBrand(brand);
+        product.setCategory(category);
+        product.setPrice(price != null ? new BigDecimal(price) : null);
+        product.setStockQuantity(stock);
+        return ProductCardResponse.from(product);
+    }
+}
@@ -0,0 +1,47 @@
+package com.rnbmx.shop.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ItalianAnalyzerTest {
+
+    @Test
+    void normalizeStripsAccentsAndCase() {
+        assertEquals("citta perche caffe", ItalianAnalyzer.normalize("Città PERCHÉ caffè"));
+        assertEquals("", ItalianAnalyzer.normalize(null));
+    }
+
+    @Test
+    void analyzeDropsStopwordsAndSeparators() {
+        assertEquals(List.of("biciclett", "strad"), ItalianAnalyzer.analyze("Le biciclette, della strada!"));
+        assertTrue(ItalianAnalyzer.analyze("il la di e").isEmpty());
+        assertTrue(ItalianAnalyzer.analyze(null).isEmpty());
+    }
+
+    @Test
+    void singularAndPluralShareTheStem() {
+        assertEquals(ItalianAnalyzer.stem("bicicletta"), ItalianAnalyzer.stem("biciclette"));
+        assertEquals(ItalianAnalyzer.stem("componente"), ItalianAnalyzer.stem("componenti"));
+        assertEquals("accessor", ItalianAnalyzer.stem("accessorio"));
+        assertEquals("accessor", ItalianAnalyzer.stem("accessori"));
+    }
+
+    @Test
+    void pluralsInCheAndGhiKeepTheHardConsonant() {
+        assertEquals("bianc", ItalianAnalyzer.stem("bianche"));
+        assertEquals("bianc", ItalianAnalyzer.stem("bianchi"));
+        assertEquals("bianc", ItalianAnalyzer.stem("bianca"));
+        assertEquals("larg", ItalianAnalyzer.stem("larghi"));
+    }
+
+    @Test
+    void shortTokensAndCodesAreNotStemmed() {
+        assertEquals("bmx", ItalianAnalyzer.stem("bmx"));
+        assertEquals("x20", ItalianAnalyzer.stem("x20"));
+        assertEquals(List.of("bmx", "20"), ItalianAnalyzer.analyze("BMX 20\""));
+    }
+}
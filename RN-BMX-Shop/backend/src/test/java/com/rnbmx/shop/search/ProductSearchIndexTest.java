@@ -0,0 +1,96 @@
+package com.rnbmx.shop.search;
+
+import com.rnbmx.shop.model.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProductSearchIndexTest {
+
+    private ProductSearchIndex index;
+
+    @BeforeEach
+    void createIndex() {
+        index = new ProductSearchIndex();
+        index.index(product(1L, "Bicicletta BMX Freestyle", "Wethepeople", "Biciclette complete",
+                "Telaio in cromo per trick e acrobazie"));
+        index.index(product(2L, "Casco integrale", "ProTec", "Accessori", "Casco leggero per BMX da gara"));
+        index.index(product(3L, "Guanti estivi", "ProTec", "Abbigliamento", "Guanti traspiranti, ideali con il casco"));
+        index.index(product(4L, "Manubrio Freestyle", "Sunday", "Componenti", "Manubrio in lega per trick"));
+    }
+
+    @Test
+    void searchesNameBrandCategoryAndDescription() {
+        assertEquals(List.of(1L), ids(index.search("wethepeople", 10)));
+        assertEquals(List.of(4L), ids(index.search("componenti", 10)));
+        assertEquals(List.of(1L), ids(index.search("cromo", 10)));
+    }
+
+    @Test
+    void nameMatchesRankAboveDescriptionMatches() {
+        assertEquals(List.of(2L, 3L), ids(index.search("casco", 10)));
+    }
+
+    @Test
+    void everyTermMustMatch() {
+        assertEquals(List.of(4L), ids(index.search("freestyle manubrio", 10)));
+        assertTrue(index.search("freestyle guanti", 10).isEmpty());
+    }
+
+    @Test
+    void pluralQueryMatchesSingularText() {
+        assertEquals(List.of(1L), ids(index.search("biciclette", 10)));
+        assertEquals(List.of(2L), ids(index.search("caschi integrali", 10)));
+    }
+
+    @Test
+    void lastTermMatchesByPrefixUnlessFollowedBySpace() {
+        assertEquals(List.of(1L), ids(index.search("bicic", 10)));
+        assertTrue(index.search("bicic ", 10).isEmpty());
+        // Il prefisso vale meno della parola intera
+        index.index(product(5L, "Bici da strada", "Sunday", "Biciclette complete", "Telaio leggero"));
+        assertEquals(Long.valueOf(5L), ids(index.search("bic", 10)).get(0));
+    }
+
+    @Test
+    void limitAndTiesAreDeterministic() {
+        List<Long> all = ids(index.search("protec", 10));
+        assertEquals(List.of(2L, 3L), all);
+        assertEquals(List.of(2L), ids(index.search("protec", 1)));
+        assertTrue(index.search("protec", 0).isEmpty());
+        assertTrue(index.search("   ", 10).isEmpty());
+    }
+
+    @Test
+    void updateReplacesOldTermsAndRemoveDropsDocument() {
+        index.index(product(4L, "Pedali flat", "Sunday", "Componenti", "Pedali in alluminio"));
+        assertTrue(index.search("manubrio", 10).isEmpty());
+        assertEquals(List.of(4L), ids(index.search("pedali", 10)));
+
+        index.remove(4L);
+        assertTrue(index.search("pedali", 10).isEmpty());
+        assertTrue(index.search("sunday", 10).isEmpty());
+        assertEquals(3, index.size());
+    }
+
+    private static List<Long> ids(List<Product> products) {
+        return products.stream().map(Product::getId).collect(Collectors.toList());
+    }
+
+    private static Product product(Long id, String name, String brand, String category, String description) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName(name);
+        product.setBrand(brand);
+        product.setCategory(category);
+        product.setDescription(description);
+        product.setPrice(new BigDecimal("100.00"));
+        return product;
+    }
+}
@@ -0,0 +1,175 @@
+package com.rnbmx.shop.search;
+
+import com.rnbmx.shop.model.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SuggestionIndexTest {
+
+    private SuggestionIndex index;
+
+    @BeforeEach
+    void createIndex() {
+        index = new SuggestionIndex();
+    }
+
+    @Test
+    void insertSplitsSharedEdge() {
+        index.index(product(1L, "Brakes", null, null));
+        assertEquals(1, index.nodeCount());
+
+        index.index(product(2L, "Bmx", null, null));
+        // "b" diventa un nodo intermedio con figli "rakes" e "mx"
+        assertEquals(3, index.nodeCount());
+        assertEquals(List.of("Bmx", "Brakes"), texts(index.suggest("b", 10)));
+        assertEquals(List.of("Brakes"), texts(index.suggest("bra", 10)));
+        assertEquals(List.of("Bmx"), texts(index.suggest("bm", 10)));
+        assertTrue(index.suggest("bx", 10).isEmpty());
+    }
+
+    @Test
+    void keyEndingInsideAnEdgeBecomesTerminal() {
+        index.index(product(1L, "Pedaliera", null, null));
+        index.index(product(2L, "Pedali", null, null));
+
+        assertEquals(2, index.nodeCount());
+        assertEquals(List.of("Pedali", "Pedaliera"), texts(index.suggest("pedal", 10)));
+        assertEquals(List.of("Pedaliera"), texts(index.suggest("pedalie", 10)));
+    }
+
+    @Test
+    void removeMergesEdgesBack() {
+        index.index(product(1L, "Brakes", null, null));
+        index.index(product(2L, "Bmx", null, null));
+        index.remove(2L);
+
+        assertEquals(1, index.nodeCount());
+        assertEquals(List.of("Brakes"), texts(index.suggest("b", 10)));
+        assertEquals(List.of("Brakes"), texts(index.suggest("brak", 10)));
+        assertTrue(index.suggest("bm", 10).isEmpty());
+
+        index.remove(1L);
+        assertEquals(0, index.nodeCount());
+        assertTrue(index.suggest("b", 10).isEmpty());
+    }
+
+    @Test
+    void removingIntermediateTerminalKeepsDescendants() {
+        index.index(product(1L, "Pedali", null, null));
+        index.index(product(2L, "Pedaliera", null, null));
+        index.remove(1L);
+
+        assertEquals(1, index.nodeCount());
+        assertEquals(List.of("Pedaliera"), texts(index.suggest("ped", 10)));
+    }
+
+    @Test
+    void sharedEntriesLiveUntilTheirLastProduct() {
+        index.index(product(1L, "Primer", "Sunday", "Telai"));
+        index.index(product(2L, "Street Sweeper", "Sunday", "Telai"));
+        index.remove(1L);
+
+        assertEquals(List.of("Sunday"), texts(index.suggest("sun", 10)));
+        index.remove(2L);
+        assertTrue(index.suggest("sun", 10).isEmpty());
+        assertTrue(index.suggest("tel", 10).isEmpty());
+    }
+
+    @Test
+    void heavierEntriesComeFirst() {
+        index.index(product(1L, "Sunday Primer", "Sunday", "Telai"));
+        index.index(product(2L, "Street Sweeper", "Sunday", "Telai"));
+        index.index(product(3L, "Soundwave", "Sunday", "Telai"));
+
+        // La marca è condivisa da tre prodotti; a parità di peso vince l'ordine alfabetico
+        List<Suggestion> result = index.suggest("s", 10);
+        assertEquals(List.of("Sunday", "Soundwave", "Street Sweeper", "Sunday Primer"), texts(result));
+        assertEquals(Suggestion.Type.BRAND, result.get(0).getType());
+        assertEquals(30, result.get(0).getWeight());
+        assertEquals(List.of("Sunday", "Soundwave"), texts(index.suggest("s", 2)));
+    }
+
+    @Test
+    void viewsReorderProductsAfterFlush() {
+        index.index(product(1L, "Freno anteriore", null, null));
+        index.index(product(2L, "Freno posteriore", null, null));
+        assertEquals(List.of("Freno anteriore", "Freno posteriore"), texts(index.suggest("fre", 10)));
+
+        for (int i = 0; i < SuggestionIndex.VIEW_FLUSH_THRESHOLD; i++) {
+            index.recordView(2L);
+        }
+        assertEquals(List.of("Freno posteriore", "Freno anteriore"), texts(index.suggest("fre", 10)));
+    }
+
+    @Test
+    void reindexingAnUnchangedNameKeepsItsViews() {
+        index.index(product(1L, "Freno anteriore", "Odyssey", "Freni"));
+        viewTimes(1L, SuggestionIndex.VIEW_FLUSH_THRESHOLD);
+
+        // Modifica dall'amministrazione: cambia solo la marca
+        index.index(product(1L, "Freno anteriore", "Cult", "Freni"));
+
+        assertEquals(10 + SuggestionIndex.VIEW_FLUSH_THRESHOLD, index.suggest("freno", 1).get(0).getWeight());
+        assertEquals(List.of("Cult"), texts(index.suggest("cult", 10)));
+        assertTrue(index.suggest("odys", 10).isEmpty());
+    }
+
+    @Test
+    void renamedProductCarriesItsViewsOver() {
+        index.index(product(1L, "Freno anteriore", null, null));
+        viewTimes(1L, SuggestionIndex.VIEW_FLUSH_THRESHOLD);
+
+        index.index(product(1L, "Freno anteriore U-brake", null, null));
+
+        assertTrue(index.suggest("freno", 10).stream().noneMatch(s -> s.getText().equals("Freno anteriore")));
+        assertEquals(10 + SuggestionIndex.VIEW_FLUSH_THRESHOLD, index.suggest("u brake", 1).get(0).getWeight());
+    }
+
+    @Test
+    void returnedSuggestionsAreSnapshots() {
+        index.index(product(1L, "Freno anteriore", null, null));
+        Suggestion before = index.suggest("freno", 1).get(0);
+
+        viewTimes(1L, SuggestionIndex.VIEW_FLUSH_THRESHOLD);
+
+        assertEquals(10, before.getWeight());
+        assertEquals(10 + SuggestionIndex.VIEW_FLUSH_THRESHOLD, index.suggest("freno", 1).get(0).getWeight());
+    }
+
+    @Test
+    void laterWordsAreCompletedOnceEach() {
+        index.index(product(1L, "Bicicletta BMX Freestyle", null, null));
+        index.index(product(2L, "Pro Pro", null, null));
+
+        assertEquals(List.of("Bicicletta BMX Freestyle"), texts(index.suggest("free", 10)));
+        assertEquals(List.of("Bicicletta BMX Freestyle"), texts(index.suggest("  BMX fr", 10)));
+        assertEquals(List.of("Pro Pro"), texts(index.suggest("pro", 10)));
+        assertTrue(index.suggest("", 10).isEmpty());
+        assertTrue(index.suggest("bmx", 0).isEmpty());
+    }
+
+    private void viewTimes(Long productId, int times) {
+        for (int i = 0; i < times; i++) {
+            index.recordView(productId);
+        }
+    }
+
+    private static List<String> texts(List<Suggestion> suggestions) {
+        return suggestions.stream().map(Suggestion::getText).collect(Collectors.toList());
+    }
+
+    private static Product product(Long id, String name, String brand, String category) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName(name);
+        product.setBrand(brand);
+        product.setCategory(category);
+        return product;
+    }
+}
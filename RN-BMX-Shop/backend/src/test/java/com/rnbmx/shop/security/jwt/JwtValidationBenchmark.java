@@ -0,0 +1,98 @@
+package com.rnbmx.shop.security.jwt;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Costo per richiesta dell'autenticazione JWT in AuthTokenFilter:
+// - perRequestParser: il vecchio percorso, chiave e parser ricostruiti e token analizzato due volte
+//   (validateJwtToken e poi getUserNameFromJwtToken);
+// - singleParse: chiave e parser costruiti una volta, un solo parsing con verifica della firma;
+// - cachedToken: token già verificato, trovato in VerifiedTokenCache.
+// Non è un test: si avvia dal main con il classpath di test (surefire lo ignora).
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtValidationBenchmark {
+
+    // 64 caratteri ASCII: 512 bit, la chiave viene usata così com'è per HS512
+    private static final String SECRET = "rnbmx-benchmark-secret-0123456789-0123456789-0123456789-01234567";
+
+    private byte[] secretBytes;
+    private String token;
+    private JwtUtils jwtUtils;
+    private VerifiedTokenCache tokenCache;
+
+    @Setup
+    public void setup() {
+        jwtUtils = new JwtUtils();
+        ReflectionTestUtils.setField(jwtUtils, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(jwtUtils, "jwtExpirationMs", 3_600_000);
+        jwtUtils.init();
+
+        secretBytes = SECRET.getBytes(StandardCharsets.US_ASCII);
+        Date now = new Date();
+        token = Jwts.builder()
+                .setSubject("rider@rnbmx.it")
+                .claim(JwtUtils.CLAIM_TYPE, JwtUtils.TYPE_ACCESS)
+                .claim(JwtUtils.CLAIM_USER_ID, 42L)
+                .claim(JwtUtils.CLAIM_ROLES, List.of("ROLE_USER"))
+                .setIssuedAt(now)
+                .setExpiration(new Date(now.getTime() + TimeUnit.HOURS.toMillis(1)))
+                .signWith(Keys.hmacShaKeyFor(secretBytes), SignatureAlgorithm.HS512)
+                .compact();
+
+        tokenCache = new VerifiedTokenCache();
+        ReflectionTestUtils.setField(tokenCache, "maxEntries", 10_000);
+        tokenCache.put(token, jwtUtils.parseClaims(token));
+    }
+
+    @Benchmark
+    public void perRequestParser(Blackhole blackhole) {
+        blackhole.consume(Jwts.parserBuilder().setSigningKey(Keys.hmacShaKeyFor(secretBytes)).build()
+                .parseClaimsJws(token));
+        blackhole.consume(Jwts.parserBuilder().setSigningKey(Keys.hmacShaKeyFor(secretBytes)).build()
+                .parseClaimsJws(token).getBody().getSubject());
+    }
+
+    @Benchmark
+    public String singleParse() {
+        Claims claims = jwtUtils.getValidatedClaims(token);
+        return claims.getSubject();
+    }
+
+    @Benchmark
+    public String cachedToken() {
+        return tokenCache.get(token).getSubject();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JwtValidationBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,145 @@
+package com.rnbmx.shop.security.jwt;
+
+import com.rnbmx.shop.config.WebSecurityConfig;
+import com.rnbmx.shop.security.jwt.PublicPathMatcher.Access;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PublicPathMatcherTest {
+
+    @Test
+    void unknownPathsAreProtected() {
+        PublicPathMatcher matcher = new PublicPathMatcher().add("/api/products", Access.ANONYMOUS_READ);
+
+        assertEquals(Access.PROTECTED, matcher.match("/api/orders"));
+        assertEquals(Access.PROTECTED, matcher.match("/api"));
+        assertEquals(Access.PROTECTED, matcher.match("api/products"));
+        assertEquals(Access.PROTECTED, matcher.match((String) null));
+    }
+
+    @Test
+    void exactRuleDoesNotMatchTrailingSlashOrChildren() {
+        PublicPathMatcher matcher = new PublicPathMatcher().add("/api/products", Access.ANONYMOUS_READ);
+
+        assertEquals(Access.ANONYMOUS_READ, matcher.match("/api/products"));
+        assertEquals(Access.PROTECTED, matcher.match("/api/products/"));
+        assertEquals(Access.PROTECTED, matcher.match("/api/products/1"));
+    }
+
+    @Test
+    void singleStarMatchesExactlyOneSegment() {
+        PublicPathMatcher matcher = new PublicPathMatcher().add("/api/products/*", Access.ANONYMOUS_READ);
+
+        assertEquals(Access.ANONYMOUS_READ, matcher.match("/api/products/42"));
+        assertEquals(Access.ANONYMOUS_READ, matcher.match("/api/products/"));
+        assertEquals(Access.PROTECTED, matcher.match("/api/products"));
+        assertEquals(Access.PROTECTED, matcher.match("/api/products/42/reviews"));
+    }
+
+    @Test
+    void doubleStarMatchesThePathAndEverythingBelow() {
+        PublicPathMatcher matcher = new PublicPathMatcher().add("/api/auth/**", Access.PERMIT_ALL);
+
+        assertEquals(Access.PERMIT_ALL, matcher.match("/api/auth"));
+        assertEquals(Access.PERMIT_ALL, matcher.match("/api/auth/"));
+        assertEquals(Access.PERMIT_ALL, matcher.match("/api/auth/signin"));
+        assertEquals(Access.PERMIT_ALL, matcher.match("/api/auth/a/b/c"));
+        assertEquals(Access.PROTECTED, matcher.match("/api/authx"));
+    }
+
+    @Test
+    void mostSpecificRuleWins() {
+        PublicPathMatcher matcher = new PublicPathMatcher()
+                .add("/api/**", Access.TOKEN_OPTIONAL)
+                .add("/api/products/**", Access.ANONYMOUS_READ)
+                .add("/api/products/*", Access.PERMIT_ALL)
+                .add("/api/products/cache-stats", Access.PROTECTED);
+
+        assertEquals(Access.PROTECTED, matcher.match("/api/products/cache-stats"));
+        assertEquals(Access.PERMIT_ALL, matcher.match("/api/products/42"));
+        assertEquals(Access.ANONYMOUS_READ, matcher.match("/api/products/42/reviews"));
+        assertEquals(Access.ANONYMOUS_READ, matcher.match("/api/products"));
+        assertEquals(Access.TOKEN_OPTIONAL, matcher.match("/api/orders/1"));
+    }
+
+    @Test
+    void literalBranchFallsBackToWildcard() {
+        PublicPathMatcher matcher = new PublicPathMatcher()
+                .add("/a/b/c", Access.PERMIT_ALL)
+                .add("/a/*/d", Access.ANONYMOUS_READ);
+
+        assertEquals(Access.PERMIT_ALL, matcher.match("/a/b/c"));
+        assertEquals(Access.ANONYMOUS_READ, matcher.match("/a/b/d"));
+        assertEquals(Access.ANONYMOUS_READ, matcher.match("/a/x/d"));
+        assertEquals(Access.PROTECTED, matcher.match("/a/x/c"));
+    }
+
+    @Test
+    void invalidPatternsAreRejected() {
+        PublicPathMatcher matcher = new PublicPathMatcher();
+
+        assertThrows(IllegalArgumentException.class, () -> matcher.add("api/products", Access.PERMIT_ALL));
+        assertThrows(IllegalArgumentException.class, () -> matcher.add("/api/**/reviews", Access.PERMIT_ALL));
+    }
+
+    @Test
+    void anonymousReadOnlyAppliesToReadMethods() {
+        PublicPathMatcher matcher = new PublicPathMatcher().add("/api/products/**", Access.ANONYMOUS_READ);
+
+        assertTrue(matcher.isAnonymousRead(new MockHttpServletRequest("GET", "/api/products/1")));
+        assertTrue(matcher.isAnonymousRead(new MockHttpServletRequest("HEAD", "/api/products")));
+        assertTrue(matcher.isAnonymousRead(new MockHttpServletRequest("OPTIONS", "/api/products")));
+        assertFalse(matcher.isAnonymousRead(new MockHttpServletRequest("POST", "/api/products")));
+        assertFalse(matcher.isAnonymousRead(new MockHttpServletRequest("GET", "/api/orders")));
+    }
+
+    @Test
+    void permitAllMatcherAcceptsPermitAllAndAnonymousRead() {
+        PublicPathMatcher matcher = new PublicPathMatcher()
+                .add("/api/auth/**", Access.PERMIT_ALL)
+                .add("/api/products/**", Access.ANONYMOUS_READ)
+                .add("/api/auth/change-password", Access.TOKEN_OPTIONAL);
+
+        assertTrue(matcher.permitAllMatcher().matches(new MockHttpServletRequest("POST", "/api/auth/signin")));
+        assertTrue(matcher.permitAllMatcher().matches(new MockHttpServletRequest("GET", "/api/products")));
+        assertFalse(matcher.permitAllMatcher().matches(
+                new MockHttpServletRequest("POST", "/api/auth/change-password")));
+        assertTrue(matcher.isPublic(new MockHttpServletRequest("POST", "/api/auth/change-password")));
+        assertFalse(matcher.isPublic(new MockHttpServletRequest("GET", "/api/orders")));
+    }
+
+    @Test
+    void requestPathUsesServletPathAndPathInfo() {
+        PublicPathMatcher matcher = new PublicPathMatcher().add("/api/products/*", Access.ANONYMOUS_READ);
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/shop/api/products/7");
+        request.setContextPath("/shop");
+        assertEquals(Access.ANONYMOUS_READ, matcher.match(request));
+
+        MockHttpServletRequest dispatched = new MockHttpServletRequest("GET", "/shop/api/products/7");
+        dispatched.setContextPath("/shop");
+        dispatched.setServletPath("/api");
+        dispatched.setPathInfo("/products/7");
+        assertEquals(Access.ANONYMOUS_READ, matcher.match(dispatched));
+    }
+
+    @Test
+    void applicationRulesKeepAdminEndpointsProtected() {
+        PublicPathMatcher matcher = new WebSecurityConfig().publicPathMatcher();
+
+        assertEquals(Access.PROTECTED, matcher.match("/api/products/cache-stats"));
+        assertEquals(Access.ANONYMOUS_READ, matcher.match("/api/products/42"));
+        assertEquals(Access.ANONYMOUS_READ, matcher.match("/api/categories"));
+        assertEquals(Access.PERMIT_ALL, matcher.match("/api/auth/signin"));
+        assertEquals(Access.PERMIT_ALL, matcher.match("/"));
+        assertEquals(Access.PERMIT_ALL, matcher.match("/index.html"));
+        assertEquals(Access.TOKEN_OPTIONAL, matcher.match("/api/reviews/product/42"));
+        assertEquals(Access.PROTECTED, matcher.match("/api/orders"));
+        assertEquals(Access.PROTECTED, matcher.match("/api/users/1"));
+    }
+}
@@ -0,0 +1,105 @@
+package com.rnbmx.shop.security.jwt;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VerifiedTokenCacheTest {
+
+    private static final long HOUR_MS = 3_600_000L;
+
+    private VerifiedTokenCache cache;
+
+    @BeforeEach
+    void createCache() {
+        cache = new VerifiedTokenCache();
+        ReflectionTestUtils.setField(cache, "maxEntries", 2);
+        ReflectionTestUtils.setField(cache, "maxRevocations", 2);
+    }
+
+    @Test
+    void oldestEntryIsEvictedFirst() {
+        cache.put("token-1", claims("1", "a@rnbmx.it", HOUR_MS));
+        cache.put("token-2", claims("2", "a@rnbmx.it", HOUR_MS));
+        cache.put("token-3", claims("3", "b@rnbmx.it", HOUR_MS));
+
+        assertNull(cache.get("token-1"));
+        assertNotNull(cache.get("token-2"));
+        assertNotNull(cache.get("token-3"));
+        assertEquals(2, cache.getStats().get("entries"));
+    }
+
+    @Test
+    void expiredEntriesAreNotReturned() {
+        cache.put("token-1", claims("1", "a@rnbmx.it", -1000));
+
+        assertNull(cache.get("token-1"));
+        assertEquals(0, cache.getStats().get("entries"));
+    }
+
+    @Test
+    void onlyTheFirstRevocationWins() {
+        Claims claims = claims("1", "a@rnbmx.it", HOUR_MS);
+
+        assertTrue(cache.revoke("token-1", claims));
+        assertFalse(cache.revoke("token-1", claims));
+        assertTrue(cache.isRevoked("1"));
+        assertFalse(cache.isRevoked("2"));
+        assertEquals("1", cache.put("token-1", claims).getTokenId());
+    }
+
+    @Test
+    void revocationsAreBoundedAndExpire() {
+        cache.revoke("token-0", claims("0", "a@rnbmx.it", -1000));
+        cache.revoke("token-1", claims("1", "a@rnbmx.it", HOUR_MS));
+        // La revoca già scaduta esce senza contare come scartata
+        assertEquals(1, cache.getStats().get("revocations"));
+
+        cache.revoke("token-2", claims("2", "a@rnbmx.it", HOUR_MS));
+        cache.revoke("token-3", claims("3", "a@rnbmx.it", HOUR_MS));
+
+        assertEquals(2, cache.getStats().get("revocations"));
+        assertEquals(1L, cache.getStats().get("droppedRevocations"));
+        assertFalse(cache.isRevoked("1"));
+        assertTrue(cache.isRevoked("2"));
+        assertTrue(cache.isRevoked("3"));
+    }
+
+    @Test
+    void revocationDoesNotTakeCacheSlots() {
+        cache.put("token-1", claims("1", "a@rnbmx.it", HOUR_MS));
+        cache.revoke("token-1", claims("1", "a@rnbmx.it", HOUR_MS));
+        cache.revoke("token-2", claims("2", "a@rnbmx.it", HOUR_MS));
+
+        assertEquals(1, cache.getStats().get("entries"));
+        assertNotNull(cache.get("token-1"));
+    }
+
+    @Test
+    void invalidateSubjectDropsOnlyThatUser() {
+        cache.put("token-1", claims("1", "a@rnbmx.it", HOUR_MS));
+        cache.put("token-2", claims("2", "b@rnbmx.it", HOUR_MS));
+
+        cache.invalidateSubject("a@rnbmx.it");
+
+        assertNull(cache.get("token-1"));
+        assertNotNull(cache.get("token-2"));
+    }
+
+    private static Claims claims(String id, String subject, long expiresInMs) {
+        return Jwts.claims()
+                .setId(id)
+                .setSubject(subject)
+                .setExpiration(new Date(System.currentTimeMillis() + expiresInMs));
+    }
+}
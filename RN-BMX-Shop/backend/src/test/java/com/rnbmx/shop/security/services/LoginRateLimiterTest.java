@@ -0,0 +1,131 @@
+package com.rnbmx.shop.security.services;
+
+import com.rnbmx.shop.exception.LoginRateLimitedException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LoginRateLimiterTest {
+
+    private LoginRateLimiter limiter;
+
+    @BeforeEach
+    void createLimiter() {
+        limiter = new LoginRateLimiter();
+        ReflectionTestUtils.setField(limiter, "enabled", true);
+        ReflectionTestUtils.setField(limiter, "ipCapacity", 1);
+        ReflectionTestUtils.setField(limiter, "ipPerMinute", 1.0);
+        ReflectionTestUtils.setField(limiter, "emailCapacity", 2);
+        ReflectionTestUtils.setField(limiter, "emailPerMinute", 2.0);
+        ReflectionTestUtils.setField(limiter, "maxKeys", 100);
+        limiter.init();
+    }
+
+    @Test
+    void bucketAllowsBurstThenOneRequestPerInterval() {
+        LoginRateLimiter.TokenBucket bucket = new LoginRateLimiter.TokenBucket(3, 100, 0);
+
+        assertEquals(0, bucket.tryAcquire(0));
+        assertEquals(0, bucket.tryAcquire(0));
+        assertEquals(0, bucket.tryAcquire(0));
+        assertEquals(100, bucket.tryAcquire(0));
+        assertEquals(50, bucket.tryAcquire(50));
+
+        assertEquals(0, bucket.tryAcquire(100));
+        assertEquals(100, bucket.tryAcquire(100));
+        assertEquals(0, bucket.tryAcquire(200));
+    }
+
+    @Test
+    void rejectedRequestsDoNotConsumeTokens() {
+        LoginRateLimiter.TokenBucket bucket = new LoginRateLimiter.TokenBucket(1, 100, 0);
+
+        assertEquals(0, bucket.tryAcquire(0));
+        for (int i = 0; i < 10; i++) {
+            assertEquals(60, bucket.tryAcquire(40));
+        }
+        assertEquals(0, bucket.tryAcquire(100));
+    }
+
+    @Test
+    void idleBucketRefillsOnlyUpToCapacity() {
+        LoginRateLimiter.TokenBucket bucket = new LoginRateLimiter.TokenBucket(2, 100, 0);
+        bucket.tryAcquire(0);
+        bucket.tryAcquire(0);
+
+        assertFalse(bucket.isFull(199));
+        assertTrue(bucket.isFull(200));
+
+        long later = 1_000_000;
+        assertEquals(0, bucket.tryAcquire(later));
+        assertEquals(0, bucket.tryAcquire(later));
+        assertEquals(100, bucket.tryAcquire(later));
+    }
+
+    @Test
+    void retryAfterIsRoundedUpToWholeSeconds() {
+        limiter.acquire("10.0.0.1", null);
+
+        LoginRateLimitedException e = assertThrows(LoginRateLimitedException.class,
+                () -> limiter.acquire("10.0.0.1", null));
+        assertEquals(60, e.getRetryAfterSeconds());
+        assertEquals(1L, limiter.getStats().get("rejected"));
+    }
+
+    @Test
+    void emailBucketIsSharedAcrossIpsAndCaseInsensitive() {
+        limiter.acquire("10.0.0.1", "Mario@RNBMX.it ");
+        // Respinto dal limite per IP: il token dell'email non viene consumato
+        assertThrows(LoginRateLimitedException.class, () -> limiter.acquire("10.0.0.1", "mario@rnbmx.it"));
+        limiter.acquire("10.0.0.2", "mario@rnbmx.it");
+
+        LoginRateLimitedException e = assertThrows(LoginRateLimitedException.class,
+                () -> limiter.acquire("10.0.0.3", "MARIO@rnbmx.it"));
+        assertEquals(30, e.getRetryAfterSeconds());
+        assertDoesNotThrow(() -> limiter.acquire("10.0.0.4", "luigi@rnbmx.it"));
+    }
+
+    @Test
+    void evictionDropsFullBucketsFirst() {
+        ReflectionTestUtils.setField(limiter, "maxKeys", 3);
+        // Un token ogni nanosecondo: i bucket per IP tornano pieni subito
+        ReflectionTestUtils.setField(limiter, "ipPerMinute", 60e9);
+        ReflectionTestUtils.setField(limiter, "emailCapacity", 1);
+        limiter.init();
+
+        limiter.acquire("10.0.0.1", "mario@rnbmx.it");
+        limiter.acquire("10.0.0.2", null);
+        assertEquals(3, limiter.getStats().get("keys"));
+
+        limiter.acquire("10.0.0.3", null);
+        assertEquals(2, limiter.getStats().get("keys"));
+        // Il bucket dell'email, non ancora pieno, è sopravvissuto con il suo stato
+        assertThrows(LoginRateLimitedException.class, () -> limiter.acquire("10.0.0.4", "mario@rnbmx.it"));
+    }
+
+    @Test
+    void evictionMakesRoomEvenWhenNoBucketIsFull() {
+        ReflectionTestUtils.setField(limiter, "maxKeys", 2);
+
+        for (int i = 0; i < 10; i++) {
+            limiter.acquire("10.0.1." + i, null);
+            assertTrue((Integer) limiter.getStats().get("keys") <= 2);
+        }
+    }
+
+    @Test
+    void disabledLimiterNeverRejects() {
+        ReflectionTestUtils.setField(limiter, "enabled", false);
+
+        for (int i = 0; i < 10; i++) {
+            limiter.acquire("10.0.0.1", "mario@rnbmx.it");
+        }
+        assertEquals(0, limiter.getStats().get("keys"));
+    }
+}
@@ -0,0 +1,80 @@
+package com.rnbmx.shop.security.services;
+
+import com.rnbmx.shop.config.WebSecurityConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+// Hash al secondo per ciascuna impostazione di bmx.app.password.*, usando lo stesso
+// PasswordEncoder di WebSecurityConfig: serve a scegliere costo e dimensione del pool
+// di PasswordHashingService (un login costa un "matches", una registrazione un "encode").
+// Formato del parametro: bcrypt:<strength> oppure argon2:<memoryKb>:<iterations>:<parallelism>.
+// Non è un test: si avvia dal main con il classpath di test (surefire lo ignora).
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class PasswordHashingBenchmark {
+
+    private static final String PASSWORD = "Bmx-Freestyle-2024!";
+
+    @Param({ "bcrypt:10", "bcrypt:12", "argon2:16384:2:1", "argon2:65536:3:1" })
+    public String setting;
+
+    private PasswordEncoder encoder;
+    private String storedHash;
+
+    @Setup
+    public void setup() {
+        String[] parts = setting.split(":");
+        WebSecurityConfig config = new WebSecurityConfig();
+        ReflectionTestUtils.setField(config, "passwordAlgorithm", parts[0]);
+        // Valori predefiniti di application.properties per l'algoritmo non misurato
+        ReflectionTestUtils.setField(config, "bcryptStrength", 10);
+        ReflectionTestUtils.setField(config, "argon2MemoryKb", 16384);
+        ReflectionTestUtils.setField(config, "argon2Iterations", 2);
+        ReflectionTestUtils.setField(config, "argon2Parallelism", 1);
+        if ("bcrypt".equals(parts[0])) {
+            ReflectionTestUtils.setField(config, "bcryptStrength", Integer.parseInt(parts[1]));
+        } else {
+            ReflectionTestUtils.setField(config, "argon2MemoryKb", Integer.parseInt(parts[1]));
+            ReflectionTestUtils.setField(config, "argon2Iterations", Integer.parseInt(parts[2]));
+            ReflectionTestUtils.setField(config, "argon2Parallelism", Integer.parseInt(parts[3]));
+        }
+        encoder = config.passwordEncoder();
+        storedHash = encoder.encode(PASSWORD);
+    }
+
+    @Benchmark
+    public String encode() {
+        return encoder.encode(PASSWORD);
+    }
+
+    @Benchmark
+    public boolean matches() {
+        return encoder.matches(PASSWORD, storedHash);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PasswordHashingBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
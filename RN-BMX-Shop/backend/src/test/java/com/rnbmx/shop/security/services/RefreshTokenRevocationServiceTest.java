@@ -0,0 +1,104 @@
+package com.rnbmx.shop.security.services;
+
+import com.rnbmx.shop.PostgresIntegrationTest;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// La revoca dei refresh token è nel database: un solo /refresh concorrente vince
+// e la revoca resta visibile a qualunque istanza, anche dopo un riavvio
+class RefreshTokenRevocationServiceTest extends PostgresIntegrationTest {
+
+    private static final int THREADS = 16;
+
+    @Autowired
+    private RefreshTokenRevocationService revocations;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void concurrentRotationsHaveASingleWinner() throws Exception {
+        Claims claims = refreshClaims(TimeUnit.DAYS.toMillis(7));
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<Boolean>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < THREADS; i++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return revocations.revoke(claims);
+                }));
+            }
+            start.countDown();
+            int winners = 0;
+            for (Future<Boolean> result : results) {
+                if (result.get(30, TimeUnit.SECONDS)) {
+                    winners++;
+                }
+            }
+            assertEquals(1, winners);
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(1, countRows(claims.getId()));
+    }
+
+    @Test
+    void revocationIsReadFromTheDatabase() {
+        Claims claims = refreshClaims(TimeUnit.DAYS.toMillis(7));
+        // Come se un'altra istanza (o questa prima del riavvio) avesse già ruotato il token
+        jdbcTemplate.update("INSERT INTO revoked_refresh_tokens (jti, subject, expires_at) VALUES (?, ?, now())",
+                claims.getId(), claims.getSubject());
+
+        assertFalse(revocations.revoke(claims));
+    }
+
+    @Test
+    void tokensWithoutJtiAreRejected() {
+        Claims claims = refreshClaims(TimeUnit.DAYS.toMillis(7)).setId(null);
+
+        assertFalse(revocations.revoke(claims));
+    }
+
+    @Test
+    void purgeRemovesOnlyExpiredRows() {
+        Claims expired = refreshClaims(-TimeUnit.MINUTES.toMillis(1));
+        Claims valid = refreshClaims(TimeUnit.DAYS.toMillis(7));
+        assertTrue(revocations.revoke(expired));
+        assertTrue(revocations.revoke(valid));
+
+        assertTrue(revocations.purgeExpired() >= 1);
+
+        assertEquals(0, countRows(expired.getId()));
+        assertEquals(1, countRows(valid.getId()));
+    }
+
+    private int countRows(String jti) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM revoked_refresh_tokens WHERE jti = ?",
+                Integer.class, jti);
+    }
+
+    private static Claims refreshClaims(long expiresInMs) {
+        return Jwts.claims()
+                .setId(UUID.randomUUID().toString())
+                .setSubject("rider@rnbmx.it")
+                .setExpiration(new Date(System.currentTimeMillis() + expiresInMs));
+    }
+}
@@ -0,0 +1,132 @@
+package com.rnbmx.shop.service;
+
+import com.rnbmx.shop.model.Category;
+import com.rnbmx.shop.model.Product;
+import com.rnbmx.shop.payload.response.ProductCardResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CatalogSnapshotTest {
+
+    private static final LocalDateTime CREATED = LocalDateTime.of(2024, 1, 1, 10, 0);
+
+    private Category frames;
+    private Category wheels;
+    private CatalogSnapshot snapshot;
+
+    @BeforeEach
+    void createSnapshot() {
+        frames = category(1L, "Telai");
+        wheels = category(2L, "Ruote");
+        snapshot = new CatalogSnapshot(1, List.of(
+                product(10L, frames, 5, true),
+                product(11L, frames, 0, false),
+                product(20L, wheels, 3, false)), List.of(frames, wheels));
+    }
+
+    @Test
+    void stockPatchReplacesOnlyTheAffectedProduct() {
+        CatalogSnapshot patched = snapshot.withStock(2, levels(stock(20L, 1)));
+
+        assertEquals(2, patched.getVersion());
+        assertEquals(Integer.valueOf(1), patched.findProduct(20L).get().getStockQuantity());
+        assertEquals(Integer.valueOf(1), patched.getProductCardsByCategory(wheels).get(0).getStockQuantity());
+        assertEquals(Integer.valueOf(1), patched.getProductCards().get(2).getStockQuantity());
+        // Lo snapshot di partenza non viene toccato
+        assertEquals(Integer.valueOf(3), snapshot.findProduct(20L).get().getStockQuantity());
+        // Le liste delle altre categorie e le categorie sono condivise
+        assertSame(snapshot.getProductsByCategory(frames), patched.getProductsByCategory(frames));
+        assertSame(snapshot.getProductCardsByCategory(frames), patched.getProductCardsByCategory(frames));
+        assertSame(snapshot.getFeaturedProducts(), patched.getFeaturedProducts());
+        assertSame(snapshot.getCategories(), patched.getCategories());
+    }
+
+    @Test
+    void stockPatchChangesOnlyTheFingerprintsOfViewsContainingTheProduct() {
+        CatalogSnapshot patched = snapshot.withStock(2, levels(stock(20L, 1)));
+
+        assertNotEquals(snapshot.getFingerprint(), patched.getFingerprint());
+        assertNotEquals(snapshot.getCategoryFingerprint(wheels), patched.getCategoryFingerprint(wheels));
+        assertNotEquals(snapshot.getProductFingerprint(20L), patched.getProductFingerprint(20L));
+        assertEquals(snapshot.getCategoryFingerprint(frames), patched.getCategoryFingerprint(frames));
+        assertEquals(snapshot.getFeaturedFingerprint(), patched.getFeaturedFingerprint());
+        assertEquals(snapshot.getCategoriesFingerprint(), patched.getCategoriesFingerprint());
+        assertEquals(snapshot.getProductFingerprint(10L), patched.getProductFingerprint(10L));
+    }
+
+    @Test
+    void patchedFingerprintsMatchAFullRebuild() {
+        CatalogSnapshot patched = snapshot.withStock(2, levels(stock(10L, 0), stock(20L, 7)));
+        CatalogSnapshot rebuilt = new CatalogSnapshot(3, patched.getProducts(), patched.getCategories());
+
+        assertEquals(rebuilt.getFingerprint(), patched.getFingerprint());
+        assertEquals(rebuilt.getFeaturedFingerprint(), patched.getFeaturedFingerprint());
+        assertEquals(rebuilt.getCategoryFingerprint(frames), patched.getCategoryFingerprint(frames));
+        assertEquals(rebuilt.getCategoryFingerprint(wheels), patched.getCategoryFingerprint(wheels));
+        assertEquals(rebuilt.getLastModified(), patched.getLastModified());
+    }
+
+    @Test
+    void facetIndexFollowsTheNewStock() {
+        CatalogSnapshot patched = snapshot.withStock(2, levels(stock(10L, 0), stock(11L, 4)));
+
+        assertEquals(2, snapshot.getFacetIndex().browse(null, null, null, null, true, 0, 10).getInStock());
+        assertEquals(List.of(11L, 20L), patched.getFacetIndex().browse(null, null, null, null, true, 0, 10)
+                .getItems().stream().map(ProductCardResponse::getId).collect(Collectors.toList()));
+    }
+
+    @Test
+    void unchangedOrUnknownProductsKeepTheSameSnapshot() {
+        assertSame(snapshot, snapshot.withStock(2, levels(stock(20L, 3), stock(99L, 1))));
+    }
+
+    @Test
+    void patchedProductCarriesTheNewModificationDate() {
+        LocalDateTime sold = CREATED.plusDays(3);
+        CatalogSnapshot patched = snapshot.withStock(2,
+                Map.of(20L, new CatalogSnapshot.StockLevel(20L, 2, sold)));
+
+        assertEquals(sold, patched.findProduct(20L).get().getUpdatedAt());
+        assertTrue(patched.getLastModified() > snapshot.getLastModified());
+    }
+
+    private static Map<Long, CatalogSnapshot.StockLevel> levels(CatalogSnapshot.StockLevel... levels) {
+        Map<Long, CatalogSnapshot.StockLevel> byId = new HashMap<>();
+        for (CatalogSnapshot.StockLevel level : levels) {
+            byId.put(level.getProductId(), level);
+        }
+        return byId;
+    }
+
+    private static CatalogSnapshot.StockLevel stock(Long id, int quantity) {
+        return new CatalogSnapshot.StockLevel(id, quantity, CREATED.plusHours(1));
+    }
+
+    private static Category category(Long id, String name) {
+        Category category = new Category(name);
+        category.setId(id);
+        return category;
+    }
+
+    private static Product product(Long id, Category category, int stock, boolean featured) {
+        Product product = new Product("Prodotto " + id, "Descrizione", new BigDecimal("100"), stock, null,
+                category, "Cult");
+        product.setId(id);
+        product.setFeatured(featured);
+        product.setCreatedAt(CREATED);
+        product.setUpdatedAt(CREATED);
+        return product;
+    }
+}
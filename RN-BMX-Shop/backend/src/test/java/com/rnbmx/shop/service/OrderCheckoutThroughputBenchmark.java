@@ -0,0 +1,167 @@
+package com.rnbmx.shop.service;
+
+import com.rnbmx.shop.PostgresIntegrationTest;
+import com.rnbmx.shop.payload.request.OrderRequest;
+import com.rnbmx.shop.security.services.UserDetailsImpl;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Misura dei checkout al secondo di OrderService.createOrder sul PostgreSQL in container:
+// più thread creano ordini da 1-3 righe per un tempo fisso, poi si verificano le quantità
+// vendute e si stampano throughput e latenze. Il nome non finisce in Test, quindi Surefire
+// non lo esegue con la suite normale; si avvia esplicitamente con
+//
+//   mvn test -Dtest=OrderCheckoutThroughputBenchmark -Dcheckout.threads=16 -Dcheckout.seconds=30
+//
+// -Dcheckout.minOrdersPerSecond=N fa fallire l'esecuzione sotto la soglia (default 0: solo misura).
+// Il risultato dipende dalla macchina e dal database: l'obiettivo di qualche centinaio di
+// checkout al secondo va verificato sull'hardware di produzione, non sul container dei test.
+class OrderCheckoutThroughputBenchmark extends PostgresIntegrationTest {
+
+    private static final int THREADS = Integer.getInteger("checkout.threads", 16);
+    private static final int SECONDS = Integer.getInteger("checkout.seconds", 20);
+    private static final int WARMUP_SECONDS = Integer.getInteger("checkout.warmupSeconds", 5);
+    private static final int PRODUCTS = Integer.getInteger("checkout.products", 50);
+    private static final int MIN_ORDERS_PER_SECOND = Integer.getInteger("checkout.minOrdersPerSecond", 0);
+
+    // Abbastanza pezzi da non esaurire mai la disponibilità durante la misura
+    private static final int STOCK = 10_000_000;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void checkoutThroughput() throws Exception {
+        List<Long> productIds = new ArrayList<>();
+        for (int i = 0; i < PRODUCTS; i++) {
+            productIds.add(createProduct(STOCK).getId());
+        }
+        List<UserDetailsImpl> users = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            users.add(UserDetailsImpl.build(createUser()));
+        }
+
+        // Riscaldamento: JIT, pool di connessioni e piani delle query, senza misurare
+        run(users, productIds, WARMUP_SECONDS);
+        Run run = run(users, productIds, SECONDS);
+
+        long[] latencies = run.latencies();
+        double ordersPerSecond = latencies.length / (run.elapsedNanos / 1_000_000_000.0);
+        System.out.printf("Checkout: %d thread, %d ordini in %.1f s -> %.0f ordini/s, "
+                + "latenza p50 %.1f ms, p99 %.1f ms, max %.1f ms%n",
+                THREADS, latencies.length, run.elapsedNanos / 1_000_000_000.0, ordersPerSecond,
+                percentile(latencies, 0.50), percentile(latencies, 0.99), percentile(latencies, 1.0));
+
+        // Ogni pezzo scalato dalla disponibilità (riscaldamento compreso) è una riga d'ordine scritta
+        for (Long productId : productIds) {
+            int stock = jdbcTemplate.queryForObject("SELECT stock FROM products WHERE id = ?", Integer.class,
+                    productId);
+            int sold = jdbcTemplate.queryForObject(
+                    "SELECT COALESCE(SUM(quantity), 0) FROM order_items WHERE product_id = ?", Integer.class,
+                    productId);
+            assertEquals(STOCK - stock, sold);
+        }
+        assertTrue(ordersPerSecond >= MIN_ORDERS_PER_SECOND,
+                String.format("%.0f ordini/s, attesi almeno %d", ordersPerSecond, MIN_ORDERS_PER_SECOND));
+    }
+
+    private Run run(List<UserDetailsImpl> users, List<Long> productIds, int seconds) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<long[]>> futures = new ArrayList<>();
+        long begin;
+        try {
+            for (UserDetailsImpl user : users) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+                    long[] samples = new long[1024];
+                    int count = 0;
+                    while (System.nanoTime() < deadline) {
+                        long t0 = System.nanoTime();
+                        orderService.createOrder(user, randomOrder(productIds));
+                        if (count == samples.length) {
+                            samples = Arrays.copyOf(samples, count * 2);
+                        }
+                        samples[count++] = System.nanoTime() - t0;
+                    }
+                    return Arrays.copyOf(samples, count);
+                }));
+            }
+            begin = System.nanoTime();
+            start.countDown();
+            // Un errore in un checkout fa fallire la misura qui
+            List<long[]> perThread = new ArrayList<>();
+            for (Future<long[]> future : futures) {
+                perThread.add(future.get(seconds + 60L, TimeUnit.SECONDS));
+            }
+            return new Run(System.nanoTime() - begin, perThread);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static OrderRequest randomOrder(List<Long> productIds) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int lines = 1 + random.nextInt(3);
+        List<OrderRequest.Item> items = new ArrayList<>(lines);
+        List<Long> chosen = new ArrayList<>(lines);
+        while (items.size() < lines) {
+            Long productId = productIds.get(random.nextInt(productIds.size()));
+            if (chosen.contains(productId)) {
+                continue;
+            }
+            chosen.add(productId);
+            OrderRequest.Item item = new OrderRequest.Item();
+            item.setProductId(productId);
+            item.setQuantity(1 + random.nextInt(2));
+            items.add(item);
+        }
+        OrderRequest request = new OrderRequest();
+        request.setItems(items);
+        request.setShippingAddress("Via dei Test 1, Roma");
+        return request;
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1_000_000.0;
+    }
+
+    private static final class Run {
+        private final long elapsedNanos;
+        private final List<long[]> perThread;
+
+        private Run(long elapsedNanos, List<long[]> perThread) {
+            this.elapsedNanos = elapsedNanos;
+            this.perThread = perThread;
+        }
+
+        // Latenze di tutti i thread in ordine crescente
+        private long[] latencies() {
+            long[] all = perThread.stream().flatMapToLong(Arrays::stream).toArray();
+            Arrays.sort(all);
+            return all;
+        }
+    }
+}
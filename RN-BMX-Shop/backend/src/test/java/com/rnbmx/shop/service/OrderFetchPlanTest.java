@@ -0,0 +1,119 @@
+package com.rnbmx.shop.service;
+
+import com.rnbmx.shop.PostgresIntegrationTest;
+import com.rnbmx.shop.model.Product;
+import com.rnbmx.shop.model.User;
+import com.rnbmx.shop.payload.request.OrderRequest;
+import com.rnbmx.shop.payload.response.OrderPageResponse;
+import com.rnbmx.shop.payload.response.OrderResponse;
+import com.rnbmx.shop.security.services.UserDetailsImpl;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Numero di query fisso per le letture Order -> OrderItem -> Product, qualunque sia il
+// numero di ordini: protegge gli entity graph di OrderRepository da regressioni N+1.
+// La ricostruzione differita dello snapshot è spostata fuori dalla finestra di misura.
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "bmx.app.catalog.stockRefreshMs=600000"
+})
+class OrderFetchPlanTest extends PostgresIntegrationTest {
+
+    private static final int ORDERS = 12;
+    private static final int ITEMS_PER_ORDER = 3;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private User user;
+
+    @BeforeEach
+    void createOrders() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        user = createUser();
+        UserDetailsImpl principal = UserDetailsImpl.build(user);
+
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < ITEMS_PER_ORDER; i++) {
+            products.add(createProduct(ORDERS));
+        }
+        for (int i = 0; i < ORDERS; i++) {
+            OrderRequest request = new OrderRequest();
+            request.setItems(new ArrayList<>());
+            for (Product product : products) {
+                OrderRequest.Item item = new OrderRequest.Item();
+                item.setProductId(product.getId());
+                item.setQuantity(1);
+                request.getItems().add(item);
+            }
+            request.setShippingAddress("Via dei Test 1, Roma");
+            orderService.createOrder(principal, request);
+        }
+        statistics.clear();
+    }
+
+    @Test
+    void userOrdersLoadInTwoQueries() {
+        List<OrderResponse> orders = orderService.getUserOrders(user.getId());
+
+        // Ordini con righe e prodotti in join, più il proxy dell'utente per l'email
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(ORDERS, orders.size());
+        assertItemsLoaded(orders);
+    }
+
+    @Test
+    void orderPageLoadsInTwoQueries() {
+        OrderPageResponse page = orderService.getOrderPage(user.getId(), null, null, null, ORDERS / 2, null);
+
+        // Id della pagina, poi ordini con utente, righe e prodotti
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(ORDERS / 2, page.getItems().size());
+        assertTrue(page.isHasMore());
+        assertItemsLoaded(page.getItems());
+
+        statistics.clear();
+        OrderPageResponse next = orderService.getOrderPage(user.getId(), null, null, null, ORDERS / 2,
+                page.getNextCursor());
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(ORDERS / 2, next.getItems().size());
+        assertTrue(next.getItems().get(0).getId() < page.getItems().get(page.getItems().size() - 1).getId());
+    }
+
+    @Test
+    void allOrdersLoadInOneQuery() {
+        List<OrderResponse> orders = orderService.getAllOrders();
+
+        // Nel database ci sono anche gli ordini degli altri test: si controllano solo i propri
+        List<OrderResponse> own = orders.stream()
+                .filter(order -> order.getUserId().equals(user.getId()))
+                .collect(Collectors.toList());
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(ORDERS, own.size());
+        assertItemsLoaded(own);
+    }
+
+    private static void assertItemsLoaded(List<OrderResponse> orders) {
+        for (OrderResponse order : orders) {
+            assertTrue(order.getEmail() != null, "Email dell'utente non caricata");
+            assertEquals(ITEMS_PER_ORDER, order.getOrderItems().size());
+            order.getOrderItems().forEach(item -> assertTrue(item.getProductName() != null));
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.rnbmx.shop.service;
+
+import com.rnbmx.shop.PostgresIntegrationTest;
+import com.rnbmx.shop.exception.OutOfStockException;
+import com.rnbmx.shop.model.Product;
+import com.rnbmx.shop.payload.request.OrderRequest;
+import com.rnbmx.shop.security.services.UserDetailsImpl;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Checkout concorrenti sugli ultimi pezzi disponibili: nessun ordine oltre la disponibilità,
+// stock mai negativo e ogni pezzo venduto corrisponde a una riga d'ordine scritta
+class StockReservationConcurrencyTest extends PostgresIntegrationTest {
+
+    private static final int THREADS = 32;
+    private static final int ATTEMPTS_PER_THREAD = 4;
+    private static final int STOCK = 10;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void concurrentCheckoutsNeverOversell() throws Exception {
+        UserDetailsImpl user = UserDetailsImpl.build(createUser());
+        Product product = createProduct(STOCK);
+
+        AtomicInteger confirmed = new AtomicInteger();
+        AtomicInteger outOfStock = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                        try {
+                            orderService.createOrder(user, orderFor(product.getId(), 1));
+                            confirmed.incrementAndGet();
+                        } catch (OutOfStockException e) {
+                            outOfStock.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            // Un'eccezione diversa da OutOfStockException fa fallire il test qui
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        int stock = jdbcTemplate.queryForObject("SELECT stock FROM products WHERE id = ?", Integer.class,
+                product.getId());
+        int soldUnits = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(quantity), 0) FROM order_items WHERE product_id = ?", Integer.class,
+                product.getId());
+
+        assertTrue(confirmed.get() <= STOCK, "Ordini confermati oltre la disponibilità: " + confirmed.get());
+        assertTrue(stock >= 0, "Stock negativo: " + stock);
+        assertEquals(STOCK, confirmed.get(), "Con più richieste che pezzi la disponibilità va esaurita");
+        assertEquals(THREADS * ATTEMPTS_PER_THREAD, confirmed.get() + outOfStock.get());
+        assertEquals(confirmed.get(), soldUnits);
+        assertEquals(STOCK - soldUnits, stock);
+    }
+
+    @Test
+    void shortItemRollsBackTheWholeOrder() {
+        UserDetailsImpl user = UserDetailsImpl.build(createUser());
+        Product available = createProduct(5);
+        Product scarce = createProduct(1);
+
+        OrderRequest request = orderFor(available.getId(), 2);
+        OrderRequest.Item item = new OrderRequest.Item();
+        item.setProductId(scarce.getId());
+        item.setQuantity(2);
+        request.getItems().add(item);
+
+        assertThrows(OutOfStockException.class, () -> orderService.createOrder(user, request));
+
+        assertEquals(5, stockOf(available));
+        assertEquals(1, stockOf(scarce));
+    }
+
+    private int stockOf(Product product) {
+        return jdbcTemplate.queryForObject("SELECT stock FROM products WHERE id = ?", Integer.class,
+                product.getId());
+    }
+
+    private static OrderRequest orderFor(Long productId, int quantity) {
+        OrderRequest.Item item = new OrderRequest.Item();
+        item.setProductId(productId);
+        item.setQuantity(quantity);
+        OrderRequest request = new OrderRequest();
+        request.setItems(new ArrayList<>(List.of(item)));
+        request.setShippingAddress("Via dei Test 1, Roma");
+        return request;
+    }
+}
@@ -55,7 +55,8 @@ function AdminDashboardPage() {
 
         if (activeTab === 'products') {
           console.log('Recupero prodotti...')
-          const productsResponse = await ProductService.getAllProducts()
+          // La modifica richiede la descrizione completa, non la card della lista
+          const productsResponse = await ProductService.getAllProducts('full')
           console.log('Risposta prodotti ricevuta:', productsResponse)
 
           // Determina se la risposta è già prodotti o contiene dati
@@ -3,6 +3,12 @@ import { useNavigate } from 'react-router-dom'
 import StripeCheckout from 'react-stripe-checkout'
 import OrderService from '../services/order.service'
 
+// Attesa della conferma di un ordine in flash sale (circa un minuto in tutto)
+const TICKET_POLL_INTERVAL_MS = 1000
+const TICKET_POLL_ATTEMPTS = 60
+
+const sleep = (ms) => new Promise((resolve) => setTimeout(resolve, ms))
+
 function CheckoutPage({ cartItems, clearCart, currentUser }) {
   const [formData, setFormData] = useState({
     fullName: '',
@@ -14,6 +20,7 @@ function CheckoutPage({ cartItems, clearCart, currentUser }) {
   })
   const [loading, setLoading] = useState(false)
   const [error, setError] = useState('')
+  const [waitingTicket, setWaitingTicket] = useState(false)
 
   const navigate = useNavigate()
 
@@ -72,7 +79,25 @@ function CheckoutPage({ cartItems, clearCart, currentUser }) {
       }
 
       // Invia l'ordine al backend
-      await OrderService.createOrder(order, token.id)
+      const response = await OrderService.createOrder(order, token.id)
+
+      // 202: prodotto in flash sale, l'ordine è in coda e va atteso finché non viene scritto
+      if (response.status === 202 && response.data && response.data.ticketId) {
+        const ticket = await waitForTicket(response.data.ticketId)
+        if (ticket.status === 'REJECTED') {
+          setError(
+            ticket.message ||
+              'Il prodotto è esaurito: il tuo ordine non è stato registrato.'
+          )
+          return
+        }
+        if (ticket.status !== 'CONFIRMED') {
+          setError(
+            "L'ordine è ancora in elaborazione. Controlla tra poco la pagina dei tuoi ordini."
+          )
+          return
+        }
+      }
 
       // Svuota il carrello
       clearCart()
@@ -80,15 +105,36 @@ function CheckoutPage({ cartItems, clearCart, currentUser }) {
       // Reindirizza alla pagina degli ordini
       navigate('/orders', { state: { success: true } })
     } catch (err) {
-      setError(
-        'Si è verificato un errore durante il checkout. Riprova più tardi.'
-      )
+      // 409: disponibilità insufficiente, 503: troppi ordini in coda per la flash sale
+      const status = err.response && err.response.status
+      if ((status === 409 || status === 503) && err.response.data) {
+        setError(err.response.data.message)
+      } else {
+        setError(
+          'Si è verificato un errore durante il checkout. Riprova più tardi.'
+        )
+      }
       console.error(err)
     } finally {
+      setWaitingTicket(false)
       setLoading(false)
     }
   }
 
+  // Interroga il ticket finché non esce dallo stato QUEUED
+  const waitForTicket = async (ticketId) => {
+    setWaitingTicket(true)
+    let ticket = { status: 'QUEUED' }
+    for (let attempt = 0; attempt < TICKET_POLL_ATTEMPTS; attempt++) {
+      await sleep(TICKET_POLL_INTERVAL_MS)
+      ticket = (await OrderService.getFlashTicket(ticketId)).data
+      if (ticket.status !== 'QUEUED') {
+        break
+      }
+    }
+    return ticket
+  }
+
   if (cartItems.length === 0) {
     return (
       <div className="container mt-5 text-center">
@@ -114,6 +160,12 @@ function CheckoutPage({ cartItems, clearCart, currentUser }) {
         </div>
       )}
 
+      {waitingTicket && (
+        <div className="alert alert-info" role="status">
+          Ordine in coda: attendi la conferma della disponibilità...
+        </div>
+      )}
+
       <div className="row">
         <div className="col-md-8">
           <div className="card mb-4">
@@ -269,7 +321,11 @@ function CheckoutPage({ cartItems, clearCart, currentUser }) {
                     !formData.phone
                   }
                 >
-                  {loading ? 'Elaborazione...' : 'Procedi al pagamento'}
+                  {waitingTicket
+                    ? 'In attesa di conferma...'
+                    : loading
+                      ? 'Elaborazione...'
+                      : 'Procedi al pagamento'}
                 </button>
               </StripeCheckout>
 
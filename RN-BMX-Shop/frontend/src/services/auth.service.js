@@ -28,7 +28,31 @@ axios.interceptors.response.use(
     serverStatus.available = true
     return response
   },
-  (error) => {
+  async (error) => {
+    // Access token scaduto in modalità stateless: un solo tentativo di rinnovo
+    const original = error.config
+    const refreshToken = localStorage.getItem('refreshToken')
+    if (
+      error.response &&
+      error.response.status === 401 &&
+      refreshToken &&
+      original &&
+      !original._retry &&
+      !original.url.endsWith('refresh')
+    ) {
+      original._retry = true
+      try {
+        const token = await refreshAccessToken(refreshToken)
+        original.headers = {
+          ...original.headers,
+          Authorization: `Bearer ${token}`,
+        }
+        return axios(original)
+      } catch (refreshError) {
+        localStorage.removeItem('refreshToken')
+      }
+    }
+
     if (error.response) {
       console.error(
         `Errore risposta da ${error.config?.url}: ${error.response.status}`,
@@ -47,6 +71,31 @@ axios.interceptors.response.use(
   }
 )
 
+// Richieste concorrenti scadute condividono lo stesso rinnovo
+let pendingRefresh = null
+
+const refreshAccessToken = (refreshToken) => {
+  if (!pendingRefresh) {
+    pendingRefresh = axios
+      .post(API_URL + 'refresh', { refreshToken })
+      .then((response) => {
+        localStorage.setItem('token', response.data.token)
+        localStorage.setItem('refreshToken', response.data.refreshToken)
+        const user = JSON.parse(localStorage.getItem('user'))
+        if (user) {
+          user.accessToken = response.data.token
+          user.roles = response.data.roles
+          localStorage.setItem('user', JSON.stringify(user))
+        }
+        return response.data.token
+      })
+      .finally(() => {
+        pendingRefresh = null
+      })
+  }
+  return pendingRefresh
+}
+
 const checkServerStatus = async () => {
   const now = Date.now()
   if (
@@ -153,6 +202,11 @@ const login = async (email, password) => {
 
     if (response.data.token) {
       localStorage.setItem('token', response.data.token)
+      if (response.data.refreshToken) {
+        localStorage.setItem('refreshToken', response.data.refreshToken)
+      } else {
+        localStorage.removeItem('refreshToken')
+      }
       const user = {
         id: response.data.id,
         username: response.data.username || response.data.email,
@@ -221,7 +275,22 @@ const register = async (
 }
 
 const logout = () => {
+  const token = localStorage.getItem('token')
+  const refreshToken = localStorage.getItem('refreshToken')
+  if (token) {
+    // Revoca i token lato server; il logout locale non attende la risposta
+    axios
+      .post(
+        API_URL + 'signout',
+        refreshToken ? { refreshToken } : null,
+        {
+          headers: { Authorization: `Bearer ${token}` },
+        }
+      )
+      .catch(() => {})
+  }
   localStorage.removeItem('token')
+  localStorage.removeItem('refreshToken')
   localStorage.removeItem('user')
 }
 
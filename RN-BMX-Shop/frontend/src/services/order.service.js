@@ -49,6 +49,11 @@ class OrderService {
     return axios.post(API_URL, payload, { headers: authHeader() })
   }
 
+  // Stato di un ordine in flash sale: QUEUED finché non viene scritto, poi CONFIRMED o REJECTED
+  getFlashTicket(ticketId) {
+    return axios.get(API_URL + 'tickets/' + ticketId, { headers: authHeader() })
+  }
+
   // Processa un pagamento con Stripe
   processPayment(paymentData) {
     return axios.post('/api/payment/process', paymentData, {
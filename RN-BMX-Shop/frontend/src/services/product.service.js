@@ -75,13 +75,15 @@ const mockProducts = [
 const API_URL = '/api/products'
 
 class ProductService {
-  // Ritorna prodotti reali o mock in caso di errore
-  async getAllProducts() {
+  // Ritorna prodotti reali o mock in caso di errore.
+  // view = 'full' restituisce i prodotti completi invece delle card ridotte
+  async getAllProducts(view) {
     try {
       console.log('Tentativo di recuperare tutti i prodotti dal server...')
       console.log('URL completo:', window.location.origin + API_URL)
 
       const response = await axios.get(API_URL, {
+        params: view ? { view } : undefined,
         timeout: 15000,
         headers: {
           Accept: 'application/json',
@@ -70,12 +70,11 @@ public class ProductController {
 
     @GetMapping
     public ResponseEntity<?> getAllProducts(@RequestHeader(value = "Authorization", required = false) String token) {
-        logger.info("GET /api/products - Richiesta tutti i prodotti");
-        logger.info("Headers - Authorization: {}", token);
+        logger.debug("GET /api/products - Richiesta tutti i prodotti");
 
         try {
             List<Product> products = productService.getAllProducts();
-            logger.info("Recuperati {} prodotti", products.size());
+            logger.debug("Recuperati {} prodotti", products.size());
 
             if (products.isEmpty()) {
                 logger.warn("ATTENZIONE: Nessun prodotto trovato nel database!");
@@ -90,15 +89,6 @@ public class ProductController {
                 return ResponseEntity.ok(debugResponse);
             }
 
-            // Log dettagliato dei prodotti recuperati
-            int count = 0;
-            for (Product product : products) {
-                count++;
-                logger.info("Prodotto {}: ID={}, Nome={}, Categoria={}, Stock={}, ImageUrl={}",
-                        count, product.getId(), product.getName(), product.getCategory(),
-                        product.getStockQuantity(), product.getImageUrl());
-            }
-
             return ResponseEntity.ok(products);
         } catch (Exception e) {
             logger.error("Errore nel recupero di tutti i prodotti: {}", e.getMessage(), e);